@@ -1,5 +1,9 @@
 package enigma;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
  *  @author Alice Wang
@@ -7,26 +11,83 @@ package enigma;
 class Alphabet {
 
     /**
-     * A new alphabet containing CHARS.  Character number #k has index
-     * K (numbering from 0). No character may be duplicated.
+     * A new alphabet containing the code points of CHARS.  Code point
+     * #k has index K (numbering from 0). No character may be duplicated.
      */
     Alphabet(String chars) {
-        this._chars = chars;
-        this._size = chars.length();
-        checkRepeat(chars);
+        this._codePoints = chars.codePoints().toArray();
+        this._size = _codePoints.length;
+        buildIndex();
+    }
 
+    /** Build the map from code points to indices, checking for repeated
+     *  characters.  The map is a table indexed by code point minus the
+     *  smallest code point when the code points are reasonably dense,
+     *  and a hash map otherwise. */
+    private void buildIndex() {
+        int min = Integer.MAX_VALUE, max = -1;
+        for (int cp : _codePoints) {
+            min = Math.min(min, cp);
+            max = Math.max(max, cp);
+        }
+        if (_size == 0) {
+            _index = new int[0];
+            return;
+        }
+        _base = min;
+        long span = (long) max - min + 1;
+        if (span <= DENSE_SPAN || span <= (long) DENSE_FACTOR * _size) {
+            _index = new int[(int) span];
+            Arrays.fill(_index, -1);
+            for (int i = 0; i < _size; i += 1) {
+                int k = _codePoints[i] - min;
+                if (_index[k] >= 0) {
+                    throw repeated();
+                }
+                _index[k] = i;
+            }
+        } else {
+            _sparse = new HashMap<>(2 * _size);
+            for (int i = 0; i < _size; i += 1) {
+                if (_sparse.put(_codePoints[i], i) != null) {
+                    throw repeated();
+                }
+            }
+        }
     }
 
-    /**
-     * stores private String of characters.
-     */
-    private String _chars;
+    /** Return the exception reporting a repeated character. */
+    private static EnigmaException repeated() {
+        return new EnigmaException("Repeating Characters Not "
+                                   + "allowed in alphabet or cycle");
+    }
+
+    /** Code point ranges no larger than this always use a table. */
+    private static final int DENSE_SPAN = 1 << 16;
+
+    /** Code point ranges no more than this many times my size use a
+     *  table. */
+    private static final int DENSE_FACTOR = 4;
 
     /**
      * private store of alphabet size.
      */
     private int _size;
 
+    /** My code points, in order. */
+    private int[] _codePoints;
+
+    /** Smallest of my code points. */
+    private int _base;
+
+    /** Direct table: _index[CP - _base] is the index of code point CP, or
+     *  -1 if CP is not in the alphabet.  Null if _sparse is used. */
+    private int[] _index;
+
+    /** Map from code point to index, used instead of _index when my code
+     *  points are spread too thinly for a table. */
+    private HashMap<Integer, Integer> _sparse;
+
     /**
      * A default alphabet of all upper-case characters.
      */
@@ -45,26 +106,34 @@ class Alphabet {
      * Returns true if preprocess(CH) is in this alphabet.
      */
     boolean contains(char ch) {
-        for (int i = 0; i < _size; i++) {
-            if (_chars.charAt(i) == ch) {
-                return true;
-            }
-        }
-        return false;
-
+        return toInt(ch) >= 0;
     }
 
+    /** Returns true if code point CP is in this alphabet. */
+    boolean contains(int cp) {
+        return toInt(cp) >= 0;
+    }
 
     /**
      * Returns character number INDEX in the alphabet, where
-     * 0 <= INDEX < size().
+     * 0 <= INDEX < size().  That character must not be a supplementary
+     * code point (see toCodePoint).
      */
     char toChar(int index) {
-        if (index > _size || index < 0) {
-            throw new IndexOutOfBoundsException("index size incorrect");
+        int cp = toCodePoint(index);
+        if (Character.isSupplementaryCodePoint(cp)) {
+            throw new EnigmaException("character is not a single char");
         }
-        return _chars.charAt(index);
+        return (char) cp;
+    }
 
+    /** Returns code point number INDEX in the alphabet, where
+     *  0 <= INDEX < size(). */
+    int toCodePoint(int index) {
+        if (index >= _size || index < 0) {
+            throw new IndexOutOfBoundsException("index size incorrect");
+        }
+        return _codePoints[index];
     }
 
     /**
@@ -72,21 +141,29 @@ class Alphabet {
      * the alphabet. This is the inverse of toChar().
      */
     int toInt(char ch) {
-        return _chars.indexOf(ch);
+        return toInt((int) ch);
+    }
 
+    /** Returns the index of code point CP, or -1 if CP is not in the
+     *  alphabet.  This is the inverse of toCodePoint(). */
+    int toInt(int cp) {
+        if (_index != null) {
+            int k = cp - _base;
+            return k >= 0 && k < _index.length ? _index[k] : -1;
+        }
+        Integer result = _sparse.get(cp);
+        return result == null ? -1 : result;
     }
 
-    /** Search for repeating characters in String.
-     * @param A String alphabet
-     * Source: CS61B Lecture 16 Slides*/
+    /** Search for repeating characters (code points) in String, in
+     * linear time.
+     * @param A String alphabet */
     void checkRepeat(String A) {
-        for (int i = 0; i < A.length(); i += 1) {
-            for (int j = i + 1; j < A.length(); j += 1) {
-                if (A.charAt(i) == A.charAt(j)) {
-                    throw new EnigmaException("Repeating Characters Not "
-                            + "allowed in alphabet or cycle");
-                }
+        HashSet<Integer> seen = new HashSet<>();
+        A.codePoints().forEach(cp -> {
+            if (!seen.add(cp)) {
+                throw repeated();
             }
-        }
+        });
     }
 }
@@ -0,0 +1,90 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The suite of all JUnit tests for the Alphabet class.
+ *  @author Alice Wang
+ */
+public class AlphabetTest {
+
+    /** Return a string of the COUNT code points starting at FIRST. */
+    private static String range(int first, int count) {
+        StringBuilder result = new StringBuilder();
+        for (int cp = first; cp < first + count; cp += 1) {
+            result.appendCodePoint(cp);
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void checkLargeAlphabet() {
+        Alphabet cjk = new Alphabet(range(0x4E00, 3000));
+        assertEquals(3000, cjk.size());
+        for (int i = 0; i < cjk.size(); i += 1) {
+            assertEquals(i, cjk.toInt(cjk.toChar(i)));
+        }
+        assertEquals(-1, cjk.toInt('A'));
+        assertFalse(cjk.contains((char) (0x4E00 + 3000)));
+    }
+
+    @Test
+    public void checkByteAlphabet() {
+        Alphabet bytes = new Alphabet(range(0, 256));
+        assertEquals(256, bytes.size());
+        assertEquals(255, bytes.toInt((char) 255));
+        assertEquals(-1, bytes.toInt((char) 256));
+    }
+
+    @Test
+    public void checkSupplementaryAlphabet() {
+        String chars = "A" + range(0x1F600, 40) + "\u4E00";
+        Alphabet alpha = new Alphabet(chars);
+        assertEquals(42, alpha.size());
+        assertEquals(0, alpha.toInt('A'));
+        assertEquals(1, alpha.toInt(0x1F600));
+        assertEquals(41, alpha.toInt(0x4E00));
+        assertEquals(0x1F627, alpha.toCodePoint(40));
+        assertEquals(-1, alpha.toInt(0x1F5FF));
+        assertTrue(alpha.contains(0x1F610));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkRepeatedCodePoint() {
+        new Alphabet(range(0x1F600, 10) + range(0x1F605, 1));
+    }
+
+    @Test
+    public void checkSupplementaryMachine() {
+        Alphabet alpha = new Alphabet(range(0x1F600, 6) + range(0x4E00, 4));
+        String cp = range(0x1F600, 6) + range(0x4E00, 4);
+        List<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("R", new Permutation(pairs(cp), alpha)));
+        rotors.add(new MovingRotor("M", new Permutation("(" + cp + ")",
+                                                        alpha),
+                                   range(0x4E01, 1)));
+        Machine m = new Machine(alpha, 2, 1, rotors);
+        m.insertRotors(new String[]{"R", "M"});
+        m.setRotors(range(0x1F601, 1));
+        m.setPlugboard(new Permutation("", alpha));
+        String msg = range(0x1F600, 6) + range(0x4E00, 4) + range(0x1F603, 2);
+        String enc = m.convert(msg);
+        assertEquals(12, enc.codePointCount(0, enc.length()));
+        m.setRotors(range(0x1F601, 1));
+        assertEquals(msg, m.convert(enc));
+    }
+
+    /** Return cycles pairing successive code points of S. */
+    private static String pairs(String s) {
+        int[] cps = s.codePoints().toArray();
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i + 1 < cps.length; i += 2) {
+            result.append('(').appendCodePoint(cps[i])
+                .appendCodePoint(cps[i + 1]).append(") ");
+        }
+        return result.toString();
+    }
+}
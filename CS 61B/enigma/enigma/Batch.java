@@ -0,0 +1,222 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static enigma.EnigmaException.*;
+
+/** Processes many independent message files at once.  Each input file is
+ *  memory-mapped and decoded in chunks straight into a MessageStream,
+ *  whose output goes to a channel on the corresponding output file.
+ *  Files are processed on a fixed number of worker threads fed from a
+ *  bounded queue; each worker has its own machine, built from a
+ *  configuration that is parsed only once.
+ *  @author Alice Wang
+ */
+class Batch {
+
+    /** Largest number of bytes of an input file mapped at once. */
+    static final int MAP_SIZE = 1 << 26;
+
+    /** Number of queued files per worker before submission blocks. */
+    static final int QUEUE_PER_THREAD = 4;
+
+    /** A batch processor running THREADS workers, each with its own
+     *  machine built from CONFIG.  Unless KEYSTREAMS is null, messages
+     *  are converted by keystreams from it. */
+    Batch(Config config, int threads, Keystream.Cache keystreams) {
+        if (threads <= 0) {
+            throw error("number of threads must be positive");
+        }
+        _threads = threads;
+        _keystreams = keystreams;
+        _machines = ThreadLocal.withInitial(config::newMachine);
+    }
+
+    /** Return the input files named by SOURCE: the regular files in it,
+     *  in name order, if it is a directory, and otherwise the files
+     *  listed in it, one per line.  Relative names in a listing are
+     *  resolved against the listing's directory; blank lines and lines
+     *  starting with '#' are ignored. */
+    static List<Path> inputs(Path source) {
+        List<Path> result = new ArrayList<>();
+        try {
+            if (Files.isDirectory(source)) {
+                try (Stream<Path> files = Files.list(source)) {
+                    files.filter(Files::isRegularFile).sorted()
+                        .forEach(result::add);
+                }
+            } else {
+                Path base = source.toAbsolutePath().getParent();
+                for (String line : Files.readAllLines(source, CHARSET)) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        result.add(base.resolve(line));
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not read %s", source);
+        }
+        return result;
+    }
+
+    /** Return the output file in directory OUTDIR for INPUT: INPUT's name
+     *  with a final ".in" replaced by (or otherwise followed by) ".out". */
+    static Path output(Path outDir, Path input) {
+        String name = input.getFileName().toString();
+        if (name.endsWith(".in")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return outDir.resolve(name + ".out");
+    }
+
+    /** Process each of INPUTS, writing the results to files in OUTDIR,
+     *  and return the number of files that could not be processed.  The
+     *  error for each such file is reported on the standard error. */
+    int process(List<Path> inputs, Path outDir) {
+        Set<Path> outputs = new HashSet<>();
+        for (Path input : inputs) {
+            if (!outputs.add(output(outDir, input))) {
+                throw error("two inputs would be written to %s",
+                            output(outDir, input));
+            }
+        }
+        try {
+            Files.createDirectories(outDir);
+        } catch (IOException excp) {
+            throw error("could not create %s", outDir);
+        }
+        AtomicInteger failures = new AtomicInteger();
+        ArrayBlockingQueue<Runnable> queue =
+            new ArrayBlockingQueue<>(_threads * QUEUE_PER_THREAD);
+        ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(_threads, _threads, 0, TimeUnit.SECONDS,
+                                   queue,
+                                   new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (Path input : inputs) {
+                pool.execute(() -> {
+                    try {
+                        processFile(_machines.get(), input,
+                                    output(outDir, input), _keystreams);
+                    } catch (EnigmaException | IOException excp) {
+                        failures.incrementAndGet();
+                        System.err.printf("Error: %s: %s%n", input,
+                                          excp instanceof IOException
+                                          ? "I/O error: " + excp.getMessage()
+                                          : excp.getMessage());
+                    } catch (RuntimeException excp) {
+                        failures.incrementAndGet();
+                        System.err.printf("Error: %s: %s%n", input, excp);
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    continue;
+                }
+            } catch (InterruptedException excp) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        return failures.get();
+    }
+
+    /** Run the messages in INPUT through MACHINE, writing the results to
+     *  OUTPUT, and converting by keystreams from KEYSTREAMS unless it is
+     *  null. */
+    static void processFile(Machine machine, Path input, Path output,
+                            Keystream.Cache keystreams) throws IOException {
+        long start = Stats.enabled() ? System.nanoTime() : 0;
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(input);
+        } catch (IOException excp) {
+            throw error("could not open input");
+        }
+        try (FileChannel in = channel;
+             Writer out = Channels.newWriter(
+                 FileChannel.open(output, StandardOpenOption.CREATE,
+                                  StandardOpenOption.WRITE,
+                                  StandardOpenOption.TRUNCATE_EXISTING),
+                 CHARSET.newEncoder(), MessageStream.BUFFER_SIZE)) {
+            MessageStream stream =
+                new MessageStream(machine, out, keystreams);
+            CharsetDecoder decoder = CHARSET.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = CharBuffer.allocate(MessageStream.BUFFER_SIZE);
+            long size = in.size();
+            long pos = 0;
+            do {
+                int len = (int) Math.min(MAP_SIZE, size - pos);
+                MappedByteBuffer bytes =
+                    in.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                boolean last = pos + len == size;
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, last);
+                    drain(stream, chars);
+                } while (result.isOverflow());
+                pos += bytes.position();
+                if (!last && bytes.position() == 0) {
+                    throw error("undecodable input");
+                }
+            } while (pos < size);
+            while (decoder.flush(chars).isOverflow()) {
+                drain(stream, chars);
+            }
+            drain(stream, chars);
+            stream.finish();
+        }
+        if (Stats.enabled()) {
+            Stats.processed(System.nanoTime() - start);
+        }
+    }
+
+    /** Write the characters in CHARS to STREAM and clear CHARS. */
+    private static void drain(MessageStream stream, CharBuffer chars)
+        throws IOException {
+        chars.flip();
+        stream.write(chars.array(), chars.arrayOffset() + chars.position(),
+                     chars.remaining());
+        chars.clear();
+    }
+
+    /** Character set of input and output files. */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** Number of worker threads. */
+    private final int _threads;
+
+    /** Compiled keystreams shared by all workers, or null. */
+    private final Keystream.Cache _keystreams;
+
+    /** Each worker thread's machine. */
+    private final ThreadLocal<Machine> _machines;
+
+}
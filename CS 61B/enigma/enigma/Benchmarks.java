@@ -0,0 +1,485 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static enigma.EnigmaException.*;
+
+/** Microbenchmarks and end-to-end benchmarks for the enigma package, in
+ *  the manner of JMH: each benchmark is warmed up, then timed over
+ *  several measurement iterations, and its mean time per operation is
+ *  reported with a 99% confidence interval.  Results are consumed by a
+ *  sink so that the JIT cannot discard the work being measured.
+ *  Every benchmark runs on machines over three alphabets (26 upper-case
+ *  letters, 64 letters and digits, and all printable ASCII characters
+ *  allowed in a configuration), built from randomly generated rotors
+ *  by way of an ordinary configuration file.
+ *  @author Alice Wang
+ */
+public final class Benchmarks {
+
+    /** Usage: java enigma.Benchmarks [--max SIZE] [--warmup MS]
+     *  [--time MS] [--iterations N] [PATTERN].  Runs the benchmarks whose
+     *  names contain a match for PATTERN (all by default).  End-to-end
+     *  inputs range from 1KB up to SIZE bytes (default 16m; suffixes k,
+     *  m, and g are allowed), up to 1g. */
+    public static void main(String... args) {
+        try {
+            new Benchmarks(args).run();
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        } catch (IOException excp) {
+            System.err.printf("Error: I/O error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Alphabets over which every benchmark runs. */
+    static final String[] ALPHABETS = {
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ",
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_",
+        printable(),
+    };
+
+    /** Sizes, in characters, of end-to-end inputs. */
+    static final long[] SIZES = {
+        1L << 10, 1L << 16, 1L << 20, 1L << 24, 1L << 28, 1L << 30,
+    };
+
+    /** Number of slots in the benchmark machines. */
+    static final int NUM_ROTORS = 5;
+
+    /** Number of pawls in the benchmark machines. */
+    static final int NUM_PAWLS = 3;
+
+    /** Number of message characters on each line of end-to-end input. */
+    static final int LINE_LENGTH = 60;
+
+    /** Length of the messages used for convert(String). */
+    static final int MESSAGE_LENGTH = 1 << 10;
+
+    /** Number of messages converted together by MultiConverter. */
+    static final int MANY_MESSAGES = 256;
+
+    /** Length of the messages converted together by MultiConverter. */
+    static final int MANY_LENGTH = 64;
+
+    /** Benchmarks configured by the options in ARGS (see main). */
+    Benchmarks(String[] args) {
+        for (int i = 0; i < args.length; i += 1) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                _filter = Pattern.compile(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw error("missing value for %s", arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+            case "--max":
+                _maxSize = parseSize(value);
+                break;
+            case "--warmup":
+                _warmupNanos = parseSize(value) * 1000000L;
+                break;
+            case "--time":
+                _iterationNanos = parseSize(value) * 1000000L;
+                break;
+            case "--iterations":
+                _iterations = (int) parseSize(value);
+                if (_iterations < 2) {
+                    throw error("at least two iterations are needed");
+                }
+                break;
+            default:
+                throw error("unknown option: %s", arg);
+            }
+        }
+    }
+
+    /** Run all selected benchmarks, printing a report on the standard
+     *  output. */
+    void run() throws IOException {
+        Path dir = Files.createTempDirectory("enigma-bench");
+        try {
+            System.out.printf("%-24s %8s %6s %5s %14s %12s %-6s %12s%n",
+                              "Benchmark", "alphabet", "size", "Cnt",
+                              "Score", "Error", "Units", "MB/s");
+            for (String alpha : ALPHABETS) {
+                runAll(dir, alpha);
+            }
+            System.out.printf("(sink %d)%n", _sink);
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /** Run the benchmarks for the alphabet ALPHA, keeping scratch files
+     *  in DIR. */
+    private void runAll(Path dir, String alpha) throws IOException {
+        Random random = new Random(alpha.length());
+        Path config = dir.resolve("bench" + alpha.length() + ".conf");
+        Files.write(config, configuration(alpha, random).getBytes(CHARSET));
+        Machine machine = Config.read(config.toString()).newMachine();
+        Alphabet alphabet = machine.alphabet();
+        String[] names = rotorNames();
+        String posns = String.valueOf(alphabet.toChar(0)).repeat(NUM_ROTORS
+                                                                 - 1);
+        String setting = "* " + String.join(" ", names) + " " + posns;
+        String params = Integer.toString(alphabet.size());
+        machine.insertRotors(names);
+        machine.setRotors(posns);
+        machine.setPlugboard(new Permutation("", alphabet));
+
+        Rotor rotor = machine.getRotors()[NUM_ROTORS - 1];
+        Permutation perm = rotor.permutation();
+        measure("permute", params, "-", reps -> {
+            int x = 0;
+            for (long r = 0; r < reps; r += 1) {
+                x = perm.permute(x);
+            }
+            return x;
+        }, 0);
+        measure("invert", params, "-", reps -> {
+            int x = 0;
+            for (long r = 0; r < reps; r += 1) {
+                x = perm.invert(x);
+            }
+            return x;
+        }, 0);
+        measure("convertForward", params, "-", reps -> {
+            int x = 0;
+            for (long r = 0; r < reps; r += 1) {
+                x = rotor.convertForward(x);
+            }
+            return x;
+        }, 0);
+        measure("advanceAll", params, "-", reps -> {
+            for (long r = 0; r < reps; r += 1) {
+                machine.advanceAll();
+            }
+            return rotor.setting();
+        }, 0);
+        String message = randomText(alphabet, random, MESSAGE_LENGTH);
+        measure("convertString", params, "1k", reps -> {
+            long sum = 0;
+            for (long r = 0; r < reps; r += 1) {
+                sum += machine.convert(message).charAt(0);
+            }
+            return sum;
+        }, MESSAGE_LENGTH);
+
+        Machine[] many = new Machine[MANY_MESSAGES];
+        String[] messages = new String[MANY_MESSAGES];
+        for (int i = 0; i < MANY_MESSAGES; i += 1) {
+            many[i] = machine.copy();
+            many[i].jump(random.nextInt(1 << 20));
+            messages[i] = randomText(alphabet, random, MANY_LENGTH);
+        }
+        String manySize = MANY_MESSAGES + "x" + MANY_LENGTH;
+        measure("manyMachine", params, manySize, reps -> {
+            long sum = 0;
+            for (long r = 0; r < reps; r += 1) {
+                for (int i = 0; i < MANY_MESSAGES; i += 1) {
+                    sum += many[i].convert(messages[i]).charAt(0);
+                }
+            }
+            return sum;
+        }, MANY_MESSAGES * MANY_LENGTH);
+        MultiConverter.Kernel vector = MultiConverter.vectorKernel();
+        MultiConverter.Kernel[] kernels = {
+            new MultiConverter.ScalarKernel(), vector
+        };
+        for (MultiConverter.Kernel kernel : kernels) {
+            if (kernel == null) {
+                continue;
+            }
+            MultiConverter multi = new MultiConverter(kernel);
+            measure(kernel == vector ? "manyVector" : "manyScalar", params,
+                    manySize, reps -> {
+                    long sum = 0;
+                    for (long r = 0; r < reps; r += 1) {
+                        sum += multi.convert(many, messages)[0].charAt(0);
+                    }
+                    return sum;
+                }, MANY_MESSAGES * MANY_LENGTH);
+        }
+
+        Path output = dir.resolve("bench.out");
+        for (long chars : SIZES) {
+            if (chars > _maxSize) {
+                break;
+            }
+            if (!selected("process")) {
+                continue;
+            }
+            Path input = dir.resolve("bench.in");
+            writeInput(input, setting, alphabet, random, chars);
+            long bytes = Files.size(input);
+            String[] files = {
+                config.toString(), input.toString(), output.toString()
+            };
+            measure("process", params, sizeName(chars), reps -> {
+                for (long r = 0; r < reps; r += 1) {
+                    new Main(files).process();
+                }
+                return Files.size(output);
+            }, bytes);
+            Files.delete(input);
+        }
+    }
+
+    /** One timed operation, repeated a given number of times. */
+    interface Op {
+        /** Perform the operation REPS times, returning a value that
+         *  depends on all of the work done. */
+        long run(long reps) throws IOException;
+    }
+
+    /** Return true iff the benchmark NAME is selected by the filter. */
+    private boolean selected(String name) {
+        return _filter == null || _filter.matcher(name).find();
+    }
+
+    /** If NAME is selected, time OP and print a report line for NAME,
+     *  with alphabet parameter ALPHA and size parameter SIZE.  If BYTES
+     *  is positive, each operation processes BYTES bytes and throughput
+     *  is also reported. */
+    private void measure(String name, String alpha, String size, Op op,
+                         long bytes) throws IOException {
+        if (!selected(name)) {
+            return;
+        }
+        long reps = 1;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            long t0 = System.nanoTime();
+            _sink += op.run(reps);
+            long t = System.nanoTime() - t0;
+            elapsed = System.nanoTime() - start;
+            if (t < _iterationNanos / 4) {
+                reps *= 2;
+            } else {
+                reps = Math.max(1, (long) (reps * ((double) _iterationNanos
+                                                    / t)));
+            }
+        } while (elapsed < _warmupNanos);
+
+        int count = _iterations;
+        double[] scores = new double[count];
+        for (int i = 0; i < count; i += 1) {
+            long t0 = System.nanoTime();
+            _sink += op.run(reps);
+            scores[i] = (double) (System.nanoTime() - t0) / reps;
+        }
+        double mean = 0;
+        for (double s : scores) {
+            mean += s;
+        }
+        mean /= count;
+        double var = 0;
+        for (double s : scores) {
+            var += (s - mean) * (s - mean);
+        }
+        double error = t99(count - 1) * Math.sqrt(var / (count - 1) / count);
+        String rate = bytes > 0 ? String.format("%12.1f", bytes * 1e3 / mean)
+            : String.format("%12s", "");
+        System.out.printf("%-24s %8s %6s %5d %14.3f %12.3f %-6s %s%n", name,
+                          alpha, size, count, mean, error, "ns/op", rate);
+    }
+
+    /** Return the two-sided 99% quantile of Student's t distribution with
+     *  DF degrees of freedom: from a table up to T99.length, and beyond
+     *  that from the Cornish-Fisher expansion about the normal quantile,
+     *  which is then accurate to about 1e-4. */
+    static double t99(int df) {
+        if (df <= T99.length) {
+            return T99[df - 1];
+        }
+        double z = Z99, z2 = z * z, v = df;
+        double[] terms = {
+            z,
+            (z2 + 1) * z / 4,
+            ((5 * z2 + 16) * z2 + 3) * z / 96,
+            (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384,
+            ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z
+                / 92160,
+        };
+        double result = 0;
+        for (int k = terms.length - 1; k >= 0; k -= 1) {
+            result = result / v + terms[k];
+        }
+        return result;
+    }
+
+    /** Return the text of a configuration file for a machine over the
+     *  alphabet ALPHA with randomly wired rotors, using RANDOM. */
+    static String configuration(String alpha, Random random) {
+        StringBuilder result = new StringBuilder();
+        result.append(alpha).append('\n')
+            .append(NUM_ROTORS).append(' ').append(NUM_PAWLS).append('\n');
+        List<Character> chars = shuffled(alpha, random);
+        result.append("B R ");
+        for (int i = 0; i + 1 < chars.size(); i += 2) {
+            result.append('(').append(chars.get(i)).append(chars.get(i + 1))
+                .append(") ");
+        }
+        result.append('\n');
+        for (int k = 0; k < NUM_ROTORS - 1; k += 1) {
+            String notch = k < NUM_ROTORS - 1 - NUM_PAWLS ? "N"
+                : "M" + alpha.charAt(random.nextInt(alpha.length()));
+            result.append("R").append(k).append(' ').append(notch)
+                .append(" (");
+            for (char c : shuffled(alpha, random)) {
+                result.append(c);
+            }
+            result.append(")\n");
+        }
+        return result.toString();
+    }
+
+    /** Return the names of the rotors written by configuration, in slot
+     *  order. */
+    static String[] rotorNames() {
+        String[] result = new String[NUM_ROTORS];
+        result[0] = "B";
+        for (int k = 0; k < NUM_ROTORS - 1; k += 1) {
+            result[k + 1] = "R" + k;
+        }
+        return result;
+    }
+
+    /** Write to FILE the setting line SETTING followed by CHARS random
+     *  characters of ALPHABET (chosen with RANDOM), in lines of
+     *  LINE_LENGTH. */
+    static void writeInput(Path file, String setting, Alphabet alphabet,
+                           Random random, long chars) throws IOException {
+        String line = randomText(alphabet, random, LINE_LENGTH * 64);
+        try (Writer out = Files.newBufferedWriter(file, CHARSET)) {
+            out.write(setting);
+            out.write('\n');
+            for (long n = 0; n < chars; n += LINE_LENGTH) {
+                int start = random.nextInt(line.length() - LINE_LENGTH);
+                int len = (int) Math.min(LINE_LENGTH, chars - n);
+                out.write(line, start, len);
+                out.write('\n');
+            }
+        }
+    }
+
+    /** Return LENGTH characters from ALPHABET chosen using RANDOM. */
+    static String randomText(Alphabet alphabet, Random random, int length) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i += 1) {
+            result[i] = alphabet.toChar(random.nextInt(alphabet.size()));
+        }
+        return new String(result);
+    }
+
+    /** Return the characters of S in an order chosen using RANDOM. */
+    private static List<Character> shuffled(String s, Random random) {
+        List<Character> result = new ArrayList<>();
+        for (char c : s.toCharArray()) {
+            result.add(c);
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /** Return all printable, non-blank ASCII characters that may appear
+     *  in a configuration alphabet. */
+    private static String printable() {
+        StringBuilder result = new StringBuilder();
+        for (char c = '!'; c <= '~'; c += 1) {
+            if (c != '(' && c != ')' && c != '*') {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the number of bytes denoted by S, a decimal number
+     *  optionally followed by k, m, or g. */
+    static long parseSize(String s) {
+        long scale = 1;
+        String digits = s.toLowerCase();
+        if (digits.endsWith("k")) {
+            scale = 1L << 10;
+        } else if (digits.endsWith("m")) {
+            scale = 1L << 20;
+        } else if (digits.endsWith("g")) {
+            scale = 1L << 30;
+        }
+        if (scale != 1) {
+            digits = digits.substring(0, digits.length() - 1);
+        }
+        try {
+            return Long.parseLong(digits) * scale;
+        } catch (NumberFormatException excp) {
+            throw error("bad number: %s", s);
+        }
+    }
+
+    /** Return a short name for the size N, such as 64k or 1g. */
+    static String sizeName(long n) {
+        if (n >= 1L << 30) {
+            return (n >> 30) + "g";
+        } else if (n >= 1L << 20) {
+            return (n >> 20) + "m";
+        } else if (n >= 1L << 10) {
+            return (n >> 10) + "k";
+        }
+        return Long.toString(n);
+    }
+
+    /** Character set of generated files. */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** Two-sided 99% Student's t quantiles for 1 to 30 degrees of
+     *  freedom. */
+    private static final double[] T99 = {
+        63.657, 9.925, 5.841, 4.604, 4.032, 3.707, 3.499, 3.355, 3.250,
+        3.169, 3.106, 3.055, 3.012, 2.977, 2.947, 2.921, 2.898, 2.878,
+        2.861, 2.845, 2.831, 2.819, 2.807, 2.797, 2.787, 2.779, 2.771,
+        2.763, 2.756, 2.750,
+    };
+
+    /** Two-sided 99% quantile of the standard normal distribution. */
+    private static final double Z99 = 2.5758293035489;
+
+    /** Largest end-to-end input size, in characters. */
+    private long _maxSize = 1L << 24;
+
+    /** Minimum warmup time per benchmark, in nanoseconds. */
+    private long _warmupNanos = 1000000000L;
+
+    /** Target time of one measurement iteration, in nanoseconds. */
+    private long _iterationNanos = 500000000L;
+
+    /** Number of measurement iterations. */
+    private int _iterations = 5;
+
+    /** Selects the benchmarks to run, or null for all. */
+    private Pattern _filter;
+
+    /** Accumulates benchmark results so they are not optimized away. */
+    private long _sink;
+
+}
@@ -0,0 +1,321 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static enigma.EnigmaException.*;
+
+/** A crib-based key-recovery engine in the style of the Turing-Welchman
+ *  bombe.  Given a ciphertext and a guessed plaintext fragment (the crib)
+ *  at a known offset, it builds the menu graph linking crib letters to
+ *  ciphertext letters, and then, for every rotor order and rotor
+ *  position, tests each possible plugboard partner of the most connected
+ *  menu letter.  A hypothesis survives only if propagating it through the
+ *  menu never requires a letter to be plugged to two different letters.
+ *  Rotor orders are searched in parallel, each worker thread reusing one
+ *  copy of the machine.
+ *  @author Alice Wang
+ */
+class Bombe {
+
+    /** Usage: java enigma.Bombe CONFIG CIPHERTEXT CRIB [OFFSET].
+     *  Prints a setting line for each surviving hypothesis, followed by
+     *  the number of positions tested per second. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 3 || args.length > 4) {
+                throw error("Usage: java enigma.Bombe CONFIG CIPHERTEXT "
+                            + "CRIB [OFFSET]");
+            }
+            int offset;
+            try {
+                offset = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+            } catch (NumberFormatException excp) {
+                throw error("offset must be an integer");
+            }
+            Machine machine = Config.read(args[0]).newMachine();
+            Bombe bombe = new Bombe(machine, args[1], args[2], offset);
+            for (Candidate c : bombe.run(ForkJoinPool.commonPool())) {
+                System.out.println(c);
+            }
+            System.err.printf("%d positions tested, %.0f positions/sec%n",
+                              bombe.positionsTested(),
+                              bombe.positionsPerSecond());
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A bombe searching the rotors available to MACHINE for settings
+     *  under which CRIB, starting at position OFFSET, encrypts to the
+     *  corresponding characters of CIPHERTEXT.  Blanks in CIPHERTEXT
+     *  and CRIB are ignored.  MACHINE is not modified. */
+    Bombe(Machine machine, String ciphertext, String crib, int offset) {
+        _machine = machine;
+        Machine start = machine.copy();
+        _machines = ThreadLocal.withInitial(start::copy);
+        _alphabet = machine.alphabet();
+        int[] cipher = indices(ciphertext);
+        int[] plain = indices(crib);
+        if (plain.length == 0) {
+            throw error("crib must not be empty");
+        }
+        if (offset < 0 || offset + plain.length > cipher.length) {
+            throw error("crib does not fit in ciphertext at offset %d",
+                        offset);
+        }
+        _offset = offset;
+        _length = plain.length;
+
+        int size = _alphabet.size();
+        int[] degree = new int[size];
+        for (int j = 0; j < _length; j += 1) {
+            int a = plain[j], b = cipher[offset + j];
+            if (a == b) {
+                throw error("crib letter %c cannot encrypt to itself",
+                            _alphabet.toChar(a));
+            }
+            degree[a] += 1;
+            degree[b] += 1;
+        }
+        _menu = new int[size][];
+        for (int x = 0; x < size; x += 1) {
+            _menu[x] = new int[2 * degree[x]];
+        }
+        int[] fill = new int[size];
+        for (int j = 0; j < _length; j += 1) {
+            int a = plain[j], b = cipher[offset + j];
+            _menu[a][fill[a]++] = b;
+            _menu[a][fill[a]++] = j;
+            _menu[b][fill[b]++] = a;
+            _menu[b][fill[b]++] = j;
+        }
+        int best = 0;
+        for (int x = 1; x < size; x += 1) {
+            if (degree[x] > degree[best]) {
+                best = x;
+            }
+        }
+        _testLetter = best;
+        _tested = new LongAdder();
+    }
+
+    /** Search every rotor order, one task per order on POOL, and return
+     *  the surviving candidates. */
+    List<Candidate> run(ForkJoinPool pool) {
+        List<Callable<List<Candidate>>> tasks = new ArrayList<>();
+        for (String[] order : _machine.rotorOrders()) {
+            tasks.add(() -> search(order));
+        }
+        _tested.reset();
+        _startTime = System.nanoTime();
+        List<Candidate> result = new ArrayList<>();
+        try {
+            for (Future<List<Candidate>> f : pool.invokeAll(tasks)) {
+                result.addAll(f.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof EnigmaException) {
+                throw (EnigmaException) cause;
+            }
+            throw error("search failed: %s", excp);
+        } finally {
+            _endTime = System.nanoTime();
+        }
+        return result;
+    }
+
+    /** Return the number of rotor positions tested by the last run. */
+    long positionsTested() {
+        return _tested.sum();
+    }
+
+    /** Return the rate at which the last (or current) run has tested rotor
+     *  positions, in positions per second. */
+    double positionsPerSecond() {
+        long end = _endTime >= _startTime ? _endTime : System.nanoTime();
+        double secs = (end - _startTime) * 1e-9;
+        return secs <= 0 ? 0 : positionsTested() / secs;
+    }
+
+    /** Test every rotor position for the rotor order ORDER, returning the
+     *  surviving candidates.  Runs on this thread's machine. */
+    private List<Candidate> search(String[] order) {
+        Machine m = _machines.get();
+        m.insertRotors(order);
+        int size = _alphabet.size();
+        int[] posns = new int[m.numRotors() - 1];
+        int[][] scrambler = new int[_length][size];
+        int[] steck = new int[size];
+        int[] queue = new int[size];
+        List<Candidate> result = new ArrayList<>();
+        long tested = 0;
+        do {
+            m.setRotors(posns);
+            m.jump(_offset);
+            for (int p = 0; p < _length; p += 1) {
+                m.advanceAll();
+                int[] row = scrambler[p];
+                for (int x = 0; x < size; x += 1) {
+                    row[x] = m.scramble(x);
+                }
+            }
+            for (int partner = 0; partner < size; partner += 1) {
+                if (consistent(scrambler, partner, steck, queue)) {
+                    result.add(new Candidate(order, posns, steck));
+                }
+            }
+            tested += 1;
+            if ((tested & 0xfff) == 0) {
+                _tested.add(0x1000);
+            }
+        } while (Machine.nextPositions(posns, size));
+        _tested.add(tested & 0xfff);
+        return result;
+    }
+
+    /** Return true iff plugging the test letter to PARTNER is consistent
+     *  with the menu, given that SCRAMBLER[P] is the unplugged scrambler
+     *  permutation at crib position P.  On return, STECK holds the
+     *  plugboard pairs deduced (-1 for letters not deduced).  QUEUE is
+     *  scratch space. */
+    private boolean consistent(int[][] scrambler, int partner, int[] steck,
+                               int[] queue) {
+        Arrays.fill(steck, -1);
+        int head = 0, tail = 0;
+        steck[_testLetter] = partner;
+        steck[partner] = _testLetter;
+        queue[tail++] = _testLetter;
+        if (partner != _testLetter) {
+            queue[tail++] = partner;
+        }
+        while (head < tail) {
+            int a = queue[head++];
+            int[] edges = _menu[a];
+            for (int e = 0; e < edges.length; e += 2) {
+                int b = edges[e];
+                int y = scrambler[edges[e + 1]][steck[a]];
+                if (steck[b] == y) {
+                    continue;
+                }
+                if (steck[b] != -1 || steck[y] != -1) {
+                    return false;
+                }
+                steck[b] = y;
+                steck[y] = b;
+                queue[tail++] = b;
+                if (y != b) {
+                    queue[tail++] = y;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Return the alphabet indices of the characters in S, ignoring
+     *  blanks. */
+    private int[] indices(String s) {
+        s = s.replace(" ", "");
+        int[] result = new int[s.length()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = _alphabet.toInt(s.charAt(i));
+            if (result[i] < 0) {
+                throw error("character %c not in alphabet", s.charAt(i));
+            }
+        }
+        return result;
+    }
+
+    /** A rotor order, starting position, and partial plugboard that
+     *  survived the menu test. */
+    class Candidate {
+
+        /** A candidate using rotors ORDER at positions POSNS, with plugboard
+         *  partners STECK (-1 where unknown). */
+        Candidate(String[] order, int[] posns, int[] steck) {
+            _order = order.clone();
+            StringBuilder setting = new StringBuilder();
+            for (int p : posns) {
+                setting.append(_alphabet.toChar(p));
+            }
+            _setting = setting.toString();
+            StringBuilder plugs = new StringBuilder();
+            for (int x = 0; x < steck.length; x += 1) {
+                if (steck[x] > x) {
+                    plugs.append(plugs.length() == 0 ? "" : " ")
+                        .append('(').append(_alphabet.toChar(x))
+                        .append(_alphabet.toChar(steck[x])).append(')');
+                }
+            }
+            _plugboard = plugs.toString();
+        }
+
+        /** Return the rotor names, reflector first. */
+        String[] rotors() {
+            return _order.clone();
+        }
+
+        /** Return the starting rotor positions, as for setRotors. */
+        String setting() {
+            return _setting;
+        }
+
+        /** Return the plugboard pairs deduced, in cycle notation. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Returns this candidate as a setting line for Main. */
+        @Override
+        public String toString() {
+            return ("* " + String.join(" ", _order) + " " + _setting + " "
+                    + _plugboard).trim();
+        }
+
+        /** Rotor names, reflector first. */
+        private final String[] _order;
+        /** Starting rotor positions. */
+        private final String _setting;
+        /** Deduced plugboard pairs. */
+        private final String _plugboard;
+    }
+
+    /** The machine whose rotors are searched. */
+    private final Machine _machine;
+
+    /** The machine each worker thread searches with, a copy of
+     *  _machine made on the thread's first task. */
+    private final ThreadLocal<Machine> _machines;
+
+    /** Alphabet of _machine. */
+    private final Alphabet _alphabet;
+
+    /** Position in the ciphertext of the first crib character. */
+    private final int _offset;
+
+    /** Number of crib characters. */
+    private final int _length;
+
+    /** The menu: _menu[X] holds pairs (Y, P) for each crib position P at
+     *  which X and Y are the plaintext and ciphertext letters. */
+    private final int[][] _menu;
+
+    /** The menu letter whose plugboard partner is hypothesized. */
+    private final int _testLetter;
+
+    /** Count of rotor positions tested. */
+    private final LongAdder _tested;
+
+    /** System.nanoTime() at the start and end of the last run. */
+    private long _startTime, _endTime;
+
+}
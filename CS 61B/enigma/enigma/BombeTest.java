@@ -0,0 +1,42 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Bombe class.
+ *  @author Alice Wang
+ */
+public class BombeTest {
+
+    @Test
+    public void checkFindsSetting() {
+        Machine m = new Machine(alphabet1, 4, 3, ALL_ROTORS);
+        m.insertRotors(new String[]{"B", "III", "IV", "I"});
+        m.setRotors("QWE");
+        m.setPlugboard(new Permutation("(AB) (CD) (XY) (MN)", alphabet1));
+        String plain = "THEWEATHERTODAYISCLEARWITHNORAIN";
+        String cipher = m.convert(plain);
+
+        Bombe bombe = new Bombe(m, cipher, "THEWEATHERTODAY", 0);
+        boolean found = false;
+        for (Bombe.Candidate c : bombe.run(ForkJoinPool.commonPool())) {
+            if (String.join(" ", c.rotors()).equals("B III IV I")
+                && c.setting().equals("QWE")) {
+                found = true;
+                assertTrue(c.plugboard().contains("(AB)"));
+            }
+        }
+        assertTrue(found);
+        assertEquals(6 * 26 * 26 * 26, bombe.positionsTested());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkCribCannotEncryptToItself() {
+        Machine m = new Machine(alphabet1, 4, 3, ALL_ROTORS);
+        new Bombe(m, "ABCDE", "XBZ", 0);
+    }
+}
@@ -0,0 +1,204 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static enigma.EnigmaException.*;
+
+/** A parsed machine configuration: an alphabet, the numbers of slots and
+ *  pawls, and the available rotors, with all their permutation and notch
+ *  tables compiled.  A Config is never modified, so it may be shared
+ *  among threads; each call to newMachine returns an independent machine
+ *  that shares the compiled tables and copies only the rotors it
+ *  inserts.
+ *  @author Alice Wang
+ */
+final class Config {
+
+    /** Return the configuration in the file named NAME. */
+    static Config read(String name) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(Paths.get(name)),
+                              Charset.defaultCharset());
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+        return new Config(text);
+    }
+
+    /** The configuration described by TEXT, which has the format of a
+     *  configuration file. */
+    Config(String text) {
+        long start = Stats.enabled() ? System.nanoTime() : 0;
+        int eol = text.indexOf('\n');
+        if (eol < 0) {
+            throw error("configuration file truncated");
+        }
+        String alpha = text.substring(0, eol);
+        if (alpha.endsWith("\r")) {
+            alpha = alpha.substring(0, alpha.length() - 1);
+        }
+        if (alpha.contains("(") || alpha.contains(")")
+                || alpha.contains("*") || alpha.contains(" ")) {
+            throw error("wrong alphabet config");
+        }
+        _alphabet = new Alphabet(alpha);
+        Tokens tokens = new Tokens(text, eol + 1);
+
+        _numRotors = tokens.nextInt("int needed for numrotors in config");
+        _numPawls = tokens.nextInt("int needed for num pawls in config");
+        if (_numRotors - _numPawls < 1) {
+            throw error("wrong number of pawls and rotors");
+        }
+        List<Rotor> rotors = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        String token = tokens.next();
+        while (token != null) {
+            String name = token;
+            if (name.contains("(") || name.contains(")")) {
+                throw error("wrong rotor name or config input");
+            }
+            if (!names.add(name)) {
+                throw error("rotor %s defined twice", name);
+            }
+            String notches = tokens.next();
+            if (notches == null) {
+                throw error("bad rotor description");
+            }
+            if (notches.contains("(") || notches.contains(")")) {
+                throw error("wrong notches input");
+            }
+            StringBuilder cycles = new StringBuilder();
+            token = tokens.next();
+            while (token != null
+                   && (token.contains("(") || token.contains(")"))) {
+                cycles.append(token);
+                if (token.contains(")")) {
+                    cycles.append(' ');
+                }
+                token = tokens.next();
+            }
+            rotors.add(rotor(name, notches, cycles.toString()));
+        }
+        _rotors = Collections.unmodifiableList(rotors);
+        if (Stats.enabled()) {
+            Stats.parsed(System.nanoTime() - start);
+        }
+    }
+
+    /** Return a new machine with my alphabet, slots, pawls, and rotors,
+     *  independent of all other machines. */
+    Machine newMachine() {
+        return new Machine(this);
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return my number of rotor slots. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return my number of pawls. */
+    int numPawls() {
+        return _numPawls;
+    }
+
+    /** Return my rotors, in the order of the configuration.  These are
+     *  prototypes that must not be modified; machines use copies. */
+    List<Rotor> rotors() {
+        return _rotors;
+    }
+
+    /** Return the rotor named NAME with type and notches NOTCHES and
+     *  permutation CYCLES. */
+    private Rotor rotor(String name, String notches, String cycles) {
+        Permutation perm = new Permutation(cycles, _alphabet);
+        switch (notches.charAt(0)) {
+        case 'M':
+            String realnotches = notches.substring(1);
+            for (int cp : realnotches.codePoints().toArray()) {
+                if (!_alphabet.contains(cp)) {
+                    throw error("notches not in alphabet");
+                }
+            }
+            return new MovingRotor(name, perm, realnotches);
+        case 'N':
+            return new FixedRotor(name, perm);
+        case 'R':
+            return new Reflector(name, perm);
+        default:
+            throw error("Rotor Types Invalid");
+        }
+    }
+
+    /** The whitespace-delimited tokens of a text. */
+    private static class Tokens {
+
+        /** The tokens of TEXT starting at position POS. */
+        Tokens(String text, int pos) {
+            _text = text;
+            _pos = pos;
+        }
+
+        /** Return the next token, or null at the end. */
+        String next() {
+            int n = _text.length();
+            while (_pos < n && Character.isWhitespace(_text.charAt(_pos))) {
+                _pos += 1;
+            }
+            if (_pos == n) {
+                return null;
+            }
+            int start = _pos;
+            while (_pos < n && !Character.isWhitespace(_text.charAt(_pos))) {
+                _pos += 1;
+            }
+            return _text.substring(start, _pos);
+        }
+
+        /** Return the next token as an integer, or throw an exception
+         *  with message MSG if it is not one. */
+        int nextInt(String msg) {
+            String token = next();
+            if (token == null) {
+                throw error("configuration file truncated");
+            }
+            try {
+                return Integer.parseInt(token);
+            } catch (NumberFormatException excp) {
+                throw error(msg);
+            }
+        }
+
+        /** Text being split. */
+        private final String _text;
+        /** Position of the next unread character of _text. */
+        private int _pos;
+    }
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** Number of pawls. */
+    private final int _numPawls;
+
+    /** Prototypes of the available rotors. */
+    private final List<Rotor> _rotors;
+
+}
@@ -0,0 +1,73 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the Config class.
+ *  @author Alice Wang
+ */
+public class ConfigTest {
+
+    /** A small configuration, with cycles split across lines and run
+     *  together. */
+    private static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n"
+        + " 5 3\n"
+        + " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + " IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + " V MZ      (AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)\n"
+        + " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "           (RX) (SZ) (TV)\n";
+
+    @Test
+    public void checkParse() {
+        Config config = new Config(CONFIG);
+        assertEquals(26, config.alphabet().size());
+        assertEquals(5, config.numRotors());
+        assertEquals(3, config.numPawls());
+        assertEquals(6, config.rotors().size());
+        Rotor b = config.rotors().get(5);
+        assertTrue(b.reflecting());
+        assertEquals(config.alphabet().toInt('V'),
+                     b.convertForward(config.alphabet().toInt('T')));
+        Rotor v = config.rotors().get(3);
+        assertEquals(config.alphabet().toInt('C'),
+                     v.convertForward(config.alphabet().toInt('Y')));
+        assertEquals(config.alphabet().toInt('A'),
+                     v.convertForward(config.alphabet().toInt('Q')));
+    }
+
+    @Test
+    public void checkIndependentMachines() {
+        Config config = new Config(CONFIG);
+        Machine m1 = config.newMachine();
+        Machine m2 = config.newMachine();
+        String[] rotors = {"B", "Beta", "III", "IV", "I"};
+        m1.insertRotors(rotors);
+        m2.insertRotors(rotors);
+        m1.setRotors("AXLE");
+        m2.setRotors("AXLE");
+        Permutation plug = new Permutation("(HQ) (EX)", config.alphabet());
+        m1.setPlugboard(plug);
+        m2.setPlugboard(plug);
+        String c1 = m1.convert("FROMHISSHOULDERHIAWATHA");
+        assertEquals(c1, m2.convert("FROMHISSHOULDERHIAWATHA"));
+        for (Rotor r : config.rotors()) {
+            assertEquals(0, r.setting());
+        }
+        Machine m3 = m1.copy();
+        assertEquals(m1.convert("ABC"), m3.convert("ABC"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkDuplicateRotor() {
+        new Config(CONFIG + " I MQ (AB)\n");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkBadPawls() {
+        new Config("ABC\n 2 X\n");
+    }
+}
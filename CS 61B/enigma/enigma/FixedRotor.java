@@ -18,4 +18,11 @@ class FixedRotor extends Rotor {
     void advance() {
     }
 
+    @Override
+    Rotor copy() {
+        Rotor result = new FixedRotor(name(), permutation());
+        result.set(setting());
+        return result;
+    }
+
 }
@@ -0,0 +1,167 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static enigma.EnigmaException.*;
+
+/** The complete substitution performed by a machine at each of a run of
+ *  consecutive message positions, starting from one setting.  Once
+ *  compiled, converting the character at a given position is a single
+ *  table lookup.  If the machine's rotor positions return to their
+ *  starting values within the window compiled, the table covers a full
+ *  period and applies at every position; otherwise it covers only the
+ *  first length() positions.  A Keystream is never modified after it
+ *  is built, so it may be shared among threads.
+ *  @author Alice Wang
+ */
+class Keystream {
+
+    /** Default largest number of positions compiled.  Enough for a full
+     *  period of three moving rotors over 26 letters. */
+    static final int DEFAULT_WINDOW = 1 << 15;
+
+    /** Largest number of table entries in one keystream; larger
+     *  alphabets get proportionally shorter windows. */
+    static final int MAX_ENTRIES = 1 << 24;
+
+    /** The keystream of MACHINE from its current state, for at most
+     *  WINDOW positions (fewer if that would exceed MAX_ENTRIES).
+     *  MACHINE is not modified. */
+    Keystream(Machine machine, int window) {
+        if (window <= 0) {
+            throw error("keystream window must be positive");
+        }
+        Alphabet alpha = machine.alphabet();
+        int size = alpha.size();
+        if (size > Character.MAX_VALUE + 1) {
+            throw error("alphabet too large for keystream mode");
+        }
+        window = Math.max(1, Math.min(window, MAX_ENTRIES / size));
+        Machine m = machine.copy();
+        Permutation plug = m.plugboard();
+        long start = m.positionKey();
+        char[] table = new char[window * size];
+        int len = 0;
+        boolean periodic = false;
+        while (len < window) {
+            m.advanceAll();
+            int row = len * size;
+            for (int c = 0; c < size; c += 1) {
+                table[row + c] =
+                    (char) plug.permute(m.scramble(plug.permute(c)));
+            }
+            len += 1;
+            if (start >= 0 && m.positionKey() == start) {
+                periodic = true;
+                break;
+            }
+        }
+        _size = size;
+        _length = len;
+        _periodic = periodic;
+        _table = len == window ? table
+            : Arrays.copyOf(table, len * size);
+    }
+
+    /** Return the number of positions compiled. */
+    int length() {
+        return _length;
+    }
+
+    /** Return true iff the keystream repeats with period length(), so
+     *  that convert applies at every position. */
+    boolean periodic() {
+        return _periodic;
+    }
+
+    /** Return true iff convert applies at position POSITION. */
+    boolean covers(long position) {
+        return _periodic || position < _length;
+    }
+
+    /** Return the conversion of C (an alphabet index) at message position
+     *  POSITION (0 for the first character after the setting), which
+     *  must be covered. */
+    int convert(long position, int c) {
+        long p = position < _length ? position : position % _length;
+        return _table[(int) p * _size + c];
+    }
+
+    /** A cache of keystreams keyed by setting line, holding at most a
+     *  fixed number of entries and discarding the least recently used.
+     *  It may be shared among threads. */
+    static class Cache {
+
+        /** Default number of keystreams held. */
+        static final int DEFAULT_CAPACITY = 16;
+
+        /** A cache holding up to CAPACITY keystreams of WINDOW
+         *  positions. */
+        Cache(int capacity, int window) {
+            if (capacity <= 0) {
+                throw error("keystream cache capacity must be positive");
+            }
+            _window = window;
+            _entries = new LinkedHashMap<String, Keystream>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                    Map.Entry<String, Keystream> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        /** A cache with the default capacity and window. */
+        Cache() {
+            this(DEFAULT_CAPACITY, DEFAULT_WINDOW);
+        }
+
+        /** Return the number of positions to compile for each entry. */
+        int window() {
+            return _window;
+        }
+
+        /** Return the keystream for setting line SETTING, or null if it
+         *  is not cached. */
+        synchronized Keystream get(String setting) {
+            return _entries.get(key(setting));
+        }
+
+        /** Cache KEYSTREAM for setting line SETTING. */
+        synchronized void put(String setting, Keystream keystream) {
+            _entries.put(key(setting), keystream);
+        }
+
+        /** Return the number of keystreams cached. */
+        synchronized int size() {
+            return _entries.size();
+        }
+
+        /** Return SETTING with blanks normalized, so that setting lines
+         *  differing only in spacing share an entry. */
+        private static String key(String setting) {
+            return String.join(" ", setting.trim().split("\\s+"));
+        }
+
+        /** Number of positions compiled per entry. */
+        private final int _window;
+
+        /** Cached keystreams, in access order. */
+        private final LinkedHashMap<String, Keystream> _entries;
+    }
+
+    /** Alphabet size. */
+    private final int _size;
+
+    /** Number of positions compiled. */
+    private final int _length;
+
+    /** True iff the table covers a full period. */
+    private final boolean _periodic;
+
+    /** _table[P * _size + C] is the conversion of C at position P. */
+    private final char[] _table;
+
+}
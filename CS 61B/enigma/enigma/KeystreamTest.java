@@ -0,0 +1,84 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Keystream class.
+ *  @author Alice Wang
+ */
+public class KeystreamTest {
+
+    /** Return a machine over ALL_ROTORS with 5 slots and 3 pawls. */
+    private static Machine machine() {
+        return new Machine(UPPER, 5, 3, ALL_ROTORS);
+    }
+
+    /** Return the output of processing INPUT with a new machine,
+     *  converting by keystreams from KEYSTREAMS (if not null). */
+    private static String process(String input, Keystream.Cache keystreams)
+        throws IOException {
+        StringWriter out = new StringWriter();
+        new MessageStream(machine(), out, keystreams)
+            .process(new StringReader(input));
+        return out.toString();
+    }
+
+    /** Return N letters of text. */
+    private static String text(int n) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < n; i += 1) {
+            result.append((char) ('A' + (i * 7 + i / 26) % 26));
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void checkMatchesMachine() throws IOException {
+        String setting = "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n";
+        String input = setting + text(500) + "\n" + text(40) + "\n"
+            + setting + text(100) + "\n";
+        Keystream.Cache cache = new Keystream.Cache();
+        assertEquals(process(input, null), process(input, cache));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void checkPastWindow() throws IOException {
+        String input = "* B Beta III IV I AXLE (HQ) (EX)\n" + text(3000)
+            + "\n";
+        Keystream.Cache cache = new Keystream.Cache(4, 100);
+        assertEquals(process(input, null), process(input, cache));
+        assertEquals(process(input, null), process(input, cache));
+    }
+
+    @Test
+    public void checkPeriod() {
+        Machine m = machine();
+        m.insertRotors(new String[]{"B", "Beta", "III", "IV", "I"});
+        m.setRotors("AAAA");
+        m.setPlugboard(new Permutation("", UPPER));
+        Keystream ks = new Keystream(m, Keystream.DEFAULT_WINDOW);
+        assertTrue(ks.periodic());
+        long n = 3L * ks.length() + 17;
+        m.jump(n);
+        assertEquals(m.convert(5), ks.convert(n, 5));
+    }
+
+    @Test
+    public void checkEviction() throws IOException {
+        Keystream.Cache cache = new Keystream.Cache(2, 50);
+        String a = "* B Beta III IV I AAAA\n", b = "* B Beta III IV I BBBB\n",
+            c = "* B Beta III IV I CCCC\n";
+        process(a + "X\n" + b + "X\n" + a + "X\n" + c + "X\n", cache);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(a.trim()));
+        assertNull(cache.get(b.trim()));
+        assertNotNull(cache.get("*  B Beta III  IV I CCCC"));
+    }
+}
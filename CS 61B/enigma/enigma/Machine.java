@@ -6,6 +6,9 @@ import java.util.Collection;
 
 import static enigma.EnigmaException.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 
 /** Class that represents a complete enigma machine.
  *  @author Alice Wang
@@ -22,7 +25,60 @@ class Machine {
         _pawls = pawls;
         _allRotors = allRotors;
         _rotors = new Rotor[numRotors];
+        _advance = new boolean[numRotors];
+        _stack = new int[alpha.size()];
+        _stackStamp = new int[alpha.size()];
+        _stackGen = 1;
+    }
+
+    /** A new Enigma machine with the alphabet, slots, pawls, and rotors of
+     *  CONFIG.  CONFIG's rotors are never modified: insertRotors uses
+     *  copies of them. */
+    Machine(Config config) {
+        this(config.alphabet(), config.numRotors(), config.numPawls(),
+             config.rotors());
+        _prototypes = true;
+    }
 
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return a new machine in the same state as me, whose rotors are
+     *  copies of mine, so that the two may be used independently (for
+     *  instance, in different threads). */
+    Machine copy() {
+        if (_prototypes) {
+            Machine result =
+                new Machine(_alphabet, _numRotors, _pawls, _allRotors);
+            result._prototypes = true;
+            for (int i = 0; i < _numRotors; i++) {
+                if (_rotors[i] != null) {
+                    result._rotors[i] = _rotors[i].copy();
+                }
+            }
+            result._plugboard = _plugboard;
+            return result;
+        }
+        ArrayList<Rotor> allRotors = new ArrayList<>(_allRotors.size());
+        Machine result = new Machine(_alphabet, _numRotors, _pawls, allRotors);
+        for (Rotor r : _allRotors) {
+            Rotor c = r.copy();
+            allRotors.add(c);
+            for (int i = 0; i < _numRotors; i++) {
+                if (_rotors[i] == r) {
+                    result._rotors[i] = c;
+                }
+            }
+        }
+        for (int i = 0; i < _numRotors; i++) {
+            if (result._rotors[i] == null && _rotors[i] != null) {
+                result._rotors[i] = _rotors[i].copy();
+            }
+        }
+        result._plugboard = _plugboard;
+        return result;
     }
 
     /** Return the number of rotor slots I have. */
@@ -46,14 +102,20 @@ class Machine {
             throw new EnigmaException("Mismatched Rotor Length");
         }
         for (int i = 0; i < _rotors.length; i++) {
+            _rotors[i] = null;
             for (int k = 0; k < rotorArray.size(); k++) {
                 String comp = rotorArray.get(k).name();
                 if (rotors[i].equals(comp)) {
-                    _rotors[i] = rotorArray.get(k);
+                    _rotors[i] = _prototypes ? rotorArray.get(k).copy()
+                        : rotorArray.get(k);
                     break;
                 }
             }
+            if (_rotors[i] == null) {
+                throw error("Rotor %s must be in _allrotors", rotors[i]);
+            }
         }
+        invalidateStack();
 
     }
 
@@ -61,18 +123,95 @@ class Machine {
      *  numRotors()-1 characters in my alphabet. The first letter refers
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
-        if (setting.length() != numRotors() - 1) {
+        int[] cps = setting.codePoints().toArray();
+        if (cps.length != numRotors() - 1) {
             throw new EnigmaException("wrong setting length");
         }
         int k = 0;
         for (int i = 1; i < _rotors.length; i++, k++) {
-            char c = setting.charAt(k);
-            if (!_rotors[i].alphabet().contains(c)) {
+            int posn = _rotors[i].alphabet().toInt(cps[k]);
+            if (posn < 0) {
                 throw new EnigmaException("Setting chars must be in alphabet");
             }
-            _rotors[i].set(setting.charAt(k));
+            _rotors[i].set(posn);
+        }
+        invalidateStack();
+
+    }
+
+    /** Return every legal assignment of rotor names to slots: a reflector
+     *  first, then non-moving rotors, then numPawls() moving rotors.
+     *  Each is suitable as an argument to insertRotors. */
+    List<String[]> rotorOrders() {
+        List<String> reflectors = new ArrayList<>();
+        List<String> fixed = new ArrayList<>();
+        List<String> moving = new ArrayList<>();
+        for (Rotor r : _allRotors) {
+            if (r.reflecting()) {
+                reflectors.add(r.name());
+            } else if (r.rotates()) {
+                moving.add(r.name());
+            } else {
+                fixed.add(r.name());
+            }
+        }
+        int numRotors = numRotors();
+        int pawls = numPawls();
+        List<String[]> result = new ArrayList<>();
+        for (String reflector : reflectors) {
+            String[] order = new String[numRotors];
+            order[0] = reflector;
+            fillOrders(order, 1, numRotors - pawls, fixed, moving, result);
+        }
+        return result;
+    }
+
+    /** Add to RESULT every completion of ORDER from slot K on, in which
+     *  slots before FIRSTMOVING come from FIXED and the rest from
+     *  MOVING, with no name used twice. */
+    private void fillOrders(String[] order, int k, int firstMoving,
+                            List<String> fixed, List<String> moving,
+                            List<String[]> result) {
+        if (k == order.length) {
+            result.add(order.clone());
+            return;
+        }
+        for (String name : k < firstMoving ? fixed : moving) {
+            boolean used = false;
+            for (int i = 1; i < k; i += 1) {
+                used |= order[i].equals(name);
+            }
+            if (!used) {
+                order[k] = name;
+                fillOrders(order, k + 1, firstMoving, fixed, moving, result);
+            }
         }
+    }
 
+    /** Advance POSNS to the next rotor position in odometer order (last
+     *  entry fastest), with SIZE positions per rotor.  Return false, with
+     *  POSNS back at all zeros, after the last position. */
+    static boolean nextPositions(int[] posns, int size) {
+        for (int i = posns.length - 1; i >= 0; i -= 1) {
+            posns[i] += 1;
+            if (posns[i] < size) {
+                return true;
+            }
+            posns[i] = 0;
+        }
+        return false;
+    }
+
+    /** Set my rotors (other than the reflector) to the positions
+     *  SETTING[0 .. numRotors()-2], leftmost first. */
+    void setRotors(int[] setting) {
+        if (setting.length != numRotors() - 1) {
+            throw new EnigmaException("wrong setting length");
+        }
+        for (int i = 1; i < _rotors.length; i++) {
+            _rotors[i].set(setting[i - 1]);
+        }
+        invalidateStack();
     }
 
     /** Set the plugboard to PLUGBOARD. */
@@ -81,15 +220,18 @@ class Machine {
 
     }
 
+    /** Return my plugboard. */
+    Permutation plugboard() {
+        return _plugboard;
+    }
+
     /** Advance all of the Rotors in _rotors that should be advanced. */
     void advanceAll() {
-        Boolean[] advance = new Boolean[_numRotors];
+        boolean[] advance = _advance;
         for (int i = 0; i < _numRotors; i++) {
-            advance[i] = _rotors[i].atNotch();
-            if (_rotors[i].atNotch() && !_rotors[i - 1].rotates())  {
-                advance[i] = false;
-            }
-            if (_rotors[i].atNotch()) {
+            boolean notch = _rotors[i].atNotch();
+            advance[i] = notch && _rotors[i - 1].rotates();
+            if (notch) {
                 advance[i - 1] = true;
             }
             if (i == _numRotors - 1) {
@@ -97,13 +239,121 @@ class Machine {
             }
         }
 
+        boolean slowMoved = false;
         for (int j = 0; j < _numRotors; j++) {
             if (advance[j]) {
                 _rotors[j].advance();
+                slowMoved |= j < _numRotors - 1;
+            }
+        }
+        if (slowMoved) {
+            invalidateStack();
+            if (Stats.enabled()) {
+                countNotchSteps();
+            }
+        }
+    }
+
+    /** Record with Stats the rotors other than the fast rotor that the
+     *  last advanceAll stepped. */
+    private void countNotchSteps() {
+        for (int j = 0; j < _numRotors - 1; j++) {
+            if (_advance[j] && _rotors[j].rotates()) {
+                Stats.notchStep(_rotors[j].name());
             }
         }
     }
 
+    /** Change my rotor positions to what they would be after N more
+     *  calls to advanceAll.  Between notch events only the fast rotor
+     *  moves, so those stretches are skipped in one step, and once the
+     *  positions at a notch event repeat, whole periods of the stepping
+     *  schedule are skipped as well.  The cost therefore depends on the
+     *  stepping period, not on N. */
+    void jump(long n) {
+        Rotor fast = _rotors[_numRotors - 1];
+        HashMap<Long, Long> seen = new HashMap<>();
+        boolean periodFound = false;
+        while (n > 0) {
+            if (fast.atNotch() || slowAtNotch()) {
+                if (!periodFound && seen.size() < MAX_JUMP_STATES) {
+                    long key = positionKey();
+                    Long prev = key < 0 ? null : seen.put(key, n);
+                    if (prev != null) {
+                        n %= prev - n;
+                        periodFound = true;
+                        continue;
+                    }
+                }
+                advanceAll();
+                n -= 1;
+            } else {
+                int d = fast.stepsToNotch();
+                long k = d < 0 ? n : Math.min(d, n);
+                if (fast.rotates()) {
+                    fast.set((int) ((fast.setting() + k) % fast.size()));
+                }
+                n -= k;
+            }
+        }
+    }
+
+    /** Return true iff one of my rotors other than the fast rotor is at
+     *  a notch where it engages a rotating rotor to its left. */
+    private boolean slowAtNotch() {
+        for (int i = 1; i < _numRotors - 1; i++) {
+            if (_rotors[i].atNotch() && _rotors[i - 1].rotates()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return my rotor positions packed into a single number, or -1 if
+     *  they do not fit. */
+    long positionKey() {
+        long key = 0;
+        int size = _alphabet.size();
+        for (int i = 1; i < _numRotors; i++) {
+            if (key > (Long.MAX_VALUE - size) / size) {
+                return -1;
+            }
+            key = key * size + _rotors[i].setting();
+        }
+        return key;
+    }
+
+    /** Forget all cached entries of the composed permutation of my rotors
+     *  other than the fast (rightmost) rotor.  Must be called whenever one
+     *  of those rotors changes position or is replaced. */
+    private void invalidateStack() {
+        _stackGen += 1;
+        if (_stackGen == 0) {
+            Arrays.fill(_stackStamp, 0);
+            _stackGen = 1;
+        }
+    }
+
+    /** Return the result of passing P leftward through all rotors other
+     *  than the fast rotor, through the reflector, and back again, at
+     *  their current positions.  Results are cached until the next
+     *  invalidateStack. */
+    private int stack(int p) {
+        if (_stackStamp[p] == _stackGen) {
+            return _stack[p];
+        }
+        int ans = p;
+        for (int n = _numRotors - 2; n >= 0; n--) {
+            ans = _rotors[n].convertForward(ans);
+        }
+        for (int k = 1; k < _numRotors - 1; k++) {
+            ans = _rotors[k].convertBackward(ans);
+        }
+        _stack[p] = ans;
+        _stackStamp[p] = _stackGen;
+        return ans;
+    }
+
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
@@ -113,31 +363,40 @@ class Machine {
         }
         this.advanceAll();
         int ans = _plugboard.permute(c);
-
-        for (int n = _rotors.length - 1; n >= 0; n--) {
-            ans = _rotors[n].convertForward(ans);
-        }
-
-        for (int k = 1; k < _rotors.length; k++) {
-            ans = _rotors[k].convertBackward(ans);
-        }
+        ans = scramble(ans);
         ans = _plugboard.permute(ans);
         return ans;
 
     }
 
+    /** Return the result of passing C (an index in the range 0..alphabet
+     *  size - 1) through my rotors and reflector at their current
+     *  positions, bypassing the plugboard and without advancing. */
+    int scramble(int c) {
+        Rotor fast = _rotors[_numRotors - 1];
+        int ans = fast.convertForward(c);
+        ans = stack(ans);
+        return fast.convertBackward(ans);
+    }
+
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        msg = msg.replace(" ", "");
-        String ans = "";
-        for (int i = 0; i < msg.length(); i++) {
-            int charindex = _alphabet.toInt(msg.charAt(i));
-            int converted = this.convert(charindex);
-            char convC = _alphabet.toChar(converted);
-            ans += convC;
+        StringBuilder ans = new StringBuilder(msg.length());
+        for (int i = 0; i < msg.length(); ) {
+            int cp = msg.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp != ' ') {
+                int converted = this.convert(_alphabet.toInt(cp));
+                ans.appendCodePoint(_alphabet.toCodePoint(converted));
+            }
         }
-        return ans;
+        return ans.toString();
+    }
+
+    /** Return all the rotors available to me. */
+    Collection<Rotor> allRotors() {
+        return _allRotors;
     }
 
     /**
@@ -147,6 +406,10 @@ class Machine {
         return _rotors;
     }
 
+    /** Largest number of notch-event positions jump remembers while
+     *  looking for the period of the stepping schedule. */
+    private static final int MAX_JUMP_STATES = 1 << 16;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -159,9 +422,26 @@ class Machine {
     /** Stores the private collection of all rotors available. */
     private Collection<Rotor> _allRotors;
 
+    /** True iff _allRotors are shared prototypes, which are copied when
+     *  inserted rather than used directly. */
+    private boolean _prototypes;
+
     /** Stores the rotors of our machine. */
     private Rotor[] _rotors;
 
+    /** Scratch array recording which rotors advanceAll moves. */
+    private final boolean[] _advance;
+
+    /** Cached values of stack(P), valid where _stackStamp[P] equals
+     *  _stackGen. */
+    private final int[] _stack;
+
+    /** Generation in which each entry of _stack was computed. */
+    private final int[] _stackStamp;
+
+    /** Current generation of _stack; bumped by invalidateStack. */
+    private int _stackGen;
+
     /** Stores the private permutation plugboard.*/
     private Permutation _plugboard;
 
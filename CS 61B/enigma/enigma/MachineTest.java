@@ -1,6 +1,7 @@
 package enigma;
 
 import org.junit.Test;
+import java.util.concurrent.ForkJoinPool;
 import static org.junit.Assert.*;
 
 
@@ -60,4 +61,60 @@ public class MachineTest<R1> {
         m.setPlugboard(plug);
         assertEquals("QVPQS", m.convert(input));
     }
+
+    @Test
+    public void checkRoundTripAcrossSteps() {
+        String[] names2 = new String[]{ "B", "Beta", "III", "IV", "I"};
+        m.insertRotors(names2);
+        m.setRotors("AXLE");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                alphabet1));
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 2000; i += 1) {
+            msg.append(alphabet.charAt((i * 7) % alphabet.length()));
+        }
+        String encoded = m.convert(msg.toString());
+        m.setRotors("AXLE");
+        assertEquals(msg.toString(), m.convert(encoded));
+    }
+
+    @Test
+    public void checkJump() {
+        String[] names2 = new String[]{ "B", "Beta", "III", "IV", "I"};
+        m.insertRotors(names2);
+        m.setRotors("AXLE");
+        for (long n : new long[] {0, 1, 25, 26, 650, 677, 17576, 123457}) {
+            Machine stepped = m.copy();
+            Machine jumped = m.copy();
+            for (long i = 0; i < n; i += 1) {
+                stepped.advanceAll();
+            }
+            jumped.jump(n);
+            for (int r = 1; r < 5; r += 1) {
+                assertEquals("jump " + n,
+                             stepped.getRotors()[r].setting(),
+                             jumped.getRotors()[r].setting());
+            }
+        }
+    }
+
+    @Test
+    public void checkParallelConvert() {
+        String[] names2 = new String[]{ "B", "Beta", "III", "IV", "I"};
+        m.insertRotors(names2);
+        m.setRotors("AXLE");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) "
+                + "(BY)", alphabet1));
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 5000; i += 1) {
+            msg.append(alphabet.charAt((i * i + 3 * i) % alphabet.length()));
+        }
+        Machine other = m.copy();
+        String expected = m.convert(msg.toString());
+        ParallelConverter conv =
+            new ParallelConverter(ForkJoinPool.commonPool(), 97);
+        assertEquals(expected, conv.convert(other, msg.toString()));
+        assertEquals(m.convert("FROMHISSHOULDER"),
+                     other.convert("FROMHISSHOULDER"));
+    }
 }
@@ -1,12 +1,19 @@
 package enigma;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintStream;
-
-import java.util.ArrayList;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Arrays;
+import java.util.List;
 
 import static enigma.EnigmaException.*;
 
@@ -23,261 +30,202 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.
+     *
+     *  The arguments may be preceded by options.  With "--batch",
+     *  processes many files instead (see batch).  With "--keystream",
+     *  converts messages by table lookup in keystreams compiled once per
+     *  distinct setting line (see Keystream).  With "--stats", collects
+     *  statistics, available through JMX while running, and prints them
+     *  on the standard error at exit (see Stats). */
     public static void main(String... args) {
         try {
-            new Main(args).process();
+            mainBody(args);
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
+        } finally {
+            if (_dumpStats) {
+                Stats.dump(System.err);
+            }
         }
         System.exit(1);
     }
 
+    /** Perform the actions of main for ARGS, throwing an EnigmaException
+     *  on errors. */
+    private static void mainBody(String... args) {
+        boolean batch = false;
+        Keystream.Cache keystreams = null;
+        int k;
+        for (k = 0; k < args.length && args[k].startsWith("--"); k += 1) {
+            switch (args[k]) {
+            case "--batch":
+                batch = true;
+                break;
+            case "--keystream":
+                keystreams = new Keystream.Cache();
+                break;
+            case "--stats":
+                Stats.enable();
+                _dumpStats = true;
+                break;
+            default:
+                throw error("unknown option: %s", args[k]);
+            }
+        }
+        String[] rest = Arrays.copyOfRange(args, k, args.length);
+        if (batch) {
+            batch(rest, keystreams);
+        } else {
+            new Main(rest, keystreams).process();
+        }
+    }
+
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        this(args, null);
+    }
+
+    /** Check ARGS and open the necessary files (see comment on main),
+     *  converting by keystreams from KEYSTREAMS unless it is null. */
+    Main(String[] args, Keystream.Cache keystreams) {
+        _keystreams = keystreams;
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        _config = Config.read(args[0]);
 
-        if (args.length > 1) {
-            _input = getInput(args[1]);
+        _ownsInput = args.length > 1;
+        if (_ownsInput) {
+            _input = getReader(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = Channels.newReader(Channels.newChannel(System.in),
+                                        Charset.defaultCharset());
         }
 
-        if (args.length > 2) {
+        _ownsOutput = args.length > 2;
+        if (_ownsOutput) {
             _output = getOutput(args[2]);
         } else {
-            _output = System.out;
+            _output = new OutputStreamWriter(System.out);
         }
     }
 
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    /** Process a batch of message files, as specified by ARGS, where
+     *  3 <= ARGS.length <= 4.  ARGS[0] is the name of a configuration
+     *  file.  ARGS[1] names either a directory, all of whose files are
+     *  inputs, or a file listing the inputs one per line.  ARGS[2] names
+     *  the directory receiving the outputs, one per input (see
+     *  Batch.output).  ARGS[3] is optional; when present, it is the
+     *  number of files processed at once (by default, the number of
+     *  processors).  Keystreams from KEYSTREAMS, if it is not null, are
+     *  shared by all files. */
+    static void batch(String[] args, Keystream.Cache keystreams) {
+        if (args.length < 3 || args.length > 4) {
+            throw error("Usage: --batch CONFIG DIR|MANIFEST OUTDIR "
+                        + "[THREADS]");
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 3) {
+            try {
+                threads = Integer.parseInt(args[3]);
+            } catch (NumberFormatException excp) {
+                throw error("number of threads must be an integer");
+            }
+        }
+        Path source, outDir;
         try {
-            return new Scanner(new File(name));
-        } catch (IOException excp) {
-            throw error("could not open %s", name);
+            source = Paths.get(args[1]);
+            outDir = Paths.get(args[2]);
+        } catch (InvalidPathException excp) {
+            throw error("invalid path: %s", excp.getInput());
+        }
+        List<Path> inputs = Batch.inputs(source);
+        int failures = new Batch(Config.read(args[0]), threads, keystreams)
+            .process(inputs, outDir);
+        if (failures > 0) {
+            throw error("%d of %d files failed", failures, inputs.size());
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a Reader over a channel reading from the file named NAME. */
+    private Reader getReader(String name) {
         try {
-            return new PrintStream(new File(name));
-        } catch (IOException excp) {
+            return Channels.newReader(FileChannel.open(Paths.get(name)),
+                                      Charset.defaultCharset());
+        } catch (IOException | InvalidPathException excp) {
             throw error("could not open %s", name);
         }
     }
 
-    /** Configure an Enigma machine from the contents of configuration
-     *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
-    private void process() {
-        Machine em = readConfig();
-        String setting = _input.nextLine();
-        if (!setting.contains("*")) {
-            throw error("wrong setting format");
-        }
-        setUp(em, setting);
-        String nextline = "";
-        while (_input.hasNextLine()) {
-            nextline = _input.nextLine();
-            if (nextline.contains("*")) {
-                setUp(em, nextline);
-                if (_input.hasNextLine()) {
-                    nextline = _input.nextLine();
-                }
-            }
-            if (!nextline.contains("*")) {
-                nextline = nextline.replace(" ", "");
-                String output = em.convert(nextline);
-                printMessageLine(output);
-            }
-        }
-
-    }
-
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
+    /** Return a Writer over a channel writing to the file named NAME. */
+    private Writer getOutput(String name) {
         try {
-            String alpha = _config.nextLine();
-            if (alpha.contains("(") || alpha.contains(")")
-                    || alpha.contains("*") || alpha.contains(" ")) {
-                throw error("wrong alphabet config");
-            }
-            _alphabet = new Alphabet(alpha);
-
-            if (!_config.hasNextInt()) {
-                throw new EnigmaException("int needed for numrotors in config");
-            }
-            int numRotors = _config.nextInt();
-            if (!_config.hasNextInt()) {
-                throw new EnigmaException("int needed for num pawls in config");
-            }
-            int numPawls = _config.nextInt();
-            if (numRotors - numPawls < 1) {
-                throw new EnigmaException("wrong number of pawls and rotors");
-            }
-            ArrayList<Rotor> allRotors = new ArrayList<>();
-            while (_config.hasNext()) {
-                Rotor r = readRotor();
-                allRotors.add(r);
-            }
-            return new Machine(_alphabet, numRotors, numPawls, allRotors);
-        } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
+            FileChannel out =
+                FileChannel.open(Paths.get(name), StandardOpenOption.CREATE,
+                                 StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+            return Channels.newWriter(out, Charset.defaultCharset());
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
+    /** Configure an Enigma machine from configuration _config and apply
+     *  it to the messages in _input, sending the results to _output.
+     *  Closes _input and _output if I opened them, and otherwise leaves
+     *  the standard streams open, flushing _output. */
+    void process() {
+        long start = Stats.enabled() ? System.nanoTime() : 0;
+        Machine em = _config.newMachine();
+        MessageStream stream = new MessageStream(em, _output, _keystreams);
         try {
-            String nametemp = _name;
-            if (_count < 1) {
-                _name = _config.next();
-                nametemp = _name;
-            }
-            if (_name.contains("(") || _name.contains(")") || _name.isEmpty()) {
-                throw error("wrong rotor name or config input");
-            }
-            String notches = _config.next();
-            if (notches.contains("(") || notches.contains(")")
-                || notches.isEmpty()) {
-                throw error("wrong notches input");
-            }
-            String cycles = "";
-            String next = _config.next();
-            while ((next.contains(")") || next.contains("("))
-                    && _config.hasNext()) {
-                next = next.replace(" ", "");
-                if (!next.contains(")")) {
-                    cycles += next;
-                } else {
-                    cycles += next + " ";
-                }
-                next = _config.next();
-                _name = next;
-                _count += 1;
-                if (!_config.hasNext() && next.contains("(")) {
-                    cycles += next + " ";
-                    next = "";
-                }
-            }
-            if (!_config.hasNext() && next.contains("(")) {
-                cycles += next;
-            }
-            Permutation perm = new Permutation(cycles, _alphabet);
-            if (notches.charAt(0) == 'M') {
-                _allRotornames += nametemp + " ";
-                String realnotches = notches.substring(1);
-                for (int i = 0; i < realnotches.length(); i++) {
-                    if (!_alphabet.contains(realnotches.charAt(i))) {
-                        throw new EnigmaException("notches not in alphabet");
+            try {
+                stream.process(_input);
+            } finally {
+                try {
+                    if (_ownsInput) {
+                        _input.close();
+                    }
+                } finally {
+                    if (_ownsOutput) {
+                        _output.close();
+                    } else {
+                        _output.flush();
                     }
-                }
-                return new MovingRotor(nametemp, perm, realnotches);
-            } else if (notches.charAt(0) == 'N') {
-                _allRotornames += nametemp + " ";
-                return new FixedRotor(nametemp, perm);
-            } else if (notches.charAt(0) == 'R') {
-                _allRotornames += nametemp + " ";
-                return new Reflector(nametemp, perm);
-            } else {
-                throw new EnigmaException("Rotor Types Invalid");
-            }
-        } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
-        }
-    }
-
-    /** Set M according to the specification given on SETTINGS,
-     *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
-        settings = settings.replace("* ", "");
-        String[] s = settings.split(" ");
-        if (s.length < M.numRotors()) {
-            throw new EnigmaException("incorrect setting format");
-        }
-        String steck = "";
-        String sets = "";
-        String[] rotornames = new String[M.numRotors()];
-        for (int i = 0; i < M.numRotors(); i++) {
-            String name = s[i];
-            if (!_allRotornames.contains(name)) {
-                throw new EnigmaException("Rotor must"
-                + "be in _allrotors");
-            }
-            rotornames[i] = name;
-        }
-        for (int j = M.numRotors(); j < s.length; j++) {
-            String next = s[j];
-            if (j == M.numRotors()) {
-                sets += next;
-            }
-            if (next.contains("(")) {
-                steck += next + " ";
-            }
-        }
-        for (int i = 0; i < rotornames.length - 1; i++) {
-            for (int j = i + 1; j < rotornames.length; j++) {
-                if (rotornames[i].equals(rotornames[j])) {
-                    throw new EnigmaException("rotors cannot be repeated");
                 }
             }
+        } catch (IOException excp) {
+            throw error("I/O error: %s", excp.getMessage());
         }
-        Permutation plug = new Permutation(steck, _alphabet);
-        M.insertRotors(rotornames);
-        if (!M.getRotors()[0].reflecting()) {
-            throw new EnigmaException("first rotor must be reflector");
-        }
-        M.setRotors(sets);
-        M.setPlugboard(plug);
-    }
-
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        String result = "";
-        if (msg.isEmpty()) {
-            _output.println();
-        }
-        for (int i = 0; i < msg.length(); i += 5) {
-            if ((msg.length() - i) <= 5) {
-                result = msg.substring((msg.length() - (msg.length() - i)));
-                _output.println(result);
-            } else {
-                result = msg.substring(i, i + 5);
-                _output.print(result + " ");
-            }
+        if (Stats.enabled()) {
+            Stats.processed(System.nanoTime() - start);
         }
-
     }
 
-    /** Alphabet used in this machine. */
-    private Alphabet _alphabet;
+    /** True iff main should print statistics on exit. */
+    private static boolean _dumpStats;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private Reader _input;
 
-    /** Source of machine configuration. */
-    private Scanner _config;
+    /** True iff _input is a file I opened, rather than the standard
+     *  input. */
+    private final boolean _ownsInput;
 
-    /** File for encoded/decoded messages. */
-    private PrintStream _output;
-
-    /** Integer to account for calling readRotors multiple times.*/
-    private int _count;
+    /** Machine configuration. */
+    private final Config _config;
 
-    /** String to store _name of wanted Rotor. */
-    private String _name;
+    /** File for encoded/decoded messages. */
+    private Writer _output;
 
+    /** True iff _output is a file I opened, rather than the standard
+     *  output. */
+    private final boolean _ownsOutput;
 
-    /** Stores names of all the rotors. */
-    private String _allRotornames = "";
+    /** Compiled keystreams, or null if not converting by keystream. */
+    private final Keystream.Cache _keystreams;
 }
 
@@ -0,0 +1,331 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import static enigma.EnigmaException.*;
+
+/** Streams a sequence of setting lines and messages through a Machine,
+ *  writing the results in groups of five.  Input is consumed in
+ *  fixed-size chunks, so a message line may be arbitrarily long; no
+ *  objects are allocated per message character.
+ *  @author Alice Wang
+ */
+class MessageStream {
+
+    /** Size of the input and output character buffers. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of characters in an output group. */
+    static final int GROUP_SIZE = 5;
+
+    /** A stream that runs messages through MACHINE and writes them to
+     *  OUTPUT. */
+    MessageStream(Machine machine, Writer output) {
+        this(machine, output, null);
+    }
+
+    /** A stream that runs messages through MACHINE and writes them to
+     *  OUTPUT, converting by keystream tables from KEYSTREAMS (compiled
+     *  on first use of each setting line) unless KEYSTREAMS is null. */
+    MessageStream(Machine machine, Writer output, Keystream.Cache keystreams) {
+        _keystreams = keystreams;
+        _machine = machine;
+        _alphabet = machine.alphabet();
+        _output = output;
+        _in = new char[BUFFER_SIZE];
+        _out = new char[BUFFER_SIZE];
+        _setting = new StringBuilder();
+        _mode = UNDECIDED;
+    }
+
+    /** Read all of INPUT, converting it as for write, and then finish. */
+    void process(Reader input) throws IOException {
+        int n;
+        while ((n = input.read(_in, 0, _in.length)) != -1) {
+            write(_in, 0, n);
+        }
+        finish();
+    }
+
+    /** Process the LEN input characters BUF[OFF .. OFF+LEN-1].  Lines may
+     *  be split arbitrarily between calls. */
+    void write(char[] buf, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i += 1) {
+            char ch = buf[i];
+            if (ch == '\n') {
+                endLine();
+            } else if (ch == '\r') {
+                continue;
+            } else if (_mode == MESSAGE) {
+                if (!Character.isWhitespace(ch)) {
+                    convert(ch);
+                } else {
+                    endCodePoint();
+                }
+            } else if (_mode == SETTING) {
+                _setting.append(ch);
+            } else if (ch == '*') {
+                _mode = SETTING;
+                _setting.append(ch);
+            } else if (!Character.isWhitespace(ch)) {
+                startMessage();
+                convert(ch);
+            }
+        }
+    }
+
+    /** Complete any unterminated final line and flush all output. */
+    void finish() throws IOException {
+        if (_mode != UNDECIDED) {
+            endLine();
+        }
+        flush();
+    }
+
+    /** Begin a message line, which must follow some setting line. */
+    private void startMessage() {
+        if (!_configured) {
+            throw error("wrong setting format");
+        }
+        _mode = MESSAGE;
+    }
+
+    /** Convert the message character CH and add it to the output.  A
+     *  surrogate pair is converted as one code point once its second
+     *  half arrives. */
+    private void convert(char ch) throws IOException {
+        if (Character.isHighSurrogate(ch)) {
+            endCodePoint();
+            _high = ch;
+        } else if (_high != 0 && Character.isLowSurrogate(ch)) {
+            int cp = Character.toCodePoint(_high, ch);
+            _high = 0;
+            convert(cp);
+        } else {
+            endCodePoint();
+            convert((int) ch);
+        }
+    }
+
+    /** Convert any unpaired high surrogate left by convert(char). */
+    private void endCodePoint() throws IOException {
+        if (_high != 0) {
+            char high = _high;
+            _high = 0;
+            convert((int) high);
+        }
+    }
+
+    /** Convert the message code point CP and add it to the output. */
+    private void convert(int cp) throws IOException {
+        int c = _alphabet.toInt(cp);
+        if (c < 0) {
+            throw error("msg chars must be in alphabet");
+        }
+        if (_outPos + 3 > _out.length) {
+            flush();
+        }
+        if (_group == GROUP_SIZE) {
+            _out[_outPos++] = ' ';
+            _group = 0;
+        }
+        _lineChars += 1;
+        int out = _alphabet.toCodePoint(_keystream == null
+                                        ? _machine.convert(c)
+                                        : keystreamConvert(c));
+        if (Character.isBmpCodePoint(out)) {
+            _out[_outPos++] = (char) out;
+        } else {
+            _outPos += Character.toChars(out, _out, _outPos);
+        }
+        _group += 1;
+    }
+
+    /** Return the conversion of C (an alphabet index) by the current
+     *  keystream.  Past the end of the keystream, switch to converting
+     *  with the machine, set up to the same position. */
+    private int keystreamConvert(int c) {
+        Keystream ks = _keystream;
+        if (!ks.covers(_position)) {
+            if (!_machineReady) {
+                setUp(_settingLine);
+            }
+            _machine.jump(_position);
+            _keystream = null;
+            return _machine.convert(c);
+        }
+        int result = ks.convert(_position, c);
+        _position += 1;
+        return result;
+    }
+
+    /** Apply the setting line SETTINGS by keystream: use its cached
+     *  keystream if there is one, and otherwise set up the machine and
+     *  compile and cache its keystream. */
+    private void setUpKeystream(String settings) {
+        _keystream = _keystreams.get(settings);
+        _machineReady = _keystream == null;
+        if (_keystream == null) {
+            setUp(settings);
+            _keystream = new Keystream(_machine, _keystreams.window());
+            _keystreams.put(settings, _keystream);
+            if (Stats.enabled()) {
+                Stats.keystreamCompiled();
+            }
+        }
+        _settingLine = settings;
+        _position = 0;
+        _configured = true;
+    }
+
+    /** Finish the current line, applying it if it was a setting line. */
+    private void endLine() throws IOException {
+        endCodePoint();
+        if (_mode == SETTING) {
+            long start = Stats.enabled() ? System.nanoTime() : 0;
+            if (_keystreams != null) {
+                setUpKeystream(_setting.toString());
+            } else {
+                setUp(_setting.toString());
+            }
+            _setting.setLength(0);
+            if (Stats.enabled()) {
+                Stats.settingLine(System.nanoTime() - start);
+            }
+        } else {
+            if (_mode == UNDECIDED) {
+                startMessage();
+            }
+            if (_outPos + LINE_END.length > _out.length) {
+                flush();
+            }
+            for (int i = 0; i < LINE_END.length; i += 1) {
+                _out[_outPos++] = LINE_END[i];
+            }
+            _group = 0;
+            if (Stats.enabled()) {
+                Stats.message(_lineChars);
+            }
+            _lineChars = 0;
+        }
+        _mode = UNDECIDED;
+    }
+
+    /** Write out everything in the output buffer. */
+    private void flush() throws IOException {
+        _output.write(_out, 0, _outPos);
+        _outPos = 0;
+        _output.flush();
+    }
+
+    /** Set up my machine according to the setting line SETTINGS, which
+     *  must have the format specified in the assignment. */
+    private void setUp(String settings) {
+        Machine M = _machine;
+        settings = settings.trim().replaceFirst("^\\*\\s*", "");
+        String[] s = settings.split("\\s+");
+        if (s.length < M.numRotors()) {
+            throw new EnigmaException("incorrect setting format");
+        }
+        StringBuilder steck = new StringBuilder();
+        String sets = "";
+        String[] rotornames = new String[M.numRotors()];
+        for (int i = 0; i < M.numRotors(); i++) {
+            rotornames[i] = s[i];
+        }
+        for (int j = M.numRotors(); j < s.length; j++) {
+            String next = s[j];
+            if (j == M.numRotors()) {
+                sets += next;
+            }
+            if (next.contains("(")) {
+                steck.append(next).append(' ');
+            }
+        }
+        for (int i = 0; i < rotornames.length - 1; i++) {
+            for (int j = i + 1; j < rotornames.length; j++) {
+                if (rotornames[i].equals(rotornames[j])) {
+                    throw new EnigmaException("rotors cannot be repeated");
+                }
+            }
+        }
+        Permutation plug = new Permutation(steck.toString(), _alphabet);
+        M.insertRotors(rotornames);
+        if (!M.getRotors()[0].reflecting()) {
+            throw new EnigmaException("first rotor must be reflector");
+        }
+        M.setRotors(sets);
+        M.setPlugboard(plug);
+        _configured = true;
+    }
+
+    /** Line state: nothing but whitespace seen yet on this line. */
+    private static final int UNDECIDED = 0;
+
+    /** Line state: the current line is a setting line. */
+    private static final int SETTING = 1;
+
+    /** Line state: the current line is a message. */
+    private static final int MESSAGE = 2;
+
+    /** Characters written at the end of each output line. */
+    private static final char[] LINE_END =
+        System.lineSeparator().toCharArray();
+
+    /** The machine that converts my messages. */
+    private final Machine _machine;
+
+    /** The alphabet of _machine. */
+    private final Alphabet _alphabet;
+
+    /** Destination of converted messages. */
+    private final Writer _output;
+
+    /** Buffer for characters read by process. */
+    private final char[] _in;
+
+    /** Buffer for output characters not yet written to _output. */
+    private final char[] _out;
+
+    /** Number of characters in _out. */
+    private int _outPos;
+
+    /** Number of characters in the current output group. */
+    private int _group;
+
+    /** Number of characters converted on the current message line. */
+    private long _lineChars;
+
+    /** Text of the setting line being read. */
+    private final StringBuilder _setting;
+
+    /** State of the current line (UNDECIDED, SETTING, or MESSAGE). */
+    private int _mode;
+
+    /** The first half of a surrogate pair whose second half has not yet
+     *  been read, or 0. */
+    private char _high;
+
+    /** Cache of compiled keystreams, or null if not converting by
+     *  keystream. */
+    private final Keystream.Cache _keystreams;
+
+    /** Keystream converting the current message, or null. */
+    private Keystream _keystream;
+
+    /** Number of characters converted since the last setting line, while
+     *  converting by keystream. */
+    private long _position;
+
+    /** The last setting line, while converting by keystream. */
+    private String _settingLine;
+
+    /** True iff _machine has been set up from _settingLine. */
+    private boolean _machineReady;
+
+    /** True once a setting line has been applied. */
+    private boolean _configured;
+
+}
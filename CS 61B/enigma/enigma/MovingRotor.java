@@ -16,32 +16,60 @@ class MovingRotor extends Rotor {
         super(name, perm);
         _notches = notches;
         _permutation = perm;
+        _atNotch = new boolean[perm.size()];
+        for (int cp : _notches.codePoints().toArray()) {
+            int notchIndex = perm.alphabet().toInt(cp);
+            if (notchIndex < 0) {
+                continue;
+            }
+            if (_atNotch[notchIndex]) {
+                throw new EnigmaException("cannot be duplicate notches");
+            }
+            _atNotch[notchIndex] = true;
+        }
+        _toNotch = new int[_atNotch.length];
+        int next = -1;
+        for (int k = 2 * _atNotch.length - 1; k >= 0; k -= 1) {
+            int posn = k % _atNotch.length;
+            if (_atNotch[posn]) {
+                next = k;
+            }
+            if (k < _atNotch.length) {
+                _toNotch[posn] = next < 0 ? -1 : next - k;
+            }
+        }
+    }
+
+    /** A copy of ROTOR, sharing its immutable notch tables. */
+    private MovingRotor(MovingRotor rotor) {
+        super(rotor.name(), rotor.permutation());
+        _notches = rotor._notches;
+        _permutation = rotor._permutation;
+        _atNotch = rotor._atNotch;
+        _toNotch = rotor._toNotch;
+        set(rotor.setting());
+    }
+
+    @Override
+    Rotor copy() {
+        return new MovingRotor(this);
     }
 
 
     @Override
     void advance() {
-        int oldset = this.setting();
-        this.set(_permutation.wrap(oldset + 1));
+        int newset = this.setting() + 1;
+        this.set(newset == _atNotch.length ? 0 : newset);
     }
 
     @Override
     boolean atNotch() {
-        for (int i = 0; i < _notches.length(); i++) {
-            for (int j = i + 1; j < _notches.length(); j++) {
-                if (_notches.charAt(i) == _notches.charAt(j)) {
-                    throw new EnigmaException("cannot be duplicate notches");
-                }
-            }
-        }
-        for (int i = 0; i < _notches.length(); i++) {
-            char c = _notches.charAt(i);
-            int notchIndex = _permutation.alphabet().toInt(c);
-            if (notchIndex == this.setting()) {
-                return true;
-            }
-        }
-        return false;
+        return _atNotch[setting()];
+    }
+
+    @Override
+    int stepsToNotch() {
+        return _toNotch[setting()];
     }
 
     @Override
@@ -60,5 +88,12 @@ class MovingRotor extends Rotor {
     /** Store my Permutation. */
     private Permutation _permutation;
 
+    /** _atNotch[K] is true iff there is a notch at setting K. */
+    private final boolean[] _atNotch;
+
+    /** _toNotch[K] is the number of advances from setting K to the next
+     *  notch (0 at a notch), or -1 if I have no notches. */
+    private final int[] _toNotch;
+
 
 }
@@ -0,0 +1,316 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static enigma.EnigmaException.*;
+
+/** Converts many independent messages at once, each on its own machine.
+ *  The machines become lanes of a structure of arrays: per slot, the
+ *  rotor settings of every lane and the offsets of their rotors' tables
+ *  in tables shared by all lanes.  At each keystroke a Kernel advances
+ *  and converts all lanes still holding message characters.  The
+ *  scalar kernel loops over the lanes; when the jdk.incubator.vector
+ *  module is present, a vector kernel processes several lanes per
+ *  instruction, using gathers for the table lookups.  Both produce
+ *  exactly the output of Machine.convert.
+ *  @author Alice Wang
+ */
+class MultiConverter {
+
+    /** Name of the class of the vector kernel. */
+    static final String VECTOR_KERNEL = "enigma.VectorKernel";
+
+    /** A converter using the vector kernel if it is available, and
+     *  otherwise the scalar kernel. */
+    MultiConverter() {
+        this(bestKernel());
+    }
+
+    /** A converter using KERNEL. */
+    MultiConverter(Kernel kernel) {
+        _kernel = kernel;
+    }
+
+    /** Return the vector kernel, or null if the jdk.incubator.vector
+     *  module is not present. */
+    static Kernel vectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector")
+            .isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName(VECTOR_KERNEL)
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError excp) {
+            return null;
+        }
+    }
+
+    /** Return the fastest kernel available. */
+    static Kernel bestKernel() {
+        Kernel vector = vectorKernel();
+        return vector == null ? new ScalarKernel() : vector;
+    }
+
+    /** Return my kernel. */
+    Kernel kernel() {
+        return _kernel;
+    }
+
+    /** Return the conversions of MESSAGES[i] by MACHINES[i] for each i,
+     *  ignoring blanks, and leave each machine in the state that
+     *  converting its message would.  The machines must share an
+     *  alphabet and number of slots, and must be distinct. */
+    String[] convert(Machine[] machines, String[] messages) {
+        if (machines.length != messages.length) {
+            throw error("need one machine per message");
+        }
+        int count = machines.length;
+        if (count == 0) {
+            return new String[0];
+        }
+        int[][] msgs = new int[count][];
+        Alphabet alpha = machines[0].alphabet();
+        for (int i = 0; i < count; i += 1) {
+            if (machines[i].alphabet() != alpha
+                || machines[i].numRotors() != machines[0].numRotors()) {
+                throw error("machines must have the same alphabet and slots");
+            }
+            msgs[i] = indices(alpha, messages[i]);
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> -msgs[i].length));
+        Lanes lanes = new Lanes(machines, msgs, order, _kernel.width());
+
+        int active = count;
+        for (int t = 0; t < lanes.steps; t += 1) {
+            while (msgs[order[active - 1]].length <= t) {
+                active -= 1;
+            }
+            _kernel.step(lanes, t, roundUp(active, _kernel.width()));
+        }
+
+        String[] result = new String[count];
+        for (int k = 0; k < count; k += 1) {
+            int i = order[k];
+            int len = msgs[i].length;
+            StringBuilder out = new StringBuilder(len);
+            for (int t = 0; t < len; t += 1) {
+                out.appendCodePoint(
+                    alpha.toCodePoint(lanes.out[t * lanes.width + k]));
+            }
+            result[i] = out.toString();
+            machines[i].jump(len);
+        }
+        return result;
+    }
+
+    /** Return N rounded up to a multiple of WIDTH. */
+    private static int roundUp(int n, int width) {
+        return (n + width - 1) / width * width;
+    }
+
+    /** Return the alphabet indices in ALPHA of the characters of MSG,
+     *  ignoring blanks. */
+    private static int[] indices(Alphabet alpha, String msg) {
+        int[] result = new int[msg.length()];
+        int len = 0;
+        for (int i = 0; i < msg.length(); ) {
+            int cp = msg.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp != ' ') {
+                int c = alpha.toInt(cp);
+                if (c < 0) {
+                    throw error("msg chars must be in alphabet");
+                }
+                result[len++] = c;
+            }
+        }
+        return Arrays.copyOf(result, len);
+    }
+
+    /** Performs one keystroke on a range of lanes. */
+    interface Kernel {
+        /** Return the number of lanes processed together; the number of
+         *  lanes passed to step is always a multiple of this. */
+        int width();
+
+        /** Advance lanes 0 .. ACTIVE-1 of LANES and convert their
+         *  characters at keystroke T. */
+        void step(Lanes lanes, int t, int active);
+    }
+
+    /** The state of a set of machines as lanes, with their messages.
+     *  Lanes are numbered in order of decreasing message length, so that
+     *  the lanes still active at any keystroke are a prefix. */
+    static final class Lanes {
+
+        /** Lanes for MACHINES[ORDER[k]] as lane k, converting MSGS, with
+         *  the number of lanes padded to a multiple of WIDTH. */
+        Lanes(Machine[] machines, int[][] msgs, Integer[] order, int width) {
+            Machine first = machines[0];
+            size = first.alphabet().size();
+            slots = first.numRotors();
+            this.width = roundUp(machines.length, width);
+            steps = msgs[order[0]].length;
+            setting = new int[slots][this.width];
+            base = new int[slots][this.width];
+            rotates = new int[slots][this.width];
+            plugBase = new int[this.width];
+            in = new int[steps * this.width];
+            out = new int[steps * this.width];
+
+            Map<List<Object>, Integer> rotorIds = new HashMap<>();
+            List<Rotor> rotors = new ArrayList<>();
+            Map<Permutation, Integer> plugIds = new IdentityHashMap<>();
+            List<Permutation> plugs = new ArrayList<>();
+            for (int k = 0; k < machines.length; k += 1) {
+                Machine m = machines[order[k]];
+                Rotor[] slotRotors = m.getRotors();
+                for (int s = 0; s < slots; s += 1) {
+                    Rotor r = slotRotors[s];
+                    List<Object> key = Arrays.asList(
+                        r.permutation(), r.rotates(), r.reflecting(),
+                        r instanceof MovingRotor
+                        ? ((MovingRotor) r).getnotches() : "");
+                    Integer id = rotorIds.get(key);
+                    if (id == null) {
+                        id = rotors.size();
+                        rotorIds.put(key, id);
+                        rotors.add(r);
+                    }
+                    setting[s][k] = r.setting();
+                    base[s][k] = id * size;
+                    rotates[s][k] = r.rotates() ? 1 : 0;
+                }
+                Integer id = plugIds.get(m.plugboard());
+                if (id == null) {
+                    id = plugs.size();
+                    plugIds.put(m.plugboard(), id);
+                    plugs.add(m.plugboard());
+                }
+                plugBase[k] = id * size;
+                int[] msg = msgs[order[k]];
+                for (int t = 0; t < msg.length; t += 1) {
+                    in[t * this.width + k] = msg[t];
+                }
+            }
+
+            forward = new int[rotors.size() * size];
+            inverse = new int[rotors.size() * size];
+            notch = new int[rotors.size() * size];
+            for (int id = 0; id < rotors.size(); id += 1) {
+                Rotor r = rotors.get(id).copy();
+                Permutation p = r.permutation();
+                for (int c = 0; c < size; c += 1) {
+                    forward[id * size + c] = p.permute(c);
+                    inverse[id * size + c] = p.invert(c);
+                    if (!r.reflecting()) {
+                        r.set(c);
+                        notch[id * size + c] = r.atNotch() ? 1 : 0;
+                    }
+                }
+            }
+            plug = new int[plugs.size() * size];
+            for (int id = 0; id < plugs.size(); id += 1) {
+                for (int c = 0; c < size; c += 1) {
+                    plug[id * size + c] = plugs.get(id).permute(c);
+                }
+            }
+        }
+
+        /** Alphabet size. */
+        final int size;
+        /** Number of rotor slots. */
+        final int slots;
+        /** Number of lanes, including padding. */
+        final int width;
+        /** Number of keystrokes (the longest message length). */
+        final int steps;
+        /** setting[S][K] is the setting of the rotor in slot S of lane K. */
+        final int[][] setting;
+        /** base[S][K] is the offset in forward, inverse, and notch of the
+         *  tables of the rotor in slot S of lane K. */
+        final int[][] base;
+        /** rotates[S][K] is 1 if the rotor in slot S of lane K rotates,
+         *  and otherwise 0. */
+        final int[][] rotates;
+        /** plugBase[K] is the offset in plug of lane K's plugboard. */
+        final int[] plugBase;
+        /** Permutation tables of all distinct rotors, concatenated. */
+        final int[] forward;
+        /** Inverse permutation tables of all distinct rotors. */
+        final int[] inverse;
+        /** notch[B + P] is 1 if the rotor whose tables start at B is at a
+         *  notch in setting P, and otherwise 0. */
+        final int[] notch;
+        /** Tables of all distinct plugboards, concatenated. */
+        final int[] plug;
+        /** in[T * width + K] is the character of lane K at keystroke T. */
+        final int[] in;
+        /** out[T * width + K] is the conversion of in[T * width + K]. */
+        final int[] out;
+    }
+
+    /** A kernel processing one lane at a time. */
+    static final class ScalarKernel implements Kernel {
+
+        @Override
+        public int width() {
+            return 1;
+        }
+
+        @Override
+        public void step(Lanes lanes, int t, int active) {
+            int n = lanes.slots, size = lanes.size;
+            int[] fwd = lanes.forward, inv = lanes.inverse;
+            int[] notch = lanes.notch, plug = lanes.plug;
+            int row = t * lanes.width;
+            for (int k = 0; k < active; k += 1) {
+                int nextNotch = 0;
+                for (int s = n - 1; s >= 1; s -= 1) {
+                    int set = lanes.setting[s][k];
+                    int here = notch[lanes.base[s][k] + set];
+                    int adv = s == n - 1 ? 1
+                        : (here & lanes.rotates[s - 1][k]) | nextNotch;
+                    adv &= lanes.rotates[s][k];
+                    set += adv;
+                    lanes.setting[s][k] = set == size ? 0 : set;
+                    nextNotch = here;
+                }
+                int x = plug[lanes.plugBase[k] + lanes.in[row + k]];
+                for (int s = n - 1; s >= 1; s -= 1) {
+                    int set = lanes.setting[s][k];
+                    x = fwd[lanes.base[s][k] + wrap(x + set, size)];
+                    x = wrap(x - set, size);
+                }
+                x = fwd[lanes.base[0][k] + x];
+                for (int s = 1; s < n; s += 1) {
+                    int set = lanes.setting[s][k];
+                    x = inv[lanes.base[s][k] + wrap(x + set, size)];
+                    x = wrap(x - set, size);
+                }
+                lanes.out[row + k] = plug[lanes.plugBase[k] + x];
+            }
+        }
+
+        /** Return X, which is in the range -SIZE .. 2*SIZE-1, modulo
+         *  SIZE. */
+        private static int wrap(int x, int size) {
+            return x < 0 ? x + size : x >= size ? x - size : x;
+        }
+    }
+
+    /** Kernel used for each keystroke. */
+    private final Kernel _kernel;
+
+}
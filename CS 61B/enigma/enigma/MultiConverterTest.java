@@ -0,0 +1,142 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/** The suite of all JUnit tests for the MultiConverter class.
+ *  @author Alice Wang
+ */
+public class MultiConverterTest {
+
+    /** Rotors of a five-slot, three-pawl configuration. */
+    private static final String ROTORS =
+        " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " II ME     (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)\n"
+        + " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + " IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + " VI MZM    (AJQDVLEOZWIYTS) (CGMNHFUX) (BPRK)\n"
+        + " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + " Gamma N   (AFNIRLBSQWVXGUZDKMTPCOYJHE)\n"
+        + " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "           (RX) (SZ) (TV)\n"
+        + " C R       (AR) (BD) (CO) (EJ) (FN) (GT) (HK) (IV) (LM) (PW)\n"
+        + "           (QZ) (SX) (UY)\n";
+
+    /** Moving rotors of ROTORS. */
+    private static final String[] MOVING = { "I", "II", "III", "IV", "VI" };
+
+    /** Return COUNT machines with random rotors, settings, and plugboards
+     *  from CONFIG, whose non-reflector slots hold FIXED fixed rotors
+     *  followed by moving rotors, using RANDOM. */
+    private static Machine[] machines(Config config, int fixed, int count,
+                                      Random random) {
+        Alphabet alpha = config.alphabet();
+        Machine[] result = new Machine[count];
+        for (int i = 0; i < count; i += 1) {
+            Machine m = config.newMachine();
+            String[] names = new String[config.numRotors()];
+            names[0] = random.nextBoolean() ? "B" : "C";
+            for (int s = 1; s <= fixed; s += 1) {
+                names[s] = random.nextBoolean() ? "Beta" : "Gamma";
+            }
+            int[] order = { 0, 1, 2, 3, 4 };
+            for (int s = fixed + 1; s < names.length; s += 1) {
+                int j = s - fixed - 1 + random.nextInt(5 - (s - fixed - 1));
+                int tmp = order[j];
+                order[j] = order[s - fixed - 1];
+                order[s - fixed - 1] = tmp;
+                names[s] = MOVING[order[s - fixed - 1]];
+            }
+            m.insertRotors(names);
+            StringBuilder setting = new StringBuilder();
+            for (int s = 1; s < names.length; s += 1) {
+                setting.append(alpha.toChar(random.nextInt(alpha.size())));
+            }
+            m.setRotors(setting.toString());
+            m.setPlugboard(new Permutation(random.nextBoolean()
+                                           ? "(AQ) (MZ) (BT)" : "",
+                                           alpha));
+            result[i] = m;
+        }
+        return result;
+    }
+
+    /** Return a random message of at most MAX letters and blanks, using
+     *  RANDOM. */
+    private static String message(int max, Random random) {
+        int len = random.nextInt(max + 1);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < len; i += 1) {
+            result.append(random.nextInt(8) == 0 ? ' '
+                          : (char) ('A' + random.nextInt(26)));
+        }
+        return result.toString();
+    }
+
+    /** Check that KERNEL converts random messages with machines from
+     *  CONFIG with FIXED fixed rotors as Machine.convert does, leaving the
+     *  machines in the same states. */
+    private static void checkKernel(MultiConverter.Kernel kernel,
+                                    Config config, int fixed) {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 20; trial += 1) {
+            int count = 1 + random.nextInt(40);
+            Machine[] machines = machines(config, fixed, count, random);
+            Machine[] expected = new Machine[count];
+            String[] messages = new String[count];
+            for (int i = 0; i < count; i += 1) {
+                expected[i] = machines[i].copy();
+                messages[i] = message(800, random);
+            }
+            String[] results =
+                new MultiConverter(kernel).convert(machines, messages);
+            for (int i = 0; i < count; i += 1) {
+                assertEquals(expected[i].convert(messages[i]), results[i]);
+                assertEquals(expected[i].convert("XYZZY"),
+                             machines[i].convert("XYZZY"));
+            }
+        }
+    }
+
+    /** Return the configuration with NUMROTORS slots and NUMPAWLS
+     *  pawls. */
+    private static Config config(int numRotors, int numPawls) {
+        return new Config("ABCDEFGHIJKLMNOPQRSTUVWXYZ\n" + numRotors
+                          + " " + numPawls + "\n" + ROTORS);
+    }
+
+    @Test
+    public void checkScalar() {
+        checkKernel(new MultiConverter.ScalarKernel(), config(5, 3), 1);
+        checkKernel(new MultiConverter.ScalarKernel(), config(4, 3), 0);
+    }
+
+    @Test
+    public void checkVector() {
+        MultiConverter.Kernel kernel = MultiConverter.vectorKernel();
+        if (kernel != null) {
+            checkKernel(kernel, config(5, 3), 1);
+            checkKernel(kernel, config(4, 3), 0);
+        }
+    }
+
+    @Test
+    public void checkEmpty() {
+        assertEquals(0, new MultiConverter().convert(new Machine[0],
+                                                     new String[0]).length);
+        Machine[] machines = machines(config(5, 3), 1, 2, new Random(1));
+        String[] results =
+            new MultiConverter().convert(machines, new String[]{"", " "});
+        assertEquals("", results[0]);
+        assertEquals("", results[1]);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkBadCharacter() {
+        Machine[] machines = machines(config(5, 3), 1, 1, new Random(1));
+        new MultiConverter().convert(machines, new String[]{"AB1"});
+    }
+
+}
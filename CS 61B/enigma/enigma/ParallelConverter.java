@@ -0,0 +1,116 @@
+package enigma;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static enigma.EnigmaException.*;
+
+/** Converts long messages by splitting them into segments that are
+ *  encrypted concurrently.  Each worker thread converts its segments on
+ *  one copy of the machine, reset to the message's starting position and
+ *  moved to the segment's with Machine.jump, so the result is identical
+ *  to converting the whole message in order.
+ *  @author Alice Wang
+ */
+class ParallelConverter {
+
+    /** Default number of characters in one segment. */
+    static final int DEFAULT_SEGMENT = 1 << 16;
+
+    /** A converter that runs segments of SEGMENT characters on POOL. */
+    ParallelConverter(ForkJoinPool pool, int segment) {
+        if (segment <= 0) {
+            throw error("segment size must be positive");
+        }
+        _pool = pool;
+        _segment = segment;
+    }
+
+    /** A converter using the common pool and the default segment size. */
+    ParallelConverter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEGMENT);
+    }
+
+    /** Returns the encoding/decoding of MSG by MACHINE, ignoring blanks,
+     *  and leaves MACHINE in the state that MACHINE.convert(MSG) would. */
+    String convert(Machine machine, String msg) {
+        Alphabet alpha = machine.alphabet();
+        int[] in = new int[msg.length()];
+        int len = 0;
+        for (int i = 0; i < msg.length(); i += 1) {
+            char ch = msg.charAt(i);
+            if (ch != ' ') {
+                int c = alpha.toInt(ch);
+                if (c < 0) {
+                    throw error("msg chars must be in alphabet");
+                }
+                in[len++] = c;
+            }
+        }
+        char[] out = new char[len];
+        Machine start = machine.copy();
+        Rotor[] rotors = start.getRotors();
+        int[] posns = new int[rotors.length - 1];
+        for (int i = 1; i < rotors.length; i += 1) {
+            posns[i - 1] = rotors[i].setting();
+        }
+        ThreadLocal<Machine> machines = ThreadLocal.withInitial(start::copy);
+        _pool.invoke(new Segment(machines, posns, in, out, 0, len));
+        machine.jump(len);
+        return new String(out);
+    }
+
+    /** The task of converting one range of a message. */
+    private class Segment extends RecursiveAction {
+
+        /** Convert IN[LO .. HI-1] into OUT[LO .. HI-1] on the machine of
+         *  MACHINES for the current thread, where POSNS are the rotor
+         *  positions before IN[0] was converted. */
+        Segment(ThreadLocal<Machine> machines, int[] posns, int[] in,
+                char[] out, int lo, int hi) {
+            _machines = machines;
+            _posns = posns;
+            _in = in;
+            _out = out;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= _segment) {
+                Machine m = _machines.get();
+                Alphabet alpha = m.alphabet();
+                m.setRotors(_posns);
+                m.jump(_lo);
+                for (int i = _lo; i < _hi; i += 1) {
+                    _out[i] = alpha.toChar(m.convert(_in[i]));
+                }
+            } else {
+                int mid = _lo + (_hi - _lo) / 2;
+                invokeAll(new Segment(_machines, _posns, _in, _out, _lo,
+                                      mid),
+                          new Segment(_machines, _posns, _in, _out, mid,
+                                      _hi));
+            }
+        }
+
+        /** The machine of each thread converting the message. */
+        private final ThreadLocal<Machine> _machines;
+        /** Rotor positions before the first character of the message. */
+        private final int[] _posns;
+        /** The message, as alphabet indices. */
+        private final int[] _in;
+        /** The converted message. */
+        private final char[] _out;
+        /** Bounds of my range. */
+        private final int _lo, _hi;
+    }
+
+    /** Pool on which segments run. */
+    private final ForkJoinPool _pool;
+
+    /** Largest number of characters converted by one task. */
+    private final int _segment;
+
+}
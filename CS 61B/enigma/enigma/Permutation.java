@@ -21,6 +21,32 @@ class Permutation {
         _cycles = new ArrayList<String>();
         addAllCycles();
         checkCycleRep();
+        compile();
+    }
+
+    /** Fill in _forward and _inverse from _cycles, so that permute and
+     *  invert are single table lookups. */
+    private void compile() {
+        int n = size();
+        _forward = new int[n];
+        _inverse = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            _forward[i] = i;
+            _inverse[i] = i;
+        }
+        for (String cycle : _cycles) {
+            int[] cps = cycle.codePoints().toArray();
+            int len = cps.length;
+            for (int j = 0; j < len; j += 1) {
+                int from = _alphabet.toInt(cps[j]);
+                int to = _alphabet.toInt(cps[j + 1 == len ? 0 : j + 1]);
+                if (from < 0 || to < 0) {
+                    throw error("cycle character not in alphabet");
+                }
+                _forward[from] = to;
+                _inverse[to] = from;
+            }
+        }
     }
 
     /** add all of the cycles in Permutation to _cycles. */
@@ -43,9 +69,17 @@ class Permutation {
 
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
-        int r = p % size();
+        int n = _forward.length;
+        if (p >= 0 && p < n) {
+            return p;
+        } else if (p >= n && p < 2 * n) {
+            return p - n;
+        } else if (p < 0 && p >= -n) {
+            return p + n;
+        }
+        int r = p % n;
         if (r < 0) {
-            r += size();
+            r += n;
         }
         return r;
     }
@@ -58,45 +92,13 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int charIn = wrap(p);
-        char cIn = _alphabet.toChar(charIn);
-        char permOut = cIn;
-        for (int i = 0; i < _cycles.size(); i++) {
-            String cur = _cycles.get(i);
-            for (int j = 0; j < cur.length(); j++) {
-                if (cIn == cur.charAt(j)) {
-                    if (j == cur.length() - 1) {
-                        permOut = cur.charAt(0);
-                    } else {
-                        permOut = cur.charAt(j + 1);
-                    }
-                }
-            }
-        }
-        int permIn = _alphabet.toInt(permOut);
-        return permIn;
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int inverCharInd = wrap(c);
-        char invercIn = _alphabet.toChar(inverCharInd);
-        char inverPermOut = invercIn;
-        for (int i = 0; i < _cycles.size(); i++) {
-            String cur = _cycles.get(i);
-            for (int j = 0; j < cur.length(); j++) {
-                if (invercIn == cur.charAt(j)) {
-                    if (j == 0) {
-                        inverPermOut = cur.charAt(cur.length() - 1);
-                    } else {
-                        inverPermOut = cur.charAt(j - 1);
-                    }
-                }
-            }
-        }
-        int inverPOIn = _alphabet.toInt(inverPermOut);
-        return inverPOIn;
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -124,19 +126,12 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        int check = 0;
-        for (int i = 0; i < _cycles.size(); i++) {
-            String curr = _cycles.get(i);
-            if (curr.length() == 1) {
+        for (int i = 0; i < _forward.length; i += 1) {
+            if (_forward[i] == i) {
                 return false;
             }
-            for (int j = 0; j < curr.length(); j++) {
-                if (_alphabet.contains(curr.charAt(j))) {
-                    check++;
-                }
-            }
         }
-        return (check == _alphabet.size());
+        return true;
     }
 
     /**
@@ -168,13 +163,11 @@ class Permutation {
 
     /** check if there are repeating letters in cycle. */
     public void checkCycleRep() {
-        String check = "";
+        StringBuilder check = new StringBuilder();
         for (int i = 0; i < _cycles.size(); i++) {
-            for (int j = 0; j < _cycles.get(i).length(); j++) {
-                check += _cycles.get(i).charAt(j);
-            }
+            check.append(_cycles.get(i));
         }
-        _alphabet.checkRepeat(check);
+        _alphabet.checkRepeat(check.toString());
     }
 
     /** Alphabet of this permutation. */
@@ -186,4 +179,10 @@ class Permutation {
     /** original cycle string of this permutation. */
     private String _oldcycle;
 
+    /** _forward[K] is the result of permuting index K. */
+    private int[] _forward;
+
+    /** _inverse[K] is the result of inverting index K. */
+    private int[] _inverse;
+
 }
@@ -111,5 +111,26 @@ public class PermutationTest {
 
     }
 
+    @Test
+    public void checkNavalAPermutations() {
+        for (String name : NAVALA.keySet()) {
+            if (NAVALA_MAP.containsKey(name)) {
+                perm = new Permutation(NAVALA.get(name), UPPER);
+                checkPerm(name, UPPER_STRING, NAVALA_MAP.get(name));
+            }
+        }
+    }
 
+    @Test
+    public void checkWrapAround() {
+        perm = new Permutation("(AB) (CZ)", UPPER);
+        assertEquals(1, perm.permute(26));
+        assertEquals(2, perm.permute(-1));
+        assertEquals(25, perm.invert(-24));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkCharNotInAlphabet() {
+        new Permutation("(AB) (C1)", UPPER);
+    }
 }
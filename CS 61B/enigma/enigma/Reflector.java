@@ -24,6 +24,11 @@ class Reflector extends FixedRotor {
     void advance() {
     }
 
+    @Override
+    Rotor copy() {
+        return new Reflector(name(), permutation());
+    }
+
     @Override
     void set(int posn) {
         if (posn != 0) {
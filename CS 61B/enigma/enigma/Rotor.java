@@ -81,10 +81,24 @@ class Rotor {
         return false;
     }
 
+    /** Return the number of advances needed before atNotch() is true,
+     *  which is 0 if I am at a notch now, or -1 if I never will be. */
+    int stepsToNotch() {
+        return -1;
+    }
+
     /** Advance me one position, if possible. By default, does nothing. */
     void advance() {
     }
 
+    /** Return a new rotor like me, in my current setting, that shares no
+     *  mutable state with me. */
+    Rotor copy() {
+        Rotor result = new Rotor(_name, _permutation);
+        result.set(_setting);
+        return result;
+    }
+
     @Override
     public String toString() {
         return "Rotor " + _name;
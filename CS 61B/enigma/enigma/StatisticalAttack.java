@@ -0,0 +1,453 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only attack on a machine's key.  The search runs in two
+ *  stages.  First, every rotor order and starting position is tried with
+ *  an empty plugboard, and the settings whose decryptions have the
+ *  highest index of coincidence are kept.  Second, for each survivor,
+ *  plugboard pairs are added, swapped, and removed by hill-climbing on a
+ *  fitness score: the log-likelihood under an n-gram model, when one is
+ *  supplied, and otherwise the index of coincidence.  Rotor orders are
+ *  searched in parallel, one machine per worker thread, and all scoring
+ *  works on int arrays of alphabet indices.
+ *  @author Alice Wang
+ */
+class StatisticalAttack {
+
+    /** Default number of settings kept from the first stage. */
+    static final int DEFAULT_KEEP = 20;
+
+    /** Usage: java enigma.StatisticalAttack CONFIG CIPHERTEXT_FILE
+     *  [CORPUS_FILE].  Prints the best settings found as setting lines,
+     *  best first, each followed by its score. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 2 || args.length > 3) {
+                throw error("Usage: java enigma.StatisticalAttack CONFIG "
+                            + "CIPHERTEXT_FILE [CORPUS_FILE]");
+            }
+            Machine machine = Config.read(args[0]).newMachine();
+            NgramModel model = null;
+            if (args.length > 2) {
+                try (Reader corpus = Files.newBufferedReader(
+                         Paths.get(args[2]), Charset.defaultCharset())) {
+                    model = new NgramModel(machine.alphabet(), corpus,
+                                           NgramModel.DEFAULT_ORDER);
+                }
+            }
+            String text = new String(Files.readAllBytes(Paths.get(args[1])),
+                                     Charset.defaultCharset());
+            StatisticalAttack attack =
+                new StatisticalAttack(machine, text, model, DEFAULT_KEEP);
+            for (Candidate c : attack.run(ForkJoinPool.commonPool())) {
+                System.out.printf("%s\t%.4f%n", c, c.score());
+            }
+            return;
+        } catch (IOException excp) {
+            System.err.printf("Error: could not read file: %s%n",
+                              excp.getMessage());
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** An attack on CIPHERTEXT using the rotors available to MACHINE,
+     *  keeping the KEEP best rotor settings from the first stage and
+     *  scoring plugboards with MODEL (or by index of coincidence if MODEL
+     *  is null).  Characters of CIPHERTEXT that are whitespace are
+     *  ignored.  MACHINE is not modified. */
+    StatisticalAttack(Machine machine, String ciphertext, NgramModel model,
+                      int keep) {
+        if (keep <= 0) {
+            throw error("number of settings kept must be positive");
+        }
+        _machine = machine;
+        Machine start = machine.copy();
+        _machines = ThreadLocal.withInitial(start::copy);
+        _alphabet = machine.alphabet();
+        _model = model;
+        _keep = keep;
+        int[] cipher = new int[ciphertext.length()];
+        int len = 0;
+        for (int i = 0; i < ciphertext.length(); i += 1) {
+            char ch = ciphertext.charAt(i);
+            if (!Character.isWhitespace(ch)) {
+                int c = _alphabet.toInt(ch);
+                if (c < 0) {
+                    throw error("character %c not in alphabet", ch);
+                }
+                cipher[len++] = c;
+            }
+        }
+        if (len < 2) {
+            throw error("ciphertext is too short");
+        }
+        _cipher = Arrays.copyOf(cipher, len);
+    }
+
+    /** Run both stages, searching rotor orders on POOL, and return the
+     *  best candidates found, best first. */
+    List<Candidate> run(ForkJoinPool pool) {
+        List<Candidate> found = new ArrayList<>();
+        for (Candidate c : invokeAll(pool, rotorTasks())) {
+            found.add(c);
+        }
+        found.sort(BEST_FIRST);
+        if (found.size() > _keep) {
+            found = new ArrayList<>(found.subList(0, _keep));
+        }
+        List<Callable<List<Candidate>>> tasks = new ArrayList<>();
+        for (Candidate c : found) {
+            tasks.add(() -> List.of(climb(c)));
+        }
+        List<Candidate> result = invokeAll(pool, tasks);
+        result.sort(BEST_FIRST);
+        return result;
+    }
+
+    /** Return one first-stage task for each rotor order. */
+    private List<Callable<List<Candidate>>> rotorTasks() {
+        List<Callable<List<Candidate>>> tasks = new ArrayList<>();
+        for (String[] order : _machine.rotorOrders()) {
+            tasks.add(() -> searchRotors(order));
+        }
+        return tasks;
+    }
+
+    /** Run TASKS on POOL and return all their results. */
+    private List<Candidate> invokeAll(ForkJoinPool pool,
+                                      List<Callable<List<Candidate>>> tasks) {
+        List<Candidate> result = new ArrayList<>();
+        try {
+            for (Future<List<Candidate>> f : pool.invokeAll(tasks)) {
+                result.addAll(f.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof EnigmaException) {
+                throw (EnigmaException) cause;
+            }
+            throw error("search failed: %s", excp);
+        }
+        return result;
+    }
+
+    /** Try every starting position for rotor order ORDER with an empty
+     *  plugboard, and return the (at most _keep) best by index of
+     *  coincidence.  Runs on this thread's machine. */
+    private List<Candidate> searchRotors(String[] order) {
+        Machine m = _machines.get();
+        m.insertRotors(order);
+        int size = _alphabet.size();
+        int[] posns = new int[m.numRotors() - 1];
+        int[] plain = new int[_cipher.length];
+        int[] counts = new int[size];
+        PriorityQueue<Candidate> best =
+            new PriorityQueue<>(BEST_FIRST.reversed());
+        do {
+            m.setRotors(posns);
+            for (int p = 0; p < _cipher.length; p += 1) {
+                m.advanceAll();
+                plain[p] = m.scramble(_cipher[p]);
+            }
+            double score = indexOfCoincidence(plain, counts);
+            if (best.size() < _keep || score > best.peek().score()) {
+                if (best.size() == _keep) {
+                    best.poll();
+                }
+                best.add(new Candidate(order, posns, null, score));
+            }
+        } while (Machine.nextPositions(posns, size));
+        return new ArrayList<>(best);
+    }
+
+    /** Return the result of hill-climbing on the plugboard of START,
+     *  keeping its rotor order and positions.  Runs on this thread's
+     *  machine. */
+    private Candidate climb(Candidate start) {
+        Machine m = _machines.get();
+        m.insertRotors(start._order);
+        m.setRotors(start._posns);
+        int size = _alphabet.size();
+        int len = _cipher.length;
+        int[][] scrambler = new int[len][size];
+        for (int p = 0; p < len; p += 1) {
+            m.advanceAll();
+            int[] row = scrambler[p];
+            for (int x = 0; x < size; x += 1) {
+                row[x] = m.scramble(x);
+            }
+        }
+        int[] plugs = new int[size];
+        for (int x = 0; x < size; x += 1) {
+            plugs[x] = x;
+        }
+        int[] plain = new int[len];
+        int[] counts = new int[size];
+        double score = fitness(scrambler, plugs, plain, counts);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int a = 0; a < size; a += 1) {
+                for (int b = a + 1; b < size; b += 1) {
+                    int oldA = plugs[a], oldB = plugs[b];
+                    repair(plugs, a, b);
+                    double s = fitness(scrambler, plugs, plain, counts);
+                    if (s > score) {
+                        score = s;
+                        improved = true;
+                    } else {
+                        undo(plugs, a, b, oldA, oldB);
+                    }
+                }
+            }
+        }
+        return new Candidate(start._order, start._posns, plugs, score);
+    }
+
+    /** Modify the plugboard PLUGS so that A and B are plugged together,
+     *  releasing their previous partners.  If A and B are already
+     *  plugged together, unplug them instead. */
+    private static void repair(int[] plugs, int a, int b) {
+        if (plugs[a] == b) {
+            plugs[a] = a;
+            plugs[b] = b;
+            return;
+        }
+        plugs[plugs[a]] = plugs[a];
+        plugs[plugs[b]] = plugs[b];
+        plugs[a] = b;
+        plugs[b] = a;
+    }
+
+    /** Restore PLUGS after repair(PLUGS, A, B), given that A and B were
+     *  previously plugged to OLDA and OLDB. */
+    private static void undo(int[] plugs, int a, int b, int oldA, int oldB) {
+        plugs[a] = a;
+        plugs[b] = b;
+        plugs[oldA] = a;
+        plugs[a] = oldA;
+        plugs[oldB] = b;
+        plugs[b] = oldB;
+    }
+
+    /** Return the fitness of the decryption of the ciphertext under
+     *  plugboard PLUGS, where SCRAMBLER[P] is the unplugged scrambler at
+     *  position P.  PLAIN receives the decryption; COUNTS is scratch
+     *  space. */
+    private double fitness(int[][] scrambler, int[] plugs, int[] plain,
+                           int[] counts) {
+        for (int p = 0; p < plain.length; p += 1) {
+            plain[p] = plugs[scrambler[p][plugs[_cipher[p]]]];
+        }
+        if (_model == null) {
+            return indexOfCoincidence(plain, counts);
+        }
+        return _model.score(plain);
+    }
+
+    /** Return the index of coincidence of TEXT, using COUNTS (one entry
+     *  per alphabet character) as scratch space. */
+    static double indexOfCoincidence(int[] text, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int c : text) {
+            counts[c] += 1;
+        }
+        long sum = 0;
+        for (int f : counts) {
+            sum += (long) f * (f - 1);
+        }
+        long n = text.length;
+        return n < 2 ? 0 : (double) sum / (n * (n - 1));
+    }
+
+    /** Orders candidates by decreasing score. */
+    private static final Comparator<Candidate> BEST_FIRST =
+        Comparator.comparingDouble(Candidate::score).reversed();
+
+    /** Log-probabilities of the n-grams of an alphabet, estimated from a
+     *  training text. */
+    static class NgramModel {
+
+        /** Default n-gram length. */
+        static final int DEFAULT_ORDER = 3;
+
+        /** Largest number of table entries. */
+        private static final int MAX_ENTRIES = 1 << 24;
+
+        /** A model of the N-grams of ALPHABET trained on the characters
+         *  of CORPUS that are in ALPHABET (others are ignored).  N is
+         *  reduced if the table would be too large. */
+        NgramModel(Alphabet alphabet, Reader corpus, int n)
+            throws IOException {
+            int size = alphabet.size();
+            int order = Math.max(1, n);
+            while (order > 1 && Math.pow(size, order) > MAX_ENTRIES) {
+                order -= 1;
+            }
+            _n = order;
+            _size = size;
+            _span = (int) Math.pow(size, order - 1);
+            long[] counts = new long[_span * size];
+            char[] buf = new char[MessageStream.BUFFER_SIZE];
+            int key = 0, seen = 0;
+            long total = 0;
+            for (int k = corpus.read(buf); k != -1; k = corpus.read(buf)) {
+                for (int i = 0; i < k; i += 1) {
+                    int c = alphabet.toInt(buf[i]);
+                    if (c < 0) {
+                        c = alphabet.toInt(Character.toUpperCase(buf[i]));
+                        if (c < 0) {
+                            continue;
+                        }
+                    }
+                    key = (key % _span) * size + c;
+                    seen += 1;
+                    if (seen >= _n) {
+                        counts[key] += 1;
+                        total += 1;
+                    }
+                }
+            }
+            if (total == 0) {
+                throw error("corpus has no %d-grams", _n);
+            }
+            _logProb = new float[counts.length];
+            double floor = Math.log(0.01 / total);
+            for (int i = 0; i < counts.length; i += 1) {
+                _logProb[i] = (float) (counts[i] == 0 ? floor
+                                       : Math.log((double) counts[i] / total));
+            }
+        }
+
+        /** Return the n-gram length. */
+        int order() {
+            return _n;
+        }
+
+        /** Return the average log-probability of the n-grams of TEXT, a
+         *  sequence of alphabet indices. */
+        double score(int[] text) {
+            if (text.length < _n) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            int key = 0;
+            double sum = 0;
+            for (int i = 0; i < text.length; i += 1) {
+                key = (key % _span) * _size + text[i];
+                if (i >= _n - 1) {
+                    sum += _logProb[key];
+                }
+            }
+            return sum / (text.length - _n + 1);
+        }
+
+        /** N-gram length. */
+        private final int _n;
+        /** Alphabet size. */
+        private final int _size;
+        /** Number of (n-1)-grams. */
+        private final int _span;
+        /** Log-probability of each n-gram, indexed in base _size. */
+        private final float[] _logProb;
+    }
+
+    /** A rotor order, starting position, and plugboard, with the score
+     *  of the decryption they produce. */
+    class Candidate {
+
+        /** A candidate using rotors ORDER at positions POSNS and plugboard
+         *  partners PLUGS (null for an empty plugboard), scoring SCORE. */
+        Candidate(String[] order, int[] posns, int[] plugs, double score) {
+            _order = order.clone();
+            _posns = posns.clone();
+            _plugs = plugs == null ? null : plugs.clone();
+            _score = score;
+        }
+
+        /** Return the rotor names, reflector first. */
+        String[] rotors() {
+            return _order.clone();
+        }
+
+        /** Return the starting rotor positions, as for setRotors. */
+        String setting() {
+            StringBuilder result = new StringBuilder();
+            for (int p : _posns) {
+                result.append(_alphabet.toChar(p));
+            }
+            return result.toString();
+        }
+
+        /** Return the plugboard pairs, in cycle notation. */
+        String plugboard() {
+            StringBuilder result = new StringBuilder();
+            for (int x = 0; _plugs != null && x < _plugs.length; x += 1) {
+                if (_plugs[x] > x) {
+                    result.append(result.length() == 0 ? "" : " ")
+                        .append('(').append(_alphabet.toChar(x))
+                        .append(_alphabet.toChar(_plugs[x])).append(')');
+                }
+            }
+            return result.toString();
+        }
+
+        /** Return the score of the decryption under this candidate. */
+        double score() {
+            return _score;
+        }
+
+        /** Returns this candidate as a setting line for Main. */
+        @Override
+        public String toString() {
+            return ("* " + String.join(" ", _order) + " " + setting() + " "
+                    + plugboard()).trim();
+        }
+
+        /** Rotor names, reflector first. */
+        private final String[] _order;
+        /** Starting rotor positions. */
+        private final int[] _posns;
+        /** Plugboard partners, or null. */
+        private final int[] _plugs;
+        /** Fitness of the decryption. */
+        private final double _score;
+    }
+
+    /** The machine whose rotors are searched. */
+    private final Machine _machine;
+
+    /** The machine each worker thread searches with, a copy of
+     *  _machine made on the thread's first task. */
+    private final ThreadLocal<Machine> _machines;
+
+    /** Alphabet of _machine. */
+    private final Alphabet _alphabet;
+
+    /** The ciphertext, as alphabet indices. */
+    private final int[] _cipher;
+
+    /** Plugboard scoring model, or null to use index of coincidence. */
+    private final NgramModel _model;
+
+    /** Number of settings kept from the first stage. */
+    private final int _keep;
+
+}
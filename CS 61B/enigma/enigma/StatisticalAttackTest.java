@@ -0,0 +1,84 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the StatisticalAttack class.
+ *  @author Alice Wang
+ */
+public class StatisticalAttackTest {
+
+    /** English text used as plaintext and as a training corpus. */
+    private static final String ENGLISH =
+        "IT WAS THE BEST OF TIMES IT WAS THE WORST OF TIMES IT WAS THE AGE "
+        + "OF WISDOM IT WAS THE AGE OF FOOLISHNESS IT WAS THE EPOCH OF "
+        + "BELIEF IT WAS THE EPOCH OF INCREDULITY IT WAS THE SEASON OF LIGHT "
+        + "IT WAS THE SEASON OF DARKNESS IT WAS THE SPRING OF HOPE IT WAS THE "
+        + "WINTER OF DESPAIR WE HAD EVERYTHING BEFORE US WE HAD NOTHING "
+        + "BEFORE US WE WERE ALL GOING DIRECT TO HEAVEN WE WERE ALL GOING "
+        + "DIRECT THE OTHER WAY";
+
+    @Test
+    public void checkIndexOfCoincidence() {
+        int[] counts = new int[4];
+        assertEquals(1.0, StatisticalAttack.indexOfCoincidence(
+                         new int[]{2, 2, 2, 2}, counts), 1e-9);
+        assertEquals(0.0, StatisticalAttack.indexOfCoincidence(
+                         new int[]{0, 1, 2, 3}, counts), 1e-9);
+        assertEquals(4.0 / 12, StatisticalAttack.indexOfCoincidence(
+                         new int[]{0, 0, 1, 1}, counts), 1e-9);
+    }
+
+    @Test
+    public void checkNgramModelPrefersEnglish() throws Exception {
+        StatisticalAttack.NgramModel model =
+            new StatisticalAttack.NgramModel(alphabet1,
+                                             new StringReader(ENGLISH), 3);
+        assertEquals(3, model.order());
+        int[] english = new int[20], noise = new int[20];
+        String text = ENGLISH.replace(" ", "");
+        for (int i = 0; i < 20; i += 1) {
+            english[i] = alphabet1.toInt(text.charAt(i + 40));
+            noise[i] = (i * 7 + 3) % 26;
+        }
+        assertTrue(model.score(english) > model.score(noise));
+    }
+
+    /** Settings that differ only by a double step of the middle rotor
+     *  (such as PVE and QWE here) are indistinguishable, so the recovered
+     *  setting is checked by decrypting with it. */
+    @Test
+    public void checkRecoversSetting() throws Exception {
+        Machine m = new Machine(alphabet1, 4, 3, ALL_ROTORS);
+        m.insertRotors(new String[]{"B", "III", "IV", "I"});
+        m.setRotors("QWE");
+        m.setPlugboard(new Permutation("(AK) (CD) (XY)", alphabet1));
+        String cipher = m.convert(ENGLISH);
+
+        StatisticalAttack.NgramModel model =
+            new StatisticalAttack.NgramModel(alphabet1,
+                                             new StringReader(ENGLISH), 3);
+        StatisticalAttack attack = new StatisticalAttack(m, cipher, model, 5);
+        List<StatisticalAttack.Candidate> result =
+            attack.run(ForkJoinPool.commonPool());
+        StatisticalAttack.Candidate best = result.get(0);
+        assertEquals("B III IV I", String.join(" ", best.rotors()));
+        assertEquals("(AK) (CD) (XY)", best.plugboard());
+        m.insertRotors(best.rotors());
+        m.setRotors(best.setting());
+        m.setPlugboard(new Permutation(best.plugboard(), alphabet1));
+        assertEquals(ENGLISH.replace(" ", ""), m.convert(cipher));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkRejectsForeignCharacters() {
+        Machine m = new Machine(alphabet1, 4, 3, ALL_ROTORS);
+        new StatisticalAttack(m, "ABC1", null, 5);
+    }
+}
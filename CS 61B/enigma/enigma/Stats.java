@@ -0,0 +1,374 @@
+package enigma;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/** Optional counters and histograms of the work done by the simulator.
+ *  Collection is off unless enabled, either by enable (as Main does for
+ *  --stats) or by the system property enigma.stats=true; when off,
+ *  each instrumented point costs one test of a static flag, and none is
+ *  on the per-character path.  Per-character work is counted in the
+ *  callers and reported once per message line.  The counters are
+ *  thread-safe, so batch workers share them, and are exported through
+ *  JMX as enigma:type=Stats (see StatsMXBean).
+ *  @author Alice Wang
+ */
+final class Stats {
+
+    /** Name under which the statistics are registered with JMX. */
+    static final String OBJECT_NAME = "enigma:type=Stats";
+
+    /** Not instantiable. */
+    private Stats() {
+    }
+
+    /** Return true iff statistics are being collected. */
+    static boolean enabled() {
+        return _enabled;
+    }
+
+    /** Start collecting statistics, and register them with the platform
+     *  MBean server if they are not already registered. */
+    static synchronized void enable() {
+        if (!_enabled) {
+            _start = System.nanoTime();
+            _enabled = true;
+        }
+        if (!_registered) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException excp) {
+                /* Statistics remain available through dump. */
+            }
+            _registered = true;
+        }
+    }
+
+    /** Stop collecting statistics. */
+    static synchronized void disable() {
+        _enabled = false;
+    }
+
+    /** Clear all counters and histograms. */
+    static synchronized void reset() {
+        CHARACTERS.reset();
+        MESSAGES.reset();
+        SETTING_LINES.reset();
+        KEYSTREAM_COMPILES.reset();
+        NOTCH_STEPS.clear();
+        PARSE_NANOS.reset();
+        SET_UP_NANOS.reset();
+        MESSAGE_LENGTHS.reset();
+        PROCESS_NANOS.reset();
+        _start = System.nanoTime();
+    }
+
+    /** Record a message line of LENGTH characters. */
+    static void message(long length) {
+        CHARACTERS.add(length);
+        MESSAGES.increment();
+        MESSAGE_LENGTHS.record(length);
+    }
+
+    /** Record a setting line applied in NANOS nanoseconds. */
+    static void settingLine(long nanos) {
+        SETTING_LINES.increment();
+        SET_UP_NANOS.record(nanos);
+    }
+
+    /** Record the compilation of a keystream. */
+    static void keystreamCompiled() {
+        KEYSTREAM_COMPILES.increment();
+    }
+
+    /** Record a step of the rotor named ROTOR caused by a notch. */
+    static void notchStep(String rotor) {
+        NOTCH_STEPS.computeIfAbsent(rotor, k -> new LongAdder()).increment();
+    }
+
+    /** Record a configuration parsed in NANOS nanoseconds. */
+    static void parsed(long nanos) {
+        PARSE_NANOS.record(nanos);
+    }
+
+    /** Record an input file processed in NANOS nanoseconds. */
+    static void processed(long nanos) {
+        PROCESS_NANOS.record(nanos);
+    }
+
+    /** Return the number of message characters converted. */
+    static long characters() {
+        return CHARACTERS.sum();
+    }
+
+    /** Return the number of message lines converted. */
+    static long messages() {
+        return MESSAGES.sum();
+    }
+
+    /** Return the number of setting lines applied. */
+    static long settingLines() {
+        return SETTING_LINES.sum();
+    }
+
+    /** Return the number of keystreams compiled. */
+    static long keystreamCompiles() {
+        return KEYSTREAM_COMPILES.sum();
+    }
+
+    /** Return the number of notch-triggered steps of each rotor, in
+     *  order of rotor name. */
+    static Map<String, Long> notchSteps() {
+        Map<String, Long> result = new TreeMap<>();
+        NOTCH_STEPS.forEach((name, count) -> result.put(name, count.sum()));
+        return result;
+    }
+
+    /** Return the number of seconds since statistics were enabled or
+     *  reset. */
+    static double elapsedSeconds() {
+        return (System.nanoTime() - _start) * 1e-9;
+    }
+
+    /** Return the number of message characters converted per second
+     *  since statistics were enabled or reset. */
+    static double charactersPerSecond() {
+        double elapsed = elapsedSeconds();
+        return elapsed <= 0 ? 0 : characters() / elapsed;
+    }
+
+    /** Print a report of all statistics on OUT. */
+    static void dump(PrintStream out) {
+        out.printf("enigma statistics (%.3f s)%n", elapsedSeconds());
+        out.printf("  %-20s %d (%.0f/s)%n", "characters", characters(),
+                   charactersPerSecond());
+        out.printf("  %-20s %d%n", "messages", messages());
+        out.printf("  %-20s %d%n", "setting lines", settingLines());
+        out.printf("  %-20s %d%n", "keystream compiles",
+                   keystreamCompiles());
+        notchSteps().forEach((name, count) ->
+            out.printf("  %-20s %d%n", "notch steps " + name, count));
+        out.printf("  %-20s %s%n", "config parse (ns)", PARSE_NANOS);
+        out.printf("  %-20s %s%n", "set up (ns)", SET_UP_NANOS);
+        out.printf("  %-20s %s%n", "message length", MESSAGE_LENGTHS);
+        out.printf("  %-20s %s%n", "process (ns)", PROCESS_NANOS);
+    }
+
+    /** A histogram of non-negative values, in buckets bounded by powers
+     *  of two, so that recording is a few atomic additions. */
+    static final class Histogram {
+
+        /** Record VALUE, treating negative values as 0. */
+        void record(long value) {
+            value = Math.max(0, value);
+            _buckets.incrementAndGet(bucket(value));
+            _count.increment();
+            _sum.add(value);
+            _max.accumulateAndGet(value, Math::max);
+        }
+
+        /** Return the number of values recorded. */
+        long count() {
+            return _count.sum();
+        }
+
+        /** Return the mean of the values recorded, or 0 if there are
+         *  none. */
+        long mean() {
+            long count = count();
+            return count == 0 ? 0 : _sum.sum() / count;
+        }
+
+        /** Return the largest value recorded, or 0 if there are none. */
+        long max() {
+            return _max.get();
+        }
+
+        /** Return an upper bound on the FRACTION quantile of the values
+         *  recorded: the top of its bucket, but no more than max(). */
+        long quantile(double fraction) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i += 1) {
+                seen += _buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(max(), i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return max();
+        }
+
+        /** Return my summary: count, mean, and several quantiles. */
+        Map<String, Long> summary() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("count", count());
+            result.put("mean", mean());
+            result.put("p50", quantile(0.5));
+            result.put("p90", quantile(0.9));
+            result.put("p99", quantile(0.99));
+            result.put("max", max());
+            return result;
+        }
+
+        /** Forget all values recorded. */
+        void reset() {
+            for (int i = 0; i < BUCKETS; i += 1) {
+                _buckets.set(i, 0);
+            }
+            _count.reset();
+            _sum.reset();
+            _max.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return summary().toString();
+        }
+
+        /** Return the bucket of VALUE: 0 for 0, and otherwise one more
+         *  than the position of its highest one bit. */
+        private static int bucket(long value) {
+            return 64 - Long.numberOfLeadingZeros(value);
+        }
+
+        /** Number of buckets. */
+        private static final int BUCKETS = 65;
+
+        /** Number of values in each bucket. */
+        private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+
+        /** Number of values recorded. */
+        private final LongAdder _count = new LongAdder();
+
+        /** Sum of the values recorded. */
+        private final LongAdder _sum = new LongAdder();
+
+        /** Largest value recorded. */
+        private final AtomicLong _max = new AtomicLong();
+    }
+
+    /** The JMX view of the statistics. */
+    private static final class Bean implements StatsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return enabled();
+        }
+
+        @Override
+        public long getCharacters() {
+            return characters();
+        }
+
+        @Override
+        public long getMessages() {
+            return messages();
+        }
+
+        @Override
+        public double getCharactersPerSecond() {
+            return charactersPerSecond();
+        }
+
+        @Override
+        public long getSettingLines() {
+            return settingLines();
+        }
+
+        @Override
+        public long getKeystreamCompiles() {
+            return keystreamCompiles();
+        }
+
+        @Override
+        public Map<String, Long> getNotchSteps() {
+            return Collections.unmodifiableMap(notchSteps());
+        }
+
+        @Override
+        public Map<String, Long> getParseNanos() {
+            return PARSE_NANOS.summary();
+        }
+
+        @Override
+        public Map<String, Long> getSetUpNanos() {
+            return SET_UP_NANOS.summary();
+        }
+
+        @Override
+        public Map<String, Long> getMessageLengths() {
+            return MESSAGE_LENGTHS.summary();
+        }
+
+        @Override
+        public Map<String, Long> getProcessNanos() {
+            return PROCESS_NANOS.summary();
+        }
+
+        @Override
+        public void reset() {
+            Stats.reset();
+        }
+    }
+
+    /** Message characters converted. */
+    private static final LongAdder CHARACTERS = new LongAdder();
+
+    /** Message lines converted. */
+    private static final LongAdder MESSAGES = new LongAdder();
+
+    /** Setting lines applied. */
+    private static final LongAdder SETTING_LINES = new LongAdder();
+
+    /** Keystreams compiled. */
+    private static final LongAdder KEYSTREAM_COMPILES = new LongAdder();
+
+    /** Notch-triggered steps, by rotor name. */
+    private static final Map<String, LongAdder> NOTCH_STEPS =
+        new ConcurrentHashMap<>();
+
+    /** Configuration parse times, in nanoseconds. */
+    private static final Histogram PARSE_NANOS = new Histogram();
+
+    /** Setting-line set-up times, in nanoseconds. */
+    private static final Histogram SET_UP_NANOS = new Histogram();
+
+    /** Message lengths, in characters. */
+    private static final Histogram MESSAGE_LENGTHS = new Histogram();
+
+    /** Input file processing times, in nanoseconds. */
+    private static final Histogram PROCESS_NANOS = new Histogram();
+
+    /** True iff statistics are being collected. */
+    private static boolean _enabled;
+
+    /** True once registration with JMX has been attempted. */
+    private static boolean _registered;
+
+    /** Value of System.nanoTime() when statistics were enabled or
+     *  reset. */
+    private static volatile long _start = System.nanoTime();
+
+    static {
+        if (Boolean.getBoolean("enigma.stats")) {
+            enable();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package enigma;
+
+import java.util.Map;
+
+/** The management interface of the enigma statistics (see Stats),
+ *  registered as enigma:type=Stats.  Histograms are reported as maps
+ *  with the keys count, mean, p50, p90, p99, and max.
+ *  @author Alice Wang
+ */
+public interface StatsMXBean {
+
+    /** Return true iff statistics are being collected. */
+    boolean isEnabled();
+
+    /** Return the number of message characters converted. */
+    long getCharacters();
+
+    /** Return the number of message lines converted. */
+    long getMessages();
+
+    /** Return the number of message characters converted per second
+     *  since statistics were enabled or reset. */
+    double getCharactersPerSecond();
+
+    /** Return the number of setting lines applied. */
+    long getSettingLines();
+
+    /** Return the number of keystreams compiled. */
+    long getKeystreamCompiles();
+
+    /** Return the number of notch-triggered steps of each rotor, by
+     *  rotor name. */
+    Map<String, Long> getNotchSteps();
+
+    /** Return the histogram of configuration parse times, in
+     *  nanoseconds. */
+    Map<String, Long> getParseNanos();
+
+    /** Return the histogram of setting-line set-up times, in
+     *  nanoseconds. */
+    Map<String, Long> getSetUpNanos();
+
+    /** Return the histogram of message lengths, in characters. */
+    Map<String, Long> getMessageLengths();
+
+    /** Return the histogram of times to process an input file, in
+     *  nanoseconds. */
+    Map<String, Long> getProcessNanos();
+
+    /** Clear all counters and histograms. */
+    void reset();
+
+}
@@ -0,0 +1,60 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Stats class.
+ *  @author Alice Wang
+ */
+public class StatsTest {
+
+    @Test
+    public void checkHistogram() {
+        Stats.Histogram h = new Stats.Histogram();
+        assertEquals(0, h.quantile(0.5));
+        for (long v = 1; v <= 100; v += 1) {
+            h.record(v);
+        }
+        assertEquals(100, h.count());
+        assertEquals(50, h.mean());
+        assertEquals(100, h.max());
+        assertEquals(63, h.quantile(0.5));
+        assertEquals(100, h.quantile(0.99));
+        h.record(-5);
+        assertEquals(0, h.quantile(0.001));
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.max());
+    }
+
+    @Test
+    public void checkCounters() throws IOException {
+        Stats.enable();
+        try {
+            Stats.reset();
+            Machine m = new Machine(UPPER, 5, 3, ALL_ROTORS);
+            new MessageStream(m, new StringWriter())
+                .process(new StringReader("* B Beta III IV I AXLE (HQ)\n"
+                                          + "HELLO WORLD\n\nABC\n"));
+            assertEquals(13, Stats.characters());
+            assertEquals(3, Stats.messages());
+            assertEquals(1, Stats.settingLines());
+            assertEquals(0, Stats.keystreamCompiles());
+            long steps = Stats.notchSteps().getOrDefault("IV", 0L);
+            m.setRotors("AAAQ");
+            m.convert(0);
+            assertEquals(steps + 1, (long) Stats.notchSteps().get("IV"));
+            assertNull(Stats.notchSteps().get("I"));
+        } finally {
+            Stats.disable();
+            Stats.reset();
+        }
+    }
+
+}
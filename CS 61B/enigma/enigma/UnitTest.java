@@ -11,7 +11,10 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(PermutationTest.class, MovingRotorTest.class,
-                MachineTest.class);
+                MachineTest.class, BombeTest.class,
+                StatisticalAttackTest.class, ConfigTest.class,
+                AlphabetTest.class, KeystreamTest.class,
+                MultiConverterTest.class, StatsTest.class);
     }
 
 }
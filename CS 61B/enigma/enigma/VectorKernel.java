@@ -0,0 +1,104 @@
+package enigma;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** A MultiConverter kernel that processes as many lanes at once as fit
+ *  in the preferred vector shape of the platform.  Settings, notches,
+ *  and characters of consecutive lanes are loaded as vectors; each table
+ *  lookup is a gather, whose index map must (in this version of the
+ *  Vector API) pass through an int array.  This class needs the
+ *  jdk.incubator.vector module, so it is only loaded reflectively, by
+ *  MultiConverter.vectorKernel.
+ *  @author Alice Wang
+ */
+final class VectorKernel implements MultiConverter.Kernel {
+
+    /** Vector shape used for all operations. */
+    private static final VectorSpecies<Integer> SPECIES =
+        IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public int width() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void step(MultiConverter.Lanes lanes, int t, int active) {
+        int n = lanes.slots;
+        int[] fwd = lanes.forward, inv = lanes.inverse;
+        int[] notch = lanes.notch, plug = lanes.plug;
+        int row = t * lanes.width;
+        int[] index = _index;
+        IntVector size = IntVector.broadcast(SPECIES, lanes.size);
+        IntVector zero = IntVector.zero(SPECIES);
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        for (int k = 0; k < active; k += SPECIES.length()) {
+            IntVector nextNotch = zero;
+            for (int s = n - 1; s >= 1; s -= 1) {
+                IntVector set =
+                    IntVector.fromArray(SPECIES, lanes.setting[s], k);
+                IntVector base =
+                    IntVector.fromArray(SPECIES, lanes.base[s], k);
+                IntVector here = gather(notch, base.add(set), index);
+                IntVector adv = s == n - 1 ? one
+                    : here.and(IntVector.fromArray(SPECIES,
+                                                   lanes.rotates[s - 1], k))
+                    .or(nextNotch);
+                adv = adv.and(IntVector.fromArray(SPECIES,
+                                                  lanes.rotates[s], k));
+                set = set.add(adv);
+                set = set.sub(size, set.compare(VectorOperators.GE, size));
+                set.intoArray(lanes.setting[s], k);
+                nextNotch = here;
+            }
+            IntVector plugBase = IntVector.fromArray(SPECIES,
+                                                     lanes.plugBase, k);
+            IntVector x = IntVector.fromArray(SPECIES, lanes.in, row + k);
+            x = gather(plug, plugBase.add(x), index);
+            for (int s = n - 1; s >= 1; s -= 1) {
+                x = pass(fwd, lanes, s, k, x, size, index);
+            }
+            x = gather(fwd, IntVector.fromArray(SPECIES, lanes.base[0], k)
+                       .add(x), index);
+            for (int s = 1; s < n; s += 1) {
+                x = pass(inv, lanes, s, k, x, size, index);
+            }
+            gather(plug, plugBase.add(x), index).intoArray(lanes.out, row + k);
+        }
+    }
+
+    /** Return the result of passing X, for the vector of LANES starting
+     *  at lane K, through the rotors in slot S, using their tables in
+     *  TABLES, the alphabet size SIZE, and BUFFER to hold index maps. */
+    private static IntVector pass(int[] tables, MultiConverter.Lanes lanes,
+                                  int s, int k, IntVector x, IntVector size,
+                                  int[] buffer) {
+        IntVector set = IntVector.fromArray(SPECIES, lanes.setting[s], k);
+        IntVector base = IntVector.fromArray(SPECIES, lanes.base[s], k);
+        x = gather(tables, base.add(wrap(x.add(set), size)), buffer);
+        return wrap(x.sub(set), size);
+    }
+
+    /** Return the elements of TABLE at the indices in INDICES, using
+     *  BUFFER to hold the index map. */
+    private static IntVector gather(int[] table, IntVector indices,
+                                    int[] buffer) {
+        indices.intoArray(buffer, 0);
+        return IntVector.fromArray(SPECIES, table, 0, buffer, 0);
+    }
+
+    /** Return X, whose elements are in the range -SIZE .. 2*SIZE-1,
+     *  modulo SIZE. */
+    private static IntVector wrap(IntVector x, IntVector size) {
+        VectorMask<Integer> low = x.compare(VectorOperators.LT, 0);
+        x = x.add(size, low);
+        return x.sub(size, x.compare(VectorOperators.GE, size));
+    }
+
+    /** Index map for gathers. */
+    private final int[] _index = new int[SPECIES.length()];
+
+}
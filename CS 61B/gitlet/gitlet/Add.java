@@ -2,10 +2,7 @@ package gitlet;
 
 import java.io.File;
 import java.nio.file.Files;
-import java.util.TreeMap;
 import java.io.Serializable;
-import java.io.ObjectInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 
 
@@ -33,6 +30,9 @@ public class Add implements Serializable {
      found in the .gitlet/.staging/ directory */
     private File _dest;
 
+    /** the stat cache of my working files. */
+    private Index _index;
+
     /** Constructor for the Add command.
      * @param filename String */
     Add(String filename) {
@@ -40,27 +40,10 @@ public class Add implements Serializable {
         _src = new File(_filename);
         _dest = new File(".gitlet/.staging/" + _filename);
         Gitlet.checkgit();
-        File gitlet = new File(".gitlet/metadata");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(gitlet));
-            _gitlet = (Gitlet) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _gitlet = Gitlet.load();
 
-        File stage = new File(".gitlet/.staging/stageobject");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(stage));
-            _stage = (Stage) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _stage = Stage.load();
+        _index = Index.load();
     }
 
     /** executes the add command. */
@@ -71,24 +54,22 @@ public class Add implements Serializable {
                 System.out.println("File does not exist.");
                 System.exit(0);
             }
-            TreeMap gitmap = _gitlet.getbranchHeadMap();
-            CommitObject head = (CommitObject)
-                    gitmap.get(_gitlet.getcurBranch());
-            TreeMap blobfiles = head.getFiles();
+            CommitObject head = _gitlet.getHead(_gitlet.getcurBranch());
+            String tracked = head.getFile(_filename);
 
-            addLogic(blobfiles);
+            addLogic(head.getTree().size() == 0, tracked);
 
             if (_stage.removedFiles().contains(_filename)) {
-                Blob compare = new Blob(_filename);
-                if (compare.getName().equals(blobfiles.get(_filename))) {
+                String compare = _index.hash(_filename);
+                if (compare != null && compare.equals(tracked)) {
                     _stage.removedFiles().remove(_filename);
                     _stage.modifiedFiles().remove(_filename);
                     _stage.newFiles().remove(_filename);
                 }
             }
 
-            File stageobject = new File(Init.STAGE_OBJ_DIR);
-            writeObject(stageobject, _stage);
+            _stage.save();
+            _index.save();
         } catch (NullPointerException | IOException e) {
             e.printStackTrace();
         }
@@ -97,16 +78,17 @@ public class Add implements Serializable {
     /** Function that does the bulk of the Add command. Parses
      * through all the possibilities that could occur when adding.
      * takes into account persistence.
-     * @param blobfiles TreeMap
+     * @param noneTracked boolean, true if my head commit has no files
+     * @param tracked String, the head commit's blob of my file, or null
      * @throws IOException
      */
-    void addLogic(TreeMap blobfiles) throws IOException {
+    void addLogic(boolean noneTracked, String tracked) throws IOException {
 
-        if (blobfiles.isEmpty() && _stage.isNull()) {
+        if (noneTracked && _stage.isNull()) {
             _stage.addName(_filename, "new");
             Files.copy(_src.toPath(), _dest.toPath());
 
-        } else if (blobfiles.isEmpty() && !_stage.isNull()) {
+        } else if (noneTracked && !_stage.isNull()) {
             if (_stage.newFiles().contains(_filename)) {
                 _dest.delete();
                 Files.copy(_src.toPath(), _dest.toPath());
@@ -118,15 +100,14 @@ public class Add implements Serializable {
                 Files.copy(_src.toPath(), _dest.toPath());
             }
 
-        } else if (!blobfiles.isEmpty()) {
-            if (blobfiles.containsKey(_filename)) {
-                Blob tempblob = new Blob(_filename);
-                String tempsha1 = tempblob.getName();
-                if (blobfiles.get(_filename).equals(tempsha1)) {
+        } else if (!noneTracked) {
+            if (tracked != null) {
+                String tempsha1 = _index.hash(_filename);
+                if (tracked.equals(tempsha1)) {
                     _stage.newFiles().remove(_filename);
                     _stage.modifiedFiles().remove(_filename);
                     _dest.delete();
-                } else if (!blobfiles.get(_filename).equals(tempsha1)) {
+                } else if (!tracked.equals(tempsha1)) {
                     if (!_stage.modifiedFiles().contains(_filename)) {
                         _stage.addName(_filename, "modified");
                     }
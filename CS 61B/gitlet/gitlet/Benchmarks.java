@@ -0,0 +1,157 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Stack;
+
+/** Benchmarks of the commit-graph on synthetic histories.  Each history
+ *  has a root commit and two branches of N/2 commits each: in "diverged"
+ *  they never meet again, so the merge base is the root; in "merged"
+ *  the second branch is merged into the first every MERGE_INTERVAL
+ *  commits, so the merge base is recent.  For each history I time
+ *  building, saving, and loading the graph, finding the merge base of
+ *  the two branch heads, and asking whether the root is an ancestor of
+ *  a head.  For histories of at most OLD_LIMIT commits I also time the
+ *  split-point search that Merge used before the commit-graph: a DFS of
+ *  the given branch into an ArrayList followed by a BFS of the current
+ *  branch against it.  Each time is the best of ROUNDS runs.
+ *  @author Alice Wang
+ */
+public final class Benchmarks {
+
+    /** Usage: java gitlet.Benchmarks [N ...].  Runs the benchmarks on
+     *  histories of N commits (by default, 1000, 10000, and 100000). */
+    public static void main(String... args) throws IOException {
+        int[] sizes = { 1000, 10000, 100000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i += 1) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        File file = File.createTempFile("gitlet-bench", ".graph");
+        try {
+            System.out.printf("%-9s %7s %10s %10s %10s %10s %10s %10s%n",
+                              "history", "commits", "build ms", "save ms",
+                              "load ms", "base ms", "ances ms", "old ms");
+            for (int n : sizes) {
+                run("diverged", n, 0, file);
+                run("merged", n, MERGE_INTERVAL, file);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /** Number of runs of each benchmark, of which the best is reported. */
+    static final int ROUNDS = 5;
+
+    /** Commits between merges in the "merged" history. */
+    static final int MERGE_INTERVAL = 10;
+
+    /** Largest history on which the old split-point search is timed. */
+    static final int OLD_LIMIT = 20000;
+
+    /** Time the benchmarks on the history NAME of N commits, merging
+     *  every INTERVAL commits if INTERVAL is positive, saving the graph
+     *  in FILE. */
+    private static void run(String name, int n, int interval, File file) {
+        int[][] parents = history(n, interval);
+        CommitGraph[] graph = new CommitGraph[1];
+        double build = best(() -> {
+            graph[0] = new CommitGraph();
+            for (int k = 0; k < n; k += 1) {
+                graph[0].add(String.format("%040x", k),
+                             parents[0][k], parents[1][k]);
+            }
+        });
+        CommitGraph g = graph[0];
+        double save = best(() -> Utils.writeContents(file, Codec.encode(g)));
+        double load = best(() -> CommitGraph.load(file, null));
+        int head0 = n - 2;
+        int head1 = n - 1;
+        int[] base = new int[1];
+        double mergeBase = best(() -> base[0] = g.mergeBase(head0, head1));
+        double ancestor = best(() -> g.isAncestor(0, head0));
+        String old = "-";
+        if (n <= OLD_LIMIT) {
+            int[] split = new int[1];
+            old = String.format("%10.2f",
+                                best(() -> split[0] = oldSplit(parents,
+                                                               head0,
+                                                               head1)));
+            if (!g.isAncestor(split[0], head0)
+                || !g.isAncestor(split[0], head1)) {
+                throw new IllegalStateException("bad split point");
+            }
+        }
+        System.out.printf("%-9s %7d %10.2f %10.2f %10.2f %10.2f %10.2f %10s%n",
+                          name, n, build, save, load, mergeBase, ancestor,
+                          old);
+    }
+
+    /** Return the first and second parents, by position, of the commits
+     *  of a history of N commits with a root and two branches whose
+     *  commits alternate, the second merged into the first every INTERVAL
+     *  commits if INTERVAL is positive. */
+    private static int[][] history(int n, int interval) {
+        int[][] parents = new int[2][n];
+        parents[0][0] = parents[1][0] = CommitGraph.NONE;
+        for (int k = 1; k < n; k += 1) {
+            parents[0][k] = Math.max(0, k - 2);
+            parents[1][k] = CommitGraph.NONE;
+            if (interval > 0 && k % 2 == 0 && k % (2 * interval) == 0) {
+                parents[1][k] = k - 1;
+            }
+        }
+        return parents;
+    }
+
+    /** Return the split point of the commits at CUR and GIVEN in the
+     *  history PARENTS, found as Merge used to find it. */
+    private static int oldSplit(int[][] parents, int cur, int given) {
+        ArrayList<Integer> ancestors = new ArrayList<>();
+        Stack<Integer> stack = new Stack<>();
+        stack.push(given);
+        while (!stack.isEmpty()) {
+            int k = stack.pop();
+            if (!ancestors.contains(k)) {
+                ancestors.add(k);
+            }
+            for (int i = 1; i >= 0; i -= 1) {
+                if (parents[i][k] != CommitGraph.NONE) {
+                    stack.push(parents[i][k]);
+                }
+            }
+        }
+        Queue<Integer> queue = new LinkedList<>();
+        queue.add(cur);
+        while (!queue.isEmpty()) {
+            int k = queue.poll();
+            if (ancestors.contains(k)) {
+                return k;
+            }
+            for (int i = 0; i < 2; i += 1) {
+                if (parents[i][k] != CommitGraph.NONE) {
+                    queue.add(parents[i][k]);
+                }
+            }
+        }
+        return CommitGraph.NONE;
+    }
+
+    /** Return the best time, in milliseconds, of ROUNDS runs of OP. */
+    private static double best(Runnable op) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r += 1) {
+            long t0 = System.nanoTime();
+            op.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+}
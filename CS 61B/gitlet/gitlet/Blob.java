@@ -1,14 +1,20 @@
 package gitlet;
 
 import java.io.File;
-import java.io.Serializable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import static gitlet.Utils.*;
 
 /** the Blob Class. An Object used to store specific information about
- * a file including its contents and its sha1. This object is serializable
- * and will eventually be saved in a .blob directory in .gitlet.
+ * a file including its contents and its sha1. This object is encoded by
+ * Codec and will eventually be saved in a .blob directory in .gitlet.
  * @author Alice Wang */
-public class Blob implements Serializable {
+public class Blob {
 
     /** String of my sha1 which also serves as my name. */
     private String _sha1;
@@ -25,6 +31,50 @@ public class Blob implements Serializable {
         _sha1 = sha1(_filecontent);
     }
 
+    /** Blob constructor for a blob named SHA1 holding CONTENTS, as read
+     * back from the object store.
+     * @param sha1 String
+     * @param contents byte[]
+     */
+    Blob(String sha1, byte[] contents) {
+        _sha1 = sha1;
+        _filecontent = contents;
+    }
+
+    /** returns the sha1 of the contents of FILE, the name a blob of it
+     * would have, reading it through a buffer of fixed size.
+     * @param file File
+     * @return String */
+    static String hash(File file) {
+        MessageDigest md = newDigest();
+        try (InputStream in =
+                 new DigestInputStream(new FileInputStream(file), md)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return hex(md);
+    }
+
+    /** returns a new SHA-1 digest. */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** returns the digest of MD as a hexadecimal sha1. */
+    static String hex(MessageDigest md) {
+        StringBuilder result = new StringBuilder(UID_LENGTH);
+        for (byte b : md.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16))
+                .append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
     /** returns my sha1 Name.*/
     String getName() {
         return _sha1;
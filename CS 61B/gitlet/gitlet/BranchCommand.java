@@ -1,15 +1,9 @@
 package gitlet;
 
-import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.File;
 
-import static gitlet.Utils.writeObject;
-
-/** Class for the Branch commands. Does the action and serializes in my gitlet
- * working object.
+/** Class for the Branch commands. Does the action and writes out the refs
+ * of my gitlet working object.
  * @author Alice Wang
  */
 public class BranchCommand implements Serializable {
@@ -22,16 +16,7 @@ public class BranchCommand implements Serializable {
      */
     BranchCommand() {
         Gitlet.checkgit();
-        File gitlet = new File(".gitlet/metadata");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(gitlet));
-            _gitlet = (Gitlet) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _gitlet = Gitlet.load();
     }
 
     /** Function that carries out the branch [name] command. *
@@ -44,7 +29,7 @@ public class BranchCommand implements Serializable {
         }
         CommitObject curHead = _gitlet.getHead(_gitlet.getcurBranch());
         _gitlet.addHead(curHead, bName);
-        writeObject(new File(Init.GITLET_METADATA_NAME), _gitlet);
+        _gitlet.save();
     }
 
     /** The function that completes the rm-branch command.
@@ -60,7 +45,7 @@ public class BranchCommand implements Serializable {
             System.exit(0);
         }
         _gitlet.removeBranch(bName);
-        writeObject(new File(Init.GITLET_METADATA_NAME), _gitlet);
+        _gitlet.save();
     }
 
 }
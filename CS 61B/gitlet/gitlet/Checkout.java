@@ -1,13 +1,10 @@
 package gitlet;
 
-import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Set;
+import java.util.Collections;
+import java.util.Map;
 import java.util.TreeMap;
 
 /** The class of my Checkout commands that get instantiated whenever
@@ -21,30 +18,16 @@ public class Checkout implements Serializable {
     /** Current reference of my stage object. */
     private Stage _stage;
 
+    /** the stat cache of my working files. */
+    private Index _index;
+
     /** The constructor for the Checkout class that has 3 different
      * functions for each different checkout command. */
     Checkout() {
         Gitlet.checkgit();
-        File gitlet = new File(".gitlet/metadata");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(gitlet));
-            _gitlet = (Gitlet) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
-        File stage = new File(".gitlet/.staging/stageobject");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(stage));
-            _stage = (Stage) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _gitlet = Gitlet.load();
+        _stage = Stage.load();
+        _index = Index.load();
     }
 
     /** does the checkout command when given the file name from my head commit.
@@ -52,24 +35,14 @@ public class Checkout implements Serializable {
      */
     void doCheckoutFile(String filename) {
         CommitObject curCommit = _gitlet.getHead(_gitlet.getcurBranch());
-        TreeMap blobFiles = curCommit.getFiles();
+        String blob = curCommit.getFile(filename);
 
-        if (!blobFiles.containsKey(filename)) {
+        if (blob == null) {
             System.out.println("File does not exist in that commit.");
             System.exit(0);
         } else {
-            File blobfile = new File(".gitlet/.blob/"
-                    + blobFiles.get(filename));
-            Blob checkoutBlob = null;
-            try {
-                ObjectInputStream in =
-                        new ObjectInputStream(new FileInputStream(blobfile));
-                checkoutBlob = (Blob) in.readObject();
-                in.close();
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
-            }
-            Utils.writeContents(new File(filename), checkoutBlob.getContents());
+            _index.restoreAll(Collections.singletonMap(filename, blob));
+            _index.save();
         }
     }
 
@@ -77,49 +50,22 @@ public class Checkout implements Serializable {
      * @param cID String
      * @param filename String */
     void doCheckoutCommitFile(String cID, String filename) {
-        if (cID.length() < Utils.UID_LENGTH) {
-            File cFiles = new File(Init.COMMIT_DIR);
-            File[] allcommits = cFiles.listFiles();
-            for (File f : allcommits) {
-                if (f.getName().regionMatches(0, cID, 0, cID.length())) {
-                    cID = f.getName();
-                }
-            }
-        }
-        File cFile = new File(".gitlet/.commit/" + cID);
-        CommitObject cO = null;
-
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(cFile));
-            cO = (CommitObject) in.readObject();
-            in.close();
-        } catch (FileNotFoundException e) {
+        cID = Gitlet.resolveCommit(cID);
+        CommitObject cO = ObjectStore.repo().getCommit(cID);
+        if (cO == null) {
             System.out.println("No commit with that id exists.");
             System.exit(0);
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
         }
 
 
         if (cO != null) {
-            TreeMap cfileMap = cO.getFiles();
-            if (!cfileMap.containsKey(filename)) {
+            String blob = cO.getFile(filename);
+            if (blob == null) {
                 System.out.println("File does not exist in that commit.");
                 System.exit(0);
             } else {
-                File blob = new File(".gitlet/.blob/"
-                        + cfileMap.get(filename));
-                Blob ckBlob = null;
-                try {
-                    ObjectInputStream in =
-                            new ObjectInputStream(new FileInputStream(blob));
-                    ckBlob = (Blob) in.readObject();
-                    in.close();
-                } catch (IOException | ClassNotFoundException e) {
-                    e.printStackTrace();
-                }
-                Utils.writeContents(new File(filename), ckBlob.getContents());
+                _index.restoreAll(Collections.singletonMap(filename, blob));
+                _index.save();
             }
         } else {
             System.out.println("No commit with that id exists");
@@ -127,7 +73,10 @@ public class Checkout implements Serializable {
         }
     }
 
-    /** Function that does the command checkout [branchname].
+    /** Function that does the command checkout [branchname]. Only the
+     * files that differ between the two heads are written or deleted,
+     * found by comparing their trees, which skips every subtree the
+     * branches share; a file the same in both is left as it is.
      * @param branchName String */
     void doCheckoutBranch(String branchName) {
         if (branchName.equals(_gitlet.getcurBranch())) {
@@ -140,66 +89,38 @@ public class Checkout implements Serializable {
         }
 
         CommitObject cO = _gitlet.getHead(branchName);
-        TreeMap<String, String> branchFiles = cO.getFiles();
-        Set<String> branchFileNames = branchFiles.keySet();
-
-        String curBranch = _gitlet.getcurBranch();
-        CommitObject recentCommit = _gitlet.getHead(curBranch);
-        TreeMap<String, String> recComFiles = recentCommit.getFiles();
-        Set<String> recComFileNames = recComFiles.keySet();
-
-        File[] filesList = new File(System.getProperty("user.dir")).listFiles();
-        ArrayList<String> curDirFileName = new ArrayList<>();
-        for (File workingfile : filesList) {
-            if (workingfile.getName().equals(".gitlet")) {
-                continue;
-            } else {
-                curDirFileName.add(workingfile.getName());
-            }
-        }
-        for (String cF: branchFileNames) {
-            if (curDirFileName.contains(cF) && !recComFileNames.contains(cF)) {
+        CommitObject recentCommit = _gitlet.getHead(_gitlet.getcurBranch());
+        TreeMap<String, String[]> changes = Tree.diff(recentCommit.getTree(),
+                cO.getTree(), ObjectStore.repo());
+
+        for (Map.Entry<String, String[]> e : changes.entrySet()) {
+            if (e.getValue()[0] == null && new File(e.getKey()).exists()) {
                 System.out.println("There is an untracked file in the way; "
                       +  "delete it or add it first.");
                 System.exit(0);
-            } else if (curDirFileName.contains(cF)
-                    && recComFileNames.contains(cF)) {
-                Blob cfBlob = getBlobContents(branchFiles.get(cF));
-                Utils.writeContents(new File(cF), cfBlob.getContents());
-            } else {
-                Blob cfBlob = getBlobContents(branchFiles.get(cF));
-                Utils.writeContents(new File(cF), cfBlob.getContents());
             }
         }
-
-        for (String ccF : curDirFileName) {
-            if (!branchFileNames.contains(ccF) && !ccF.equals("Makefile.txt")) {
-                Utils.restrictedDelete(ccF);
+        TreeMap<String, String> branchFiles = new TreeMap<>();
+        TreeMap<String, String> recComFiles = new TreeMap<>();
+        for (Map.Entry<String, String[]> e : changes.entrySet()) {
+            String[] blobs = e.getValue();
+            if (blobs[1] == null) {
+                Utils.restrictedDelete(e.getKey());
+            } else {
+                branchFiles.put(e.getKey(), blobs[1]);
+                if (blobs[0] != null) {
+                    recComFiles.put(e.getKey(), blobs[0]);
+                }
             }
         }
+        _index.restoreAll(branchFiles, recComFiles);
+        _index.save();
 
         _stage.clear();
         _stage.clearStageDir();
-        Utils.writeObject(new File(Init.STAGE_OBJ_DIR), _stage);
+        _stage.save();
         _gitlet.setCurBranch(branchName);
-        Utils.writeObject(new File(Init.GITLET_METADATA_NAME), _gitlet);
-    }
-
-    /** get Blob given my sha1.
-     * @param sha1 String
-     * @return Blob */
-    static Blob getBlobContents(String sha1) {
-        File blobfile = new File(".gitlet/.blob/" + sha1);
-        Blob checkoutBlob = null;
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(blobfile));
-            checkoutBlob = (Blob) in.readObject();
-            in.close();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-        }
-        return checkoutBlob;
+        _gitlet.save();
     }
 
 }
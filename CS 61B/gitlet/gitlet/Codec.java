@@ -0,0 +1,550 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/** The binary encodings of my blobs, commits, and stage, which replace
+ *  Java serialization.
+ *
+ *  Every encoding starts with a kind byte and the format VERSION.
+ *  Lengths and counts are unsigned LEB128 varints, strings are a length
+ *  and their UTF-8 bytes, and sha1s are 20 raw bytes.  A blob is its
+ *  storage method, the length of its contents, and then: for RAW, the
+ *  contents; for DEFLATED, the deflated contents; and for DELTA, the
+ *  sha1 of the base blob, the length of the chain of deltas down to a
+ *  full blob, and the deflated Delta from the base's contents.  (Blobs
+ *  of version 1 are always raw, with no method byte.)  A commit is a
+ *  flags byte, its sha1, for a merge the sha1 shown in its log, its
+ *  date in milliseconds, its parents, the sha1 of its tree, and its
+ *  message.  (Commits of version 2 have no tree, and list their files
+ *  after their message: their number and then each file's name and
+ *  blob sha1, in order of name.  readCommit can parse such a commit
+ *  without reading the files.)  A tree is a byte that is LEAF for a
+ *  leaf and then its number of files and each file's name and blob
+ *  sha1, in order of name, or that is NODE and then its number of
+ *  children and each child's digit, number of files, and sha1, in
+ *  order of digit.  A stage is its
+ *  lists of new, modified, and removed file names.  An index is its
+ *  number of entries and then each entry's path, size, modification
+ *  time in nanoseconds, inode, and sha1, in order of path.  A
+ *  commit-graph is its number of commits and then, by position, each
+ *  commit's sha1, the positions of its two parents plus one (0 for no
+ *  parent), and its generation number.
+ *  @author Alice Wang
+ */
+final class Codec {
+
+    /** Version of the encodings. */
+    static final int VERSION = 3;
+
+    /** Kind byte of a blob. */
+    static final int BLOB = 'b';
+
+    /** Kind byte of a commit. */
+    static final int COMMIT = 'c';
+
+    /** Kind byte of a tree. */
+    static final int TREE = 't';
+
+    /** Kind byte of a stage. */
+    static final int STAGE = 's';
+
+    /** Kind byte of an index. */
+    static final int INDEX = 'i';
+
+    /** Kind byte of a commit-graph. */
+    static final int GRAPH = 'g';
+
+    /** Blob storage method holding the contents as they are. */
+    static final int RAW = 0;
+
+    /** Blob storage method holding the contents deflated. */
+    static final int DEFLATED = 1;
+
+    /** Blob storage method holding a delta from another blob. */
+    static final int DELTA = 2;
+
+    /** Commit flag marking a merge commit. */
+    private static final int MERGE = 1;
+
+    /** Tree byte marking a leaf. */
+    private static final int LEAF = 0;
+
+    /** Tree byte marking a node with children. */
+    private static final int NODE = 1;
+
+    /** Not instantiable. */
+    private Codec() {
+    }
+
+    /** Return the encoding of BLOB, deflated unless that does not make
+     *  it smaller. */
+    static byte[] encode(Blob blob) {
+        byte[] contents = blob.getContents();
+        byte[] deflated = deflate(contents);
+        boolean raw = deflated.length >= contents.length;
+        return encode(out -> {
+            writeBlobHeader(out, raw ? RAW : DEFLATED, contents.length);
+            out.write(raw ? contents : deflated);
+        });
+    }
+
+    /** Write onto OUT the header of a blob of LENGTH bytes stored by
+     *  METHOD, which is RAW or DEFLATED, to be followed by its stored
+     *  contents. */
+    static void writeBlobHeader(DataOutputStream out, int method,
+                                long length) throws IOException {
+        header(out, BLOB);
+        out.writeByte(method);
+        writeVarint(out, length);
+    }
+
+    /** Return the encoding of a blob of LENGTH bytes stored as DELTA
+     *  from the blob named BASE, at depth DEPTH in its delta chain. */
+    static byte[] encodeDelta(int length, String base, int depth,
+                              byte[] delta) {
+        byte[] deflated = deflate(delta);
+        return encode(out -> {
+            writeBlobHeader(out, DELTA, length);
+            writeId(out, base);
+            writeVarint(out, depth);
+            out.write(deflated);
+        });
+    }
+
+    /** Return the header of the blob encoded on IN, leaving IN at the
+     *  start of its stored contents. */
+    static BlobHeader readBlobHeader(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int version = checkHeader(data, BLOB);
+        int method = version == 1 ? RAW : data.readUnsignedByte();
+        long length = readVarint(data);
+        switch (method) {
+        case RAW:
+        case DEFLATED:
+            return new BlobHeader(method, length, null, 0);
+        case DELTA:
+            String base = readId(data);
+            return new BlobHeader(method, length, base, readLength(data));
+        default:
+            throw new IOException("bad blob storage method");
+        }
+    }
+
+    /** The header of an encoded blob. */
+    static class BlobHeader {
+
+        /** The header of a blob of LENGTH bytes stored by METHOD, as a
+         *  delta from BASE at depth DEPTH if it is a DELTA. */
+        BlobHeader(int method, long length, String base, int depth) {
+            _method = method;
+            _length = length;
+            _base = base;
+            _depth = depth;
+        }
+
+        /** Return the storage method of the blob. */
+        int method() {
+            return _method;
+        }
+
+        /** Return the length of the blob's contents. */
+        long length() {
+            return _length;
+        }
+
+        /** Return the name of the blob's base, or null if it is not a
+         *  delta. */
+        String base() {
+            return _base;
+        }
+
+        /** Return the number of deltas between the blob and a full
+         *  blob, which is 0 if it is not a delta. */
+        int depth() {
+            return _depth;
+        }
+
+        /** The storage method. */
+        private final int _method;
+
+        /** The length of the contents. */
+        private final long _length;
+
+        /** The base blob, if any. */
+        private final String _base;
+
+        /** The depth in the delta chain. */
+        private final int _depth;
+    }
+
+    /** Return the encoding of COMMIT. */
+    static byte[] encode(CommitObject commit) {
+        return encode(out -> {
+            header(out, COMMIT);
+            boolean merge = commit.merged();
+            out.writeByte(merge ? MERGE : 0);
+            writeId(out, commit.getName());
+            if (merge) {
+                writeId(out, ((MergeCommit) commit).getLogName());
+            }
+            writeVarint(out, commit.getDate().getTime());
+            String[] parents = commit.getParentIds();
+            writeVarint(out, parents.length);
+            for (String p : parents) {
+                writeId(out, p);
+            }
+            writeId(out, commit.getTreeId());
+            writeString(out, commit.getMsg());
+        });
+    }
+
+    /** Return the commit encoded on IN, reading its files too iff
+     *  WITHFILES and it is of version 2.  A commit read without its
+     *  files reads them from the ObjectStore, from its tree if it has
+     *  one, when they are first asked for. */
+    static CommitObject readCommit(InputStream in, boolean withFiles)
+        throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int version = checkHeader(data, COMMIT);
+        int flags = data.readUnsignedByte();
+        String sha1 = readId(data);
+        String logName = (flags & MERGE) != 0 ? readId(data) : null;
+        Date date = new Date(readVarint(data));
+        String[] parents = new String[readLength(data)];
+        for (int i = 0; i < parents.length; i += 1) {
+            parents[i] = readId(data);
+        }
+        String tree = version >= 3 ? readId(data) : null;
+        String msg = readString(data);
+        TreeMap<String, String> files = null;
+        if (withFiles && tree == null) {
+            files = new TreeMap<>();
+            for (int n = readLength(data); n > 0; n -= 1) {
+                String name = readString(data);
+                files.put(name, readId(data));
+            }
+        }
+        if (logName != null) {
+            return new MergeCommit(sha1, logName, msg, date, parents, tree,
+                                   files);
+        }
+        return new CommitObject(sha1, msg, date,
+                                parents.length == 0 ? null : parents[0],
+                                tree, files);
+    }
+
+    /** Return the encoding of TREE. */
+    static byte[] encode(Tree tree) {
+        return encode(out -> {
+            header(out, TREE);
+            if (tree.isLeaf()) {
+                out.writeByte(LEAF);
+                writeVarint(out, tree.size());
+                for (Map.Entry<String, String> e
+                         : tree.entries().entrySet()) {
+                    writeString(out, e.getKey());
+                    writeId(out, e.getValue());
+                }
+            } else {
+                int children = 0;
+                for (int i = 0; i < Tree.FANOUT; i += 1) {
+                    if (tree.child(i) != null) {
+                        children += 1;
+                    }
+                }
+                out.writeByte(NODE);
+                writeVarint(out, children);
+                for (int i = 0; i < Tree.FANOUT; i += 1) {
+                    if (tree.child(i) != null) {
+                        out.writeByte(i);
+                        writeVarint(out, tree.childSize(i));
+                        writeId(out, tree.child(i));
+                    }
+                }
+            }
+        });
+    }
+
+    /** Return the tree encoded in BYTES. */
+    static Tree decodeTree(byte[] bytes) {
+        try {
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+            checkHeader(in, TREE);
+            switch (in.readUnsignedByte()) {
+            case LEAF:
+                TreeMap<String, String> files = new TreeMap<>();
+                for (int n = readLength(in); n > 0; n -= 1) {
+                    String name = readString(in);
+                    files.put(name, readId(in));
+                }
+                return new Tree(files);
+            case NODE:
+                String[] ids = new String[Tree.FANOUT];
+                int[] sizes = new int[Tree.FANOUT];
+                for (int n = readLength(in); n > 0; n -= 1) {
+                    int i = in.readUnsignedByte();
+                    sizes[i] = readLength(in);
+                    ids[i] = readId(in);
+                }
+                return new Tree(ids, sizes, null);
+            default:
+                throw new IOException("bad tree");
+            }
+        } catch (IOException | IndexOutOfBoundsException excp) {
+            throw new IllegalArgumentException("bad tree");
+        }
+    }
+
+    /** Return the encoding of STAGE. */
+    static byte[] encode(Stage stage) {
+        return encode(out -> {
+            header(out, STAGE);
+            writeNames(out, stage.newFiles());
+            writeNames(out, stage.modifiedFiles());
+            writeNames(out, stage.removedFiles());
+        });
+    }
+
+    /** Return the stage encoded in BYTES. */
+    static Stage decodeStage(byte[] bytes) {
+        try {
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+            checkHeader(in, STAGE);
+            Stage result = new Stage();
+            result.newFiles().addAll(readNames(in));
+            result.modifiedFiles().addAll(readNames(in));
+            result.removedFiles().addAll(readNames(in));
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException("bad stage");
+        }
+    }
+
+    /** Return the encoding of INDEX. */
+    static byte[] encode(Index index) {
+        return encode(out -> {
+            header(out, INDEX);
+            writeVarint(out, index.entries().size());
+            for (Map.Entry<String, Index.Entry> e
+                     : index.entries().entrySet()) {
+                Index.Entry entry = e.getValue();
+                writeString(out, e.getKey());
+                writeVarint(out, entry.size());
+                writeVarint(out, entry.mtime());
+                writeVarint(out, entry.inode());
+                writeId(out, entry.sha1());
+            }
+        });
+    }
+
+    /** Return the index encoded in BYTES. */
+    static Index decodeIndex(byte[] bytes) {
+        try {
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+            checkHeader(in, INDEX);
+            Index result = new Index();
+            for (int n = readLength(in); n > 0; n -= 1) {
+                String path = readString(in);
+                long size = readVarint(in);
+                long mtime = readVarint(in);
+                long inode = readVarint(in);
+                result.entries().put(path, new Index.Entry(size, mtime, inode,
+                                                           readId(in)));
+            }
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException("bad index");
+        }
+    }
+
+    /** Return the encoding of GRAPH. */
+    static byte[] encode(CommitGraph graph) {
+        return encode(out -> {
+            header(out, GRAPH);
+            writeVarint(out, graph.size());
+            for (int k = 0; k < graph.size(); k += 1) {
+                writeId(out, graph.id(k));
+                writeVarint(out, graph.parent(k, 0) + 1);
+                writeVarint(out, graph.parent(k, 1) + 1);
+                writeVarint(out, graph.generation(k));
+            }
+        });
+    }
+
+    /** Return the commit-graph encoded in BYTES. */
+    static CommitGraph decodeGraph(byte[] bytes) {
+        try {
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+            checkHeader(in, GRAPH);
+            CommitGraph result = new CommitGraph();
+            for (int k = 0, n = readLength(in); k < n; k += 1) {
+                String id = readId(in);
+                int parent0 = readLength(in) - 1;
+                int parent1 = readLength(in) - 1;
+                long generation = readVarint(in);
+                if (result.add(id, parent0, parent1) != k
+                    || result.generation(k) != generation) {
+                    throw new IOException("bad commit-graph");
+                }
+            }
+            return result;
+        } catch (IOException | IllegalArgumentException
+                 | IndexOutOfBoundsException excp) {
+            throw new IllegalArgumentException("bad commit-graph");
+        }
+    }
+
+    /** Writes one encoding onto a stream. */
+    private interface Writer {
+        /** Write onto OUT. */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** Return the bytes written by WRITER. */
+    private static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Write the header of an encoding of kind KIND onto OUT. */
+    private static void header(DataOutputStream out, int kind)
+        throws IOException {
+        out.writeByte(kind);
+        out.writeByte(VERSION);
+    }
+
+    /** Read the header of an encoding of kind KIND from IN, and return
+     *  its version. */
+    private static int checkHeader(DataInputStream in, int kind)
+        throws IOException {
+        if (in.readUnsignedByte() != kind) {
+            throw new IOException("bad object header");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("unknown object version " + version);
+        }
+        return version;
+    }
+
+    /** Return BYTES deflated. */
+    private static byte[] deflate(byte[] bytes) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater();
+        try (OutputStream out = new DeflaterOutputStream(result, deflater)) {
+            out.write(bytes);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deflater.end();
+        }
+        return result.toByteArray();
+    }
+
+    /** Write VALUE onto OUT as an unsigned varint. */
+    static void writeVarint(DataOutputStream out, long value)
+        throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /** Return the unsigned varint read from IN. */
+    static long readVarint(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("bad varint");
+    }
+
+    /** Return a length or count read from IN. */
+    private static int readLength(DataInputStream in) throws IOException {
+        long n = readVarint(in);
+        if (n > Integer.MAX_VALUE) {
+            throw new IOException("bad length");
+        }
+        return (int) n;
+    }
+
+    /** Write the sha1 ID onto OUT as 20 bytes. */
+    private static void writeId(DataOutputStream out, String id)
+        throws IOException {
+        out.write(Pack.toBytes(id));
+    }
+
+    /** Return the sha1 read from IN as 20 bytes. */
+    private static String readId(DataInputStream in) throws IOException {
+        StringBuilder result = new StringBuilder(2 * Pack.ID_LENGTH);
+        for (int i = 0; i < Pack.ID_LENGTH; i += 1) {
+            int b = in.readUnsignedByte();
+            result.append(Character.forDigit(b >> 4, 16))
+                .append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /** Write S onto OUT. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /** Return the string read from IN. */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Write the list NAMES onto OUT. */
+    private static void writeNames(DataOutputStream out, List<String> names)
+        throws IOException {
+        writeVarint(out, names.size());
+        for (String name : names) {
+            writeString(out, name);
+        }
+    }
+
+    /** Return the list of names read from IN. */
+    private static List<String> readNames(DataInputStream in)
+        throws IOException {
+        List<String> result = new ArrayList<>();
+        for (int n = readLength(in); n > 0; n -= 1) {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+}
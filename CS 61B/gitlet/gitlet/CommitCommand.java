@@ -1,8 +1,6 @@
 package gitlet;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
@@ -35,27 +33,9 @@ public class CommitCommand implements Serializable {
         _msg = msg;
 
         Gitlet.checkgit();
-        File gitlet = new File(".gitlet/metadata");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(gitlet));
-            _gitlet = (Gitlet) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _gitlet = Gitlet.load();
 
-        File stage = new File(".gitlet/.staging/stageobject");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(stage));
-            _stage = (Stage) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _stage = Stage.load();
     }
 
     /** Does the actions of the commit command. */
@@ -67,49 +47,60 @@ public class CommitCommand implements Serializable {
 
         Date timestamp =  new Date();
         CommitObject parent = _gitlet.getHead(_gitlet.getcurBranch());
-        TreeMap<String, String> parentFiles = parent.getFiles();
-        TreeMap<String, String> fileMap = new TreeMap<>();
-        fileMap.putAll(parentFiles);
-        for (String file : _stage.newFiles()) {
-            Blob b = makeBlob(file);
-            fileMap.put(file, b.getName());
+        CommitObject toCommit = new CommitObject(_msg, timestamp,
+                stagedTree(_stage, parent), parent);
+
+        _stage.clear();
+        _stage.save();
+
+
+        CommitLog log = CommitLog.open();
+        ObjectStore.repo().putCommit(toCommit);
+        log.append(toCommit);
+        _gitlet.addHead(toCommit, _gitlet.getcurBranch());
+        _gitlet.save();
+    }
+
+    /** returns the tree of the files of PARENT with the changes in
+     * STAGE made: a blob of each new or modified file is saved and
+     * its staged copy deleted, and each removed file is dropped. Only
+     * the parts of PARENT's tree holding those files are read or made
+     * anew, so this takes time in the number of files changed rather
+     * than the number tracked.
+     * @param stage Stage
+     * @param parent CommitObject
+     * @return Tree */
+    static Tree stagedTree(Stage stage, CommitObject parent)
+        throws IOException {
+        ObjectStore store = ObjectStore.repo();
+        Tree parentTree = parent.getTree();
+        TreeMap<String, String> changes = new TreeMap<>();
+        for (String file : stage.newFiles()) {
+            changes.put(file, makeBlob(file, parentTree.get(file, store)));
             File bFile = new File(".gitlet/.staging/" + file);
             stagedDelete(bFile);
         }
 
-        for (String f : _stage.modifiedFiles()) {
-            Blob b = makeBlob(f);
-            fileMap.put(f, b.getName());
+        for (String f : stage.modifiedFiles()) {
+            changes.put(f, makeBlob(f, parentTree.get(f, store)));
             File bFile = new File(".gitlet/.staging/" + f);
             stagedDelete(bFile);
         }
 
-        for (String f : _stage.removedFiles()) {
-            fileMap.remove(f);
+        for (String f : stage.removedFiles()) {
+            changes.put(f, null);
         }
-
-        CommitObject toCommit =
-                new CommitObject(_msg, timestamp, fileMap, parent);
-
-        _stage.clear();
-        writeObject(new File(Init.STAGE_OBJ_DIR), _stage);
-
-
-        _gitlet.addHead(toCommit, _gitlet.getcurBranch());
-        writeObject(new File(Init.GITLET_METADATA_NAME), _gitlet);
-
-        File commitFile = new File(".gitlet/.commit/" + toCommit.getName());
-        writeObject(commitFile, toCommit);
+        return parentTree.edit(changes, store);
     }
 
-    /** creates a blob and serializes it into the .gitlet/.blobs folder.
+    /** creates a blob of the file FILENAME and saves it in my object
+     * store, as a delta from the blob named BASE, the file's previous
+     * version, if that is smaller.
      * @param filename  String
-     * @return Blob */
-    static Blob makeBlob(String filename) throws IOException {
-        Blob blob = new Blob(filename);
-        File blobDir = new File(".gitlet/.blob/" + blob.getName());
-        writeObject(blobDir, blob);
-        return blob;
+     * @param base String, or null if the file is new
+     * @return String, the name of the blob */
+    static String makeBlob(String filename, String base) throws IOException {
+        return ObjectStore.repo().putFile(new File(filename), base);
     }
 
     /** deletes a file in my staging directory.
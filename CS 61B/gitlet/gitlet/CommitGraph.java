@@ -0,0 +1,263 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/** The commit-graph of my repository, saved in .gitlet/commit-graph.
+ *  Each commit I know of has an integer position, and I record for it
+ *  the positions of its parents and its generation number: 1 for a
+ *  commit with no parents, and otherwise one more than the largest
+ *  generation of its parents.  Parents always come before their
+ *  children, so a commit is added only after its ancestors.  A commit
+ *  has a smaller generation than each of its descendants, which lets
+ *  walks stop early: an ancestry query never visits commits of smaller
+ *  generation than the one sought, and a merge base is the first commit
+ *  reached from both sides when commits are visited in decreasing order
+ *  of generation.  Commits made since I was saved are read from the
+ *  ObjectStore when first asked for and added to me.
+ *  @author Alice Wang
+ */
+final class CommitGraph {
+
+    /** Position standing for no commit. */
+    static final int NONE = -1;
+
+    /** Flag of a commit reached from the first commit of a merge base. */
+    private static final byte FROM_FIRST = 1;
+
+    /** Flag of a commit reached from the second commit of a merge base. */
+    private static final byte FROM_SECOND = 2;
+
+    /** An empty graph, saved in .gitlet/commit-graph, that reads new
+     *  commits from the repository's ObjectStore. */
+    CommitGraph() {
+        _file = new File(Init.GRAPH_FILE);
+        _positions = new HashMap<>();
+        _ids = new ArrayList<>();
+        _parents = new int[2][16];
+        _generations = new int[16];
+    }
+
+    /** Return the graph saved in .gitlet/commit-graph, or an empty one if
+     *  there is none or it cannot be read. */
+    static CommitGraph load() {
+        return load(new File(Init.GRAPH_FILE), ObjectStore.repo());
+    }
+
+    /** Return the graph saved in FILE, or an empty one if there is none
+     *  or it cannot be read, reading new commits from STORE. */
+    static CommitGraph load(File file, ObjectStore store) {
+        CommitGraph result = null;
+        if (file.isFile()) {
+            try {
+                result = Codec.decodeGraph(Utils.readContents(file));
+            } catch (IllegalArgumentException excp) {
+                result = null;
+            }
+        }
+        if (result == null) {
+            result = new CommitGraph();
+        }
+        result._file = file;
+        result._store = store;
+        result._saved = result.size();
+        return result;
+    }
+
+    /** Save me to my file, if commits have been added to me. */
+    void save() {
+        if (_saved < size()) {
+            Utils.writeContents(_file, Codec.encode(this));
+            _saved = size();
+        }
+    }
+
+    /** Return the number of commits I hold. */
+    int size() {
+        return _ids.size();
+    }
+
+    /** Return the sha1 of the commit at position K. */
+    String id(int k) {
+        return _ids.get(k);
+    }
+
+    /** Return the position of parent I (0 or 1) of the commit at K, or
+     *  NONE if it has no such parent. */
+    int parent(int k, int i) {
+        return _parents[i][k];
+    }
+
+    /** Return the generation number of the commit at K. */
+    int generation(int k) {
+        return _generations[k];
+    }
+
+    /** Return the position of the commit named ID, adding it and those
+     *  of its ancestors I do not yet hold from my ObjectStore. */
+    int position(String id) {
+        Integer k = _positions.get(id);
+        if (k != null) {
+            return k;
+        }
+        HashMap<String, String[]> parentIds = new HashMap<>();
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(id);
+        while (!stack.isEmpty()) {
+            String top = stack.peek();
+            if (_positions.containsKey(top)) {
+                stack.pop();
+                continue;
+            }
+            String[] parents = parentIds.get(top);
+            if (parents == null) {
+                CommitObject commit = store().getCommitHeader(top);
+                if (commit == null) {
+                    throw new IllegalArgumentException("no commit " + top);
+                }
+                parents = commit.getParentIds();
+                parentIds.put(top, parents);
+            }
+            boolean ready = true;
+            for (String p : parents) {
+                if (!_positions.containsKey(p)) {
+                    stack.push(p);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                add(top, parents);
+            }
+        }
+        return _positions.get(id);
+    }
+
+    /** Add the commit named ID, whose parents, named PARENTIDS, I already
+     *  hold, returning its position. */
+    int add(String id, String... parentIds) {
+        int[] parents = { NONE, NONE };
+        for (int i = 0; i < parentIds.length; i += 1) {
+            parents[i] = _positions.get(parentIds[i]);
+        }
+        return add(id, parents[0], parents[1]);
+    }
+
+    /** Add the commit named ID, whose parents are at positions PARENT0
+     *  and PARENT1 (either of which may be NONE), returning its
+     *  position. */
+    int add(String id, int parent0, int parent1) {
+        int k = size();
+        if (k == _generations.length) {
+            _generations = Arrays.copyOf(_generations, 2 * k);
+            _parents[0] = Arrays.copyOf(_parents[0], 2 * k);
+            _parents[1] = Arrays.copyOf(_parents[1], 2 * k);
+        }
+        int generation = 0;
+        for (int p : new int[] { parent0, parent1 }) {
+            if (p >= k) {
+                throw new IllegalArgumentException("parent after child");
+            }
+            if (p != NONE) {
+                generation = Math.max(generation, _generations[p]);
+            }
+        }
+        _parents[0][k] = parent0;
+        _parents[1][k] = parent1;
+        _generations[k] = generation + 1;
+        _ids.add(id);
+        _positions.put(id, k);
+        return k;
+    }
+
+    /** Return true iff the commit at A is the commit at B or one of its
+     *  ancestors. */
+    boolean isAncestor(int a, int b) {
+        int floor = _generations[a];
+        boolean[] visited = new boolean[size()];
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(b);
+        visited[b] = true;
+        while (!stack.isEmpty()) {
+            int k = stack.pop();
+            if (k == a) {
+                return true;
+            }
+            for (int i = 0; i < 2; i += 1) {
+                int p = _parents[i][k];
+                if (p != NONE && !visited[p] && _generations[p] >= floor) {
+                    visited[p] = true;
+                    stack.push(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return the position of a best common ancestor of the commits at A
+     *  and B: one that is not an ancestor of any other common ancestor.
+     *  Returns NONE if they have no common ancestor. */
+    int mergeBase(int a, int b) {
+        if (a == b) {
+            return a;
+        }
+        byte[] flags = new byte[size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>((x, y) ->
+            _generations[x] != _generations[y]
+            ? Integer.compare(_generations[y], _generations[x])
+            : Integer.compare(y, x));
+        flags[a] = FROM_FIRST;
+        flags[b] = FROM_SECOND;
+        queue.add(a);
+        queue.add(b);
+        while (!queue.isEmpty()) {
+            int k = queue.poll();
+            byte f = flags[k];
+            if (f == (FROM_FIRST | FROM_SECOND)) {
+                return k;
+            }
+            for (int i = 0; i < 2; i += 1) {
+                int p = _parents[i][k];
+                if (p != NONE && (flags[p] | f) != flags[p]) {
+                    flags[p] |= f;
+                    queue.add(p);
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** Return my ObjectStore. */
+    private ObjectStore store() {
+        if (_store == null) {
+            _store = ObjectStore.repo();
+        }
+        return _store;
+    }
+
+    /** The file in which I am saved. */
+    private File _file;
+
+    /** The store from which I read commits I do not yet hold. */
+    private ObjectStore _store;
+
+    /** Positions of my commits, by sha1. */
+    private final HashMap<String, Integer> _positions;
+
+    /** Sha1s of my commits, by position. */
+    private final ArrayList<String> _ids;
+
+    /** Positions of the first and second parents of my commits, by
+     *  position. */
+    private final int[][] _parents;
+
+    /** Generation numbers of my commits, by position. */
+    private int[] _generations;
+
+    /** Number of my commits that are saved in my file. */
+    private int _saved;
+}
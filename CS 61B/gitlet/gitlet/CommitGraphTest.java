@@ -0,0 +1,83 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.TreeMap;
+
+/** Tests of the CommitGraph class.
+ *  @author Alice Wang
+ */
+public class CommitGraphTest {
+
+    /** Return the sha1-like name of commit K. */
+    private static String name(int k) {
+        return String.format("%040x", k);
+    }
+
+    @Test
+    public void ancestryAndMergeBase() {
+        CommitGraph graph = new CommitGraph();
+        int root = graph.add(name(0));
+        int a1 = graph.add(name(1), name(0));
+        int b1 = graph.add(name(2), name(0));
+        int a2 = graph.add(name(3), name(1), name(2));
+        int b2 = graph.add(name(4), name(2), name(1));
+        int a3 = graph.add(name(5), name(3));
+        int c1 = graph.add(name(6), name(0));
+
+        assertEquals(1, graph.generation(root));
+        assertEquals(3, graph.generation(a2));
+        assertEquals(4, graph.generation(a3));
+        assertTrue(graph.isAncestor(root, a3));
+        assertTrue(graph.isAncestor(b1, a3));
+        assertTrue(graph.isAncestor(a3, a3));
+        assertFalse(graph.isAncestor(b2, a3));
+        assertFalse(graph.isAncestor(a3, root));
+
+        assertEquals(a1, graph.mergeBase(a1, a3));
+        assertEquals(a3, graph.mergeBase(a3, a3));
+        assertEquals(root, graph.mergeBase(a3, c1));
+        int base = graph.mergeBase(a3, b2);
+        assertTrue(base == a1 || base == b1);
+    }
+
+    @Test
+    public void saveAndReadFromStore() throws IOException {
+        File dir = TestUtils.tempDir("gitlet-graph");
+        ObjectStore store = TestUtils.newStore(dir);
+        File file = new File(dir, "commit-graph");
+
+        CommitObject commit = new CommitObject("initial commit", new Date(0),
+                                               new TreeMap<>(), null);
+        store.putCommit(commit);
+        for (int i = 1; i <= 2000; i += 1) {
+            commit = new CommitObject("commit " + i, new Date(i * 1000L),
+                                      new TreeMap<>(), commit);
+            store.putCommit(commit);
+        }
+        CommitGraph graph = CommitGraph.load(file, store);
+        int head = graph.position(commit.getName());
+        assertEquals(2001, graph.size());
+        assertEquals(2001, graph.generation(head));
+        graph.save();
+
+        CommitGraph loaded = CommitGraph.load(file, store);
+        assertEquals(2001, loaded.size());
+        assertEquals(head, loaded.position(commit.getName()));
+        CommitObject next = new CommitObject("commit 2001", new Date(0),
+                                             new TreeMap<>(), commit);
+        store.putCommit(next);
+        int k = loaded.position(next.getName());
+        assertEquals(2002, loaded.generation(k));
+        assertEquals(head, loaded.parent(k, 0));
+        assertEquals(CommitGraph.NONE, loaded.parent(k, 1));
+
+        Utils.writeContents(file, "garbage");
+        assertEquals(0, CommitGraph.load(file, store).size());
+    }
+
+}
@@ -0,0 +1,231 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** The log of every commit made in my repository, kept in .gitlet/logs
+ *  so that global-log and find never read commit objects.  Each commit
+ *  made is appended as its header (its encoding, which names its tree
+ *  rather than listing its files) to the file "headers", and then as a
+ *  record of RECORD bytes to the file "commits": its sha1, its date in
+ *  milliseconds, and the offset and length of its header.  Records are
+ *  numbered in the order they were made, and since headers are appended
+ *  in the same order, the headers of consecutive records are read at
+ *  once, a PAGE at a time.  Messages are searched through an inverted
+ *  index (see MessageIndex), from each substring of GRAM characters of
+ *  a message to the numbers of the records whose messages contain it,
+ *  kept in the file "grams" and the records appended to "grams.tail"
+ *  since it was written.  The index is brought up to date with the
+ *  records appended since it was last used when it is next used.
+ *  @author Alice Wang
+ */
+final class CommitLog {
+
+    /** Length of a record. */
+    static final int RECORD = Pack.ID_LENGTH + 8 + 8 + 4;
+
+    /** Number of records read at once. */
+    static final int PAGE = 1024;
+
+    /** Length of the substrings of messages that are indexed. */
+    static final int GRAM = 3;
+
+    /** The log in the directory DIR. */
+    CommitLog(File dir) {
+        _records = new File(dir, "commits");
+        _headers = new File(dir, "headers");
+        _index = new MessageIndex(new File(dir, "grams"),
+                                  new File(dir, "grams.tail"));
+    }
+
+    /** Return the log of the repository in the current directory. */
+    static CommitLog open() {
+        return open(new File(Init.LOG_DIR), ObjectStore.repo());
+    }
+
+    /** Return the log in DIR, first logging every commit in STORE, in
+     *  order of date, if there is no log there yet. */
+    static CommitLog open(File dir, ObjectStore store) {
+        CommitLog result = new CommitLog(dir);
+        if (!result._records.isFile()) {
+            dir.mkdirs();
+            List<CommitObject> commits = new ArrayList<>();
+            for (String id : store.commitIds()) {
+                commits.add(store.getCommitHeader(id));
+            }
+            commits.sort(Comparator.comparing(CommitObject::getDate));
+            result.append(commits);
+        }
+        return result;
+    }
+
+    /** Append COMMIT to me. */
+    void append(CommitObject commit) {
+        append(Arrays.asList(commit));
+    }
+
+    /** Append COMMITS to me, in order. */
+    void append(List<CommitObject> commits) {
+        try (FileOutputStream headers = new FileOutputStream(_headers, true);
+             DataOutputStream records =
+                 new DataOutputStream(new FileOutputStream(_records, true))) {
+            long offset = _headers.length();
+            for (CommitObject commit : commits) {
+                byte[] header = Codec.encode(commit);
+                headers.write(header);
+                records.write(Pack.toBytes(commit.getName()));
+                records.writeLong(commit.getDate().getTime());
+                records.writeLong(offset);
+                records.writeInt(header.length);
+                offset += header.length;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the number of commits in me. */
+    int size() {
+        return (int) (_records.length() / RECORD);
+    }
+
+    /** Return the commits numbered FROM to FROM+COUNT-1, or as many of
+     *  them as there are, read without their files. */
+    List<CommitObject> page(int from, int count) {
+        count = Math.min(count, size() - from);
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        try (RandomAccessFile records = new RandomAccessFile(_records, "r");
+             RandomAccessFile headers = new RandomAccessFile(_headers, "r")) {
+            return read(records, headers, from, count);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the COUNT commits numbered from FROM, all of which exist,
+     *  reading their records from RECORDS and their headers from
+     *  HEADERS. */
+    private static List<CommitObject> read(RandomAccessFile records,
+                                           RandomAccessFile headers,
+                                           int from, int count)
+        throws IOException {
+        byte[] page = new byte[count * RECORD];
+        records.seek((long) from * RECORD);
+        records.readFully(page);
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(page));
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i += 1) {
+            in.skipBytes(Pack.ID_LENGTH + 8);
+            offsets[i] = in.readLong();
+            lengths[i] = in.readInt();
+        }
+        long start = offsets[0];
+        byte[] span = new byte[(int) (offsets[count - 1]
+                                      + lengths[count - 1] - start)];
+        headers.seek(start);
+        headers.readFully(span);
+        List<CommitObject> result = new ArrayList<>();
+        for (int i = 0; i < count; i += 1) {
+            result.add(Codec.readCommit(
+                new ByteArrayInputStream(span, (int) (offsets[i] - start),
+                                         lengths[i]), false));
+        }
+        return result;
+    }
+
+    /** Return the commits whose messages are TEXT, if EXACT, or contain
+     *  TEXT otherwise, in the order they were made. */
+    List<CommitObject> find(String text, boolean exact) {
+        List<CommitObject> result = new ArrayList<>();
+        if (text.length() < GRAM) {
+            for (int k = 0; k < size(); k += PAGE) {
+                for (CommitObject commit : page(k, PAGE)) {
+                    if (matches(commit, text, exact)) {
+                        result.add(commit);
+                    }
+                }
+            }
+            return result;
+        }
+        int[] candidates = candidates(text);
+        if (candidates.length == 0) {
+            return result;
+        }
+        try (RandomAccessFile records = new RandomAccessFile(_records, "r");
+             RandomAccessFile headers = new RandomAccessFile(_headers, "r")) {
+            for (int k : candidates) {
+                CommitObject commit = read(records, headers, k, 1).get(0);
+                if (matches(commit, text, exact)) {
+                    result.add(commit);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result;
+    }
+
+    /** Return true iff the message of COMMIT is TEXT, if EXACT, or
+     *  contains TEXT otherwise. */
+    private static boolean matches(CommitObject commit, String text,
+                                   boolean exact) {
+        return exact ? commit.getMsg().equals(text)
+            : commit.getMsg().contains(text);
+    }
+
+    /** Return the numbers, in order, of the records whose messages
+     *  contain every substring of GRAM characters of TEXT, at least
+     *  GRAM characters long. */
+    private int[] candidates(String text) {
+        _index.update(this);
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= text.length(); i += 1) {
+            int[] list = _index.postings(MessageIndex.key(text, i));
+            if (list[0] == 0) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list[0]));
+        int[] shortest = lists.get(0);
+        int[] result = new int[shortest[0]];
+        int n = 0;
+        for (int i = 1; i <= shortest[0]; i += 1) {
+            int k = shortest[i];
+            boolean all = true;
+            for (int[] list : lists) {
+                if (Arrays.binarySearch(list, 1, list[0] + 1, k) < 0) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                result[n] = k;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** My file of records. */
+    private final File _records;
+
+    /** My file of commit headers. */
+    private final File _headers;
+
+    /** My message index. */
+    private final MessageIndex _index;
+}
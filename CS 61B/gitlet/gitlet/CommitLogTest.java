@@ -0,0 +1,77 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+
+/** Tests of the CommitLog class.
+ *  @author Alice Wang
+ */
+public class CommitLogTest {
+
+    /** Return the names of COMMITS. */
+    private static List<String> names(List<CommitObject> commits) {
+        List<String> result = new ArrayList<>();
+        for (CommitObject c : commits) {
+            result.add(c.getName());
+        }
+        return result;
+    }
+
+    @Test
+    public void pagesAndSearches() throws IOException {
+        File dir = TestUtils.tempDir("gitlet-log");
+        ObjectStore store = TestUtils.newStore(dir);
+        CommitObject commit = new CommitObject("initial commit", new Date(0),
+                                               new TreeMap<>(), null);
+        store.putCommit(commit);
+        File logDir = new File(dir, "logs");
+        CommitLog log = CommitLog.open(logDir, store);
+        assertEquals(1, log.size());
+
+        List<String> made = new ArrayList<>();
+        made.add(commit.getName());
+        for (int i = 1; i < 3000; i += 1) {
+            String msg = i % 100 == 0 ? "Release " + (i / 100)
+                : "Fix bug " + i;
+            commit = new CommitObject(msg, new Date(i * 1000L),
+                                      new TreeMap<>(), commit);
+            log.append(commit);
+            made.add(commit.getName());
+        }
+        assertEquals(3000, log.size());
+        List<CommitObject> page = log.page(CommitLog.PAGE, CommitLog.PAGE);
+        assertEquals(made.subList(CommitLog.PAGE, 2 * CommitLog.PAGE),
+                     names(page));
+        assertEquals("Fix bug " + CommitLog.PAGE, page.get(0).getMsg());
+        assertEquals(3000 - 2 * CommitLog.PAGE,
+                     log.page(2 * CommitLog.PAGE, CommitLog.PAGE).size());
+
+        assertEquals(List.of(made.get(1234)),
+                     names(log.find("Fix bug 1234", true)));
+        assertEquals(29, log.find("Release", false).size());
+        assertEquals(List.of(made.get(500)),
+                     names(log.find("Release 5", true)));
+        assertEquals(11, log.find("Release 1", false).size());
+        assertEquals(0, log.find("Fix bug", true).size());
+        assertEquals(List.of(made.get(0)), names(log.find("initial", false)));
+        assertEquals(3000, log.find("", false).size());
+        assertEquals(0, log.find("no such message", false).size());
+
+        commit = new CommitObject("Release 30", new Date(0),
+                                  new TreeMap<>(), commit);
+        log.append(commit);
+        assertEquals(30, log.find("Release", false).size());
+        assertEquals(30, new CommitLog(logDir).find("Release", false).size());
+
+        Utils.writeContents(new File(logDir, "grams"), "garbage");
+        assertEquals(30, log.find("Release", false).size());
+    }
+
+}
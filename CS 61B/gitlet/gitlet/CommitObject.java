@@ -1,19 +1,17 @@
 package gitlet;
 
-import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TreeMap;
 import static gitlet.Utils.*;
 
 /** the CommitObject class. Will contain information about my
- * commit message, timestamp, parent commit(s), and Mapping of my
- * currently tracked files.
+ * commit message, timestamp, parent commit(s), and the Tree of my
+ * currently tracked files, which is shared with my parent wherever
+ * our files are the same.
  * @author Alice Wang
  */
-public class CommitObject implements Serializable {
-
-    private static final long serialVersionUID = 8L;
+public class CommitObject {
 
     /** String that stores my sha1 value. */
     private String _sha1;
@@ -21,12 +19,24 @@ public class CommitObject implements Serializable {
     private String _msg;
     /** String that stores my timestamp. */
     private Date _date;
-    /** String that stores my parents as a CommitObject array.*/
-    private CommitObject _parent;
+    /** String that stores the sha1 of my parent, or null if I have
+     * none. My parent is read from the ObjectStore only when asked for. */
+    private String _parentId;
+
+    /** String that stores the sha1 of my tree, or null if I was
+     * stored before commits had trees. */
+    private String _treeId;
 
-    /** Map from file path to Blob's Sha1 (name). */
+    /** My tree, or null until it is first asked for. */
+    private Tree _tree;
+
+    /** Map from file path to Blob's Sha1 (name), or null until it is
+     * first asked for if I was read without my files. */
     private TreeMap<String, String> _blobfiles;
 
+    /** The store I was read from, or null for the repository's. */
+    private ObjectStore _store;
+
     /** Constructor for the commit object.
      *
      * @param msg String
@@ -36,37 +46,142 @@ public class CommitObject implements Serializable {
      */
     CommitObject(String msg, Date date,
                  TreeMap<String, String> blobfiles, CommitObject parent) {
+        this(msg, date, Tree.of(blobfiles), parent);
+        _blobfiles = blobfiles;
+    }
+
+    /** Constructor for the commit object of the files in TREE, whose
+     * nodes the object store saves along with me.
+     *
+     * @param msg String
+     * @param date Date
+     * @param tree Tree
+     * @param parent CommitObject
+     */
+    CommitObject(String msg, Date date, Tree tree, CommitObject parent) {
         _msg = msg;
         _date = date;
-        _parent = parent;
-        _blobfiles = blobfiles;
+        _parentId = parent == null ? null : parent.getName();
+        _tree = tree;
+        _treeId = tree.id();
 
-        if (blobfiles.values().isEmpty() && _parent != null) {
-            _sha1 = sha1(_msg, _date.toString(), _parent.getName());
-        } else if (blobfiles.values().isEmpty() && _parent == null) {
-            _sha1 = sha1(_msg, _date.toString());
+        if (_parentId != null) {
+            _sha1 = sha1(_msg, _date.toString(), _treeId, _parentId);
         } else {
-            String myFileNames = "";
-            for (String s : _blobfiles.values()) {
-                myFileNames += s + " ";
-            }
-            _sha1 = sha1(_msg, _date.toString(), myFileNames,
-                    _parent.getName());
+            _sha1 = sha1(_msg, _date.toString(), _treeId);
         }
     }
 
-    /**get my mapping of my tracked files.
+    /** Constructor for a commit object read back from the object store.
+     *
+     * @param sha1 String
+     * @param msg String
+     * @param date Date
+     * @param parentId String, or null
+     * @param treeId String, or null if I have no tree
+     * @param blobfiles Treemap, or null if not read yet
+     */
+    CommitObject(String sha1, String msg, Date date, String parentId,
+                 String treeId, TreeMap<String, String> blobfiles) {
+        _sha1 = sha1;
+        _msg = msg;
+        _date = date;
+        _parentId = parentId;
+        _treeId = treeId;
+        _blobfiles = blobfiles;
+    }
+
+    /** sets the store I was read from, from which my tree and files
+     * are read.
+     * @param store ObjectStore */
+    void setStore(ObjectStore store) {
+        _store = store;
+    }
+
+    /** returns the store I was read from.
+     * @return ObjectStore */
+    private ObjectStore store() {
+        return _store == null ? ObjectStore.repo() : _store;
+    }
+
+    /**get my mapping of my tracked files, read from my tree when first
+     * asked for.
      * @return TreeMap.
      */
     TreeMap<String, String> getFiles() {
+        if (_blobfiles == null) {
+            if (_treeId == null) {
+                _blobfiles = store().getCommit(_sha1).getFiles();
+            } else {
+                _blobfiles = getTree().flatten(store());
+            }
+        }
         return _blobfiles;
     }
 
+    /** get the sha1 of the blob of my file NAME, reading only the part
+     * of my tree that holds it.
+     * @param name String
+     * @return String, or null if I do not track NAME. */
+    String getFile(String name) {
+        if (_blobfiles != null) {
+            return _blobfiles.get(name);
+        }
+        return getTree().get(name, store());
+    }
+
+    /** get my tree, read from the object store when first asked for.
+     * A commit stored before commits had trees has one made from its
+     * files.
+     * @return Tree */
+    Tree getTree() {
+        if (_tree == null) {
+            if (_treeId == null) {
+                _tree = Tree.of(getFiles());
+                _treeId = _tree.id();
+            } else {
+                _tree = store().getTree(_treeId);
+                if (_tree == null) {
+                    throw new IllegalArgumentException("no tree " + _treeId);
+                }
+            }
+        }
+        return _tree;
+    }
+
+    /** get the sha1 of my tree.
+     * @return String */
+    String getTreeId() {
+        return _treeId == null ? getTree().id() : _treeId;
+    }
+
     /** get the parent of my commit object.
      * @return CommitObject.
      * */
     CommitObject getParent() {
-        return _parent;
+        return load(_parentId);
+    }
+
+    /** get the sha1 of the parent of my commit object.
+     * @return String, or null if I have no parent.
+     * */
+    String getParentId() {
+        return _parentId;
+    }
+
+    /** get the sha1s of all of my parents.
+     * @return String[], empty if I have none.
+     * */
+    String[] getParentIds() {
+        return _parentId == null ? new String[0] : new String[] {_parentId};
+    }
+
+    /** returns the commit named ID from the object store, without its
+     * files, which are read when first asked for.
+     * @param id String, or null
+     * @return CommitObject, or null if ID is null. */
+    static CommitObject load(String id) {
+        return id == null ? null : ObjectStore.repo().getCommitHeader(id);
     }
 
     /** return the name, or the sha1 of my commit.
@@ -81,6 +196,12 @@ public class CommitObject implements Serializable {
         return _msg;
     }
 
+    /** gets my timestamp.
+     * @return Date */
+    Date getDate() {
+        return _date;
+    }
+
     /** check if this commit is merged or not.
      * @return Boolean */
     Boolean merged() {
@@ -92,6 +213,22 @@ public class CommitObject implements Serializable {
     CommitObject[] getParents() {
         return null;
     }
+
+    /** commits are read afresh from the object store, so two commits
+     * are the same if they have the same name.
+     * @param obj Object
+     * @return boolean */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CommitObject
+            && _sha1.equals(((CommitObject) obj)._sha1);
+    }
+
+    @Override
+    public int hashCode() {
+        return _sha1.hashCode();
+    }
+
     /** return the log of my specific commit.*/
     String getLog() {
         SimpleDateFormat dateformat =
@@ -0,0 +1,144 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/** Deltas between versions of a file.  A delta is a sequence of
+ *  instructions building the new version: INSERT, a length, and that
+ *  many literal bytes; or COPY, an offset, and a length, copying that
+ *  range of the base version.  Matches are found by indexing the base
+ *  in blocks of BLOCK bytes and extending each block match as far as it
+ *  goes in both directions.
+ *  @author Alice Wang
+ */
+final class Delta {
+
+    /** Length of the blocks of the base that are indexed. */
+    static final int BLOCK = 16;
+
+    /** Instruction inserting literal bytes. */
+    private static final int INSERT = 0;
+
+    /** Instruction copying bytes from the base. */
+    private static final int COPY = 1;
+
+    /** Not instantiable. */
+    private Delta() {
+    }
+
+    /** Return the delta that builds TARGET from BASE. */
+    static byte[] compute(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int at = 0; at + BLOCK <= base.length; at += BLOCK) {
+            blocks.putIfAbsent(hash(base, at), at);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int pending = 0;
+            int i = 0;
+            while (i + BLOCK <= target.length) {
+                Integer at = blocks.get(hash(target, i));
+                if (at == null || !matches(base, at, target, i, BLOCK)) {
+                    i += 1;
+                    continue;
+                }
+                int s = at;
+                int t = i;
+                while (s > 0 && t > pending && base[s - 1] == target[t - 1]) {
+                    s -= 1;
+                    t -= 1;
+                }
+                int n = i - t + BLOCK;
+                while (s + n < base.length && t + n < target.length
+                       && base[s + n] == target[t + n]) {
+                    n += 1;
+                }
+                insert(out, target, pending, t);
+                out.writeByte(COPY);
+                Codec.writeVarint(out, s);
+                Codec.writeVarint(out, n);
+                pending = t + n;
+                i = pending;
+            }
+            insert(out, target, pending, target.length);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Return the LENGTH bytes built by applying DELTA to BASE. */
+    static byte[] apply(byte[] base, byte[] delta, int length)
+        throws IOException {
+        byte[] result = new byte[length];
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(delta));
+        int k = 0;
+        while (in.available() > 0) {
+            int op = in.readUnsignedByte();
+            if (op == INSERT) {
+                int n = checked(Codec.readVarint(in), k, length);
+                in.readFully(result, k, n);
+                k += n;
+            } else if (op == COPY) {
+                long s = Codec.readVarint(in);
+                int n = checked(Codec.readVarint(in), k, length);
+                if (s + n > base.length) {
+                    throw new IOException("bad delta");
+                }
+                System.arraycopy(base, (int) s, result, k, n);
+                k += n;
+            } else {
+                throw new IOException("bad delta");
+            }
+        }
+        if (k != length) {
+            throw new IOException("bad delta");
+        }
+        return result;
+    }
+
+    /** Write an instruction inserting TARGET[FROM .. TO-1] onto OUT, if
+     *  that range is not empty. */
+    private static void insert(DataOutputStream out, byte[] target,
+                               int from, int to) throws IOException {
+        if (from < to) {
+            out.writeByte(INSERT);
+            Codec.writeVarint(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    /** Return N, the length of an instruction writing at K of a result
+     *  of length LENGTH, after checking that it fits. */
+    private static int checked(long n, int k, int length) throws IOException {
+        if (n > length - k) {
+            throw new IOException("bad delta");
+        }
+        return (int) n;
+    }
+
+    /** Return the hash of the BLOCK bytes of DATA starting at AT. */
+    private static int hash(byte[] data, int at) {
+        int h = 0;
+        for (int i = at; i < at + BLOCK; i += 1) {
+            h = 31 * h + data[i];
+        }
+        return h;
+    }
+
+    /** Return true iff the N bytes of A at I equal those of B at J. */
+    private static boolean matches(byte[] a, int i, byte[] b, int j, int n) {
+        for (int k = 0; k < n; k += 1) {
+            if (a[i + k] != b[j + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
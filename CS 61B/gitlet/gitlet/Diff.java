@@ -0,0 +1,214 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/** Shortest edit scripts between sequences of lines, each line given as
+ *  an integer id, equal lines having equal ids.  Lines of either
+ *  sequence that do not occur in the other cannot be kept, so they are
+ *  set aside first, and the rest are compared by Myers' O(ND) algorithm
+ *  in its linear-space form: a range is trimmed of its common prefix
+ *  and suffix and then split where a search forward from its start and
+ *  a search back from its end meet, and the two halves are compared in
+ *  turn, so that only O(N + M) space is used.  A search that passes
+ *  MAX_COST edits without meeting splits the range at the furthest
+ *  point it reached instead, which bounds the time spent on very
+ *  different sequences at the cost of a script that may be longer than
+ *  the shortest.
+ *  @author Alice Wang
+ */
+final class Diff {
+
+    /** Number of edits after which a search splits at the furthest
+     *  point reached. */
+    static final int MAX_COST = 256;
+
+    /** A comparison of A with B, recording matches in MATCH. */
+    private Diff(int[] a, int[] b, int[] match) {
+        _a = a;
+        _b = b;
+        _match = match;
+    }
+
+    /** Return the matching of A to B in an edit script from A to B: the
+     *  Ith element of the result is the index of the element of B that
+     *  A[I] is kept as, or -1 if A[I] is deleted.  Kept elements are
+     *  matched to increasing indices. */
+    static int[] match(int[] a, int[] b) {
+        int[] aKept = common(a, b);
+        int[] bKept = common(b, a);
+        int[] aIds = new int[aKept.length];
+        int[] bIds = new int[bKept.length];
+        for (int i = 0; i < aKept.length; i += 1) {
+            aIds[i] = a[aKept[i]];
+        }
+        for (int i = 0; i < bKept.length; i += 1) {
+            bIds[i] = b[bKept[i]];
+        }
+        int[] kept = new int[aIds.length];
+        Arrays.fill(kept, -1);
+        new Diff(aIds, bIds, kept).compare(0, aIds.length, 0, bIds.length);
+        int[] result = new int[a.length];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < kept.length; i += 1) {
+            if (kept[i] >= 0) {
+                result[aKept[i]] = bKept[kept[i]];
+            }
+        }
+        return result;
+    }
+
+    /** Return the indices, in order, of the elements of A that occur in
+     *  B. */
+    private static int[] common(int[] a, int[] b) {
+        HashSet<Integer> inB = new HashSet<>();
+        for (int id : b) {
+            inB.add(id);
+        }
+        int[] result = new int[a.length];
+        int n = 0;
+        for (int i = 0; i < a.length; i += 1) {
+            if (inB.contains(a[i])) {
+                result[n] = i;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Match the elements of _a[ALO..AHI) with those of _b[BLO..BHI). */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            _match[aLo] = bLo;
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+            _match[aHi] = bHi;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            return;
+        }
+        int[] split = split(aLo, aHi, bLo, bHi);
+        if (split != null) {
+            compare(aLo, split[0], bLo, split[1]);
+            compare(split[0], aHi, split[1], bHi);
+        }
+    }
+
+    /** Return the point {X, Y} at which to split the comparison of
+     *  _a[ALO..AHI) with _b[BLO..BHI), whose first elements differ and
+     *  whose last elements differ, into that of _a[ALO..X) with
+     *  _b[BLO..Y) and that of _a[X..AHI) with _b[Y..BHI).  Returns null
+     *  if the ranges have nothing in common. */
+    private int[] split(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int max = (n + m + 1) / 2;
+        int offset = max;
+        int length = 2 * max + 2;
+        int[] forward = new int[length];
+        int[] reverse = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int fStart = 0;
+        int fEnd = 0;
+        int rStart = 0;
+        int rEnd = 0;
+        int limit = Math.min(max, MAX_COST);
+        for (int d = 0; d < limit; d += 1) {
+            for (int k = -d + fStart; k <= d - fEnd; k += 2) {
+                int i = offset + k;
+                int x = k == -d || k != d && forward[i - 1] < forward[i + 1]
+                    ? forward[i + 1] : forward[i - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && _a[aLo + x] == _b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[i] = x;
+                if (x > n) {
+                    fEnd += 2;
+                } else if (y > m) {
+                    fStart += 2;
+                } else if (odd) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < length && reverse[j] != -1
+                        && x >= n - reverse[j]) {
+                        return new int[] { aLo + x, bLo + y };
+                    }
+                }
+            }
+            for (int k = -d + rStart; k <= d - rEnd; k += 2) {
+                int i = offset + k;
+                int x = k == -d || k != d && reverse[i - 1] < reverse[i + 1]
+                    ? reverse[i + 1] : reverse[i - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m
+                       && _a[aHi - x - 1] == _b[bHi - y - 1]) {
+                    x += 1;
+                    y += 1;
+                }
+                reverse[i] = x;
+                if (x > n) {
+                    rEnd += 2;
+                } else if (y > m) {
+                    rStart += 2;
+                } else if (!odd) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < length && forward[j] != -1
+                        && forward[j] >= n - x) {
+                        int fx = forward[j];
+                        return new int[] {
+                            aLo + fx, bLo + fx - (j - offset)
+                        };
+                    }
+                }
+            }
+        }
+        if (limit == max) {
+            return null;
+        }
+        return furthest(forward, offset, limit - 1, fStart, fEnd, n, m,
+                        aLo, bLo);
+    }
+
+    /** Return the point {X, Y}, offset by ALO and BLO, furthest from the
+     *  start of a comparison of N elements with M reached by the search
+     *  FORWARD, centered at OFFSET, after D edits, skipping the first
+     *  START and last END diagonals, which it left.  Returns null if
+     *  that point is at either end. */
+    private static int[] furthest(int[] forward, int offset, int d,
+                                  int start, int end, int n, int m,
+                                  int aLo, int bLo) {
+        int bestX = 0;
+        int bestY = 0;
+        for (int k = -d + start; k <= d - end; k += 2) {
+            int x = forward[offset + k];
+            int y = x - k;
+            if (x <= n && y <= m && x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+            }
+        }
+        if (bestX + bestY == 0 || bestX == n && bestY == m) {
+            return null;
+        }
+        return new int[] { aLo + bestX, bLo + bestY };
+    }
+
+    /** The first sequence. */
+    private final int[] _a;
+
+    /** The second sequence. */
+    private final int[] _b;
+
+    /** The index in _b matched with each element of _a, or -1. */
+    private final int[] _match;
+}
@@ -0,0 +1,218 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Three-way merges of files line by line.  The lines of a base version
+ *  and of two versions changed from it are given common integer ids,
+ *  and each changed version is matched with the base by Diff.  The
+ *  merge then walks the three versions together: a base line kept at
+ *  the current position of both versions is written as is, and the
+ *  lines up to the next base line kept by both form a chunk, which is
+ *  written as changed by whichever version changed it, or once if both
+ *  changed it alike, and otherwise as a conflict holding both versions
+ *  between conflict markers.  Each version is read whole, but the
+ *  result is written to its stream a range at a time, without being
+ *  built in memory.
+ *  @author Alice Wang
+ */
+final class Diff3 {
+
+    /** Marker opening a conflict, before the current version. */
+    static final byte[] HEAD =
+        "<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Marker between the current and given versions of a conflict. */
+    static final byte[] SEPARATOR =
+        "=======\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Marker closing a conflict, after the given version. */
+    static final byte[] END = ">>>>>>>\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Merge of the changes from BASE to CUR and from BASE to GIVEN. */
+    private Diff3(byte[] base, byte[] cur, byte[] given) {
+        _base = new Version(base);
+        _cur = new Version(cur);
+        _given = new Version(given);
+        _curMatch = Diff.match(_base._lineIds, _cur._lineIds);
+        _givenMatch = Diff.match(_base._lineIds, _given._lineIds);
+    }
+
+    /** Write to OUT the merge of the changes from BASE to CUR with those
+     *  from BASE to GIVEN, and return true iff it holds a conflict. */
+    static boolean merge(byte[] base, byte[] cur, byte[] given,
+                         OutputStream out) throws IOException {
+        return new Diff3(base, cur, given).write(out);
+    }
+
+    /** Write my merge to OUT, returning true iff it holds a conflict. */
+    private boolean write(OutputStream out) throws IOException {
+        int n = _base.size();
+        int i = 0;
+        int a = 0;
+        int b = 0;
+        boolean conflict = false;
+        while (i < n || a < _cur.size() || b < _given.size()) {
+            if (i < n && _curMatch[i] == a && _givenMatch[i] == b) {
+                _cur.write(out, a, a + 1);
+                i += 1;
+                a += 1;
+                b += 1;
+                continue;
+            }
+            int j = i;
+            while (j < n && (_curMatch[j] < 0 || _givenMatch[j] < 0)) {
+                j += 1;
+            }
+            int aEnd = j < n ? _curMatch[j] : _cur.size();
+            int bEnd = j < n ? _givenMatch[j] : _given.size();
+            if (_base.same(i, j, _cur, a, aEnd)) {
+                _given.write(out, b, bEnd);
+            } else if (_base.same(i, j, _given, b, bEnd)
+                       || _cur.same(a, aEnd, _given, b, bEnd)) {
+                _cur.write(out, a, aEnd);
+            } else {
+                out.write(HEAD);
+                _cur.write(out, a, aEnd);
+                out.write(SEPARATOR);
+                _given.write(out, b, bEnd);
+                out.write(END);
+                conflict = true;
+            }
+            i = j;
+            a = aEnd;
+            b = bEnd;
+        }
+        return conflict;
+    }
+
+    /** Return the id shared by all lines equal to LINE. */
+    private int intern(Line line) {
+        Integer id = _interned.get(line);
+        if (id == null) {
+            id = _interned.size();
+            _interned.put(line, id);
+        }
+        return id;
+    }
+
+    /** A line of a version, as a range of its contents. */
+    private static final class Line {
+
+        /** The line CONTENTS[START..END). */
+        Line(byte[] contents, int start, int end) {
+            _contents = contents;
+            _start = start;
+            _end = end;
+            int hash = 1;
+            for (int k = start; k < end; k += 1) {
+                hash = 31 * hash + contents[k];
+            }
+            _hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Line)) {
+                return false;
+            }
+            Line other = (Line) obj;
+            return _hash == other._hash
+                && Arrays.equals(_contents, _start, _end,
+                                 other._contents, other._start, other._end);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        /** The contents holding me. */
+        private final byte[] _contents;
+
+        /** My start in _contents. */
+        private final int _start;
+
+        /** My end in _contents. */
+        private final int _end;
+
+        /** My hash code. */
+        private final int _hash;
+    }
+
+    /** One of the three versions merged, divided into lines, each ending
+     *  after a newline or at the end of the contents. */
+    private final class Version {
+
+        /** The version with contents CONTENTS. */
+        Version(byte[] contents) {
+            _contents = contents;
+            int count = 0;
+            for (int k = 0; k < contents.length; k += 1) {
+                if (contents[k] == '\n' || k == contents.length - 1) {
+                    count += 1;
+                }
+            }
+            _starts = new int[count + 1];
+            _lineIds = new int[count];
+            int line = 0;
+            for (int k = 0; k < contents.length; k += 1) {
+                if (contents[k] == '\n' || k == contents.length - 1) {
+                    _starts[line + 1] = k + 1;
+                    _lineIds[line] =
+                        intern(new Line(contents, _starts[line], k + 1));
+                    line += 1;
+                }
+            }
+        }
+
+        /** Return my number of lines. */
+        int size() {
+            return _lineIds.length;
+        }
+
+        /** Return true iff my lines [FROM..TO) are those of OTHER
+         *  [OTHERFROM..OTHERTO). */
+        boolean same(int from, int to, Version other,
+                     int otherFrom, int otherTo) {
+            return Arrays.equals(_lineIds, from, to,
+                                 other._lineIds, otherFrom, otherTo);
+        }
+
+        /** Write my lines [FROM..TO) to OUT. */
+        void write(OutputStream out, int from, int to) throws IOException {
+            out.write(_contents, _starts[from], _starts[to] - _starts[from]);
+        }
+
+        /** My contents. */
+        private final byte[] _contents;
+
+        /** The start of each of my lines in _contents, followed by their
+         *  end. */
+        private final int[] _starts;
+
+        /** The id of each of my lines. */
+        private final int[] _lineIds;
+    }
+
+    /** The ids of the distinct lines of the three versions. */
+    private final HashMap<Line, Integer> _interned = new HashMap<>();
+
+    /** The base version. */
+    private final Version _base;
+
+    /** The current version. */
+    private final Version _cur;
+
+    /** The given version. */
+    private final Version _given;
+
+    /** The line of _cur kept as each line of _base, or -1. */
+    private final int[] _curMatch;
+
+    /** The line of _given kept as each line of _base, or -1. */
+    private final int[] _givenMatch;
+}
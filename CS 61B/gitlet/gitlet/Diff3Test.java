@@ -0,0 +1,91 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/** Tests of the Diff and Diff3 classes.
+ *  @author Alice Wang
+ */
+public class Diff3Test {
+
+    /** Return the result of merging CUR and GIVEN from BASE, each a
+     *  string of lines, followed by "!" if it had a conflict. */
+    private static String merge(String base, String cur, String given)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean conflict =
+            Diff3.merge(base.getBytes(StandardCharsets.UTF_8),
+                        cur.getBytes(StandardCharsets.UTF_8),
+                        given.getBytes(StandardCharsets.UTF_8), out);
+        return out.toString(StandardCharsets.UTF_8) + (conflict ? "!" : "");
+    }
+
+    @Test
+    public void matchesAreShortest() {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 200; trial += 1) {
+            int[] a = new int[random.nextInt(40)];
+            int[] b = new int[random.nextInt(40)];
+            for (int i = 0; i < a.length; i += 1) {
+                a[i] = random.nextInt(4);
+            }
+            for (int i = 0; i < b.length; i += 1) {
+                b[i] = random.nextInt(4);
+            }
+            int[] match = Diff.match(a, b);
+            int kept = 0;
+            int last = -1;
+            for (int i = 0; i < a.length; i += 1) {
+                if (match[i] >= 0) {
+                    assertTrue(match[i] > last);
+                    assertEquals(a[i], b[match[i]]);
+                    last = match[i];
+                    kept += 1;
+                }
+            }
+            assertEquals(common(a, b), kept);
+        }
+    }
+
+    /** Return the length of the longest common subsequence of A and B. */
+    private static int common(int[] a, int[] b) {
+        int[][] lengths = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i -= 1) {
+            for (int j = b.length - 1; j >= 0; j -= 1) {
+                lengths[i][j] = a[i] == b[j] ? lengths[i + 1][j + 1] + 1
+                    : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        return lengths[0][0];
+    }
+
+    @Test
+    public void separateChangesMerge() throws IOException {
+        String base = "a\nb\nc\nd\ne\n";
+        assertEquals("A\nb\nc\nd\nE\n",
+                     merge(base, "A\nb\nc\nd\ne\n", "a\nb\nc\nd\nE\n"));
+        assertEquals("a\nc\nd\ne\nf\n",
+                     merge(base, "a\nc\nd\ne\n", "a\nb\nc\nd\ne\nf\n"));
+        assertEquals("a\nB\nc\nd\ne\n",
+                     merge(base, "a\nB\nc\nd\ne\n", "a\nB\nc\nd\ne\n"));
+        assertEquals("x\n", merge("", "x\n", "x\n"));
+        assertEquals("a\nb", merge("a\nb", "a\nb", "a\nb"));
+    }
+
+    @Test
+    public void overlappingChangesConflict() throws IOException {
+        String base = "a\nb\nc\n";
+        assertEquals("a\n<<<<<<< HEAD\nB\n=======\nb2\n>>>>>>>\nc\n!",
+                     merge(base, "a\nB\nc\n", "a\nb2\nc\n"));
+        assertEquals("<<<<<<< HEAD\nx\n=======\ny\n>>>>>>>\n!",
+                     merge("", "x\n", "y\n"));
+        assertEquals("<<<<<<< HEAD\nwug\n=======\n>>>>>>>\n!",
+                     merge("w\n", "wug\n", ""));
+    }
+
+}
@@ -1,12 +1,11 @@
 package gitlet;
 
 
-import java.io.File;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.List;
 
-/** the class for the FIND command. go through my commit folder and find all
- * the commits I want.
+/** the class for the FIND command. searches the commit log for all
+ * the commits I want, through its index of messages.
  * @author Alice Wang
  */
 
@@ -15,30 +14,28 @@ public class Find implements Serializable {
     /** String of the message I want to find. */
     private String _msg;
 
+    /** true if the messages must equal my message, false if they need
+     * only contain it. */
+    private boolean _exact;
+
 
     /** The constructor for the Find command. takes in the string of the message
-     * that I want to find.
-     * @param msg String */
-    Find(String msg) {
+     * that I want to find, and whether it must be the EXACT message.
+     * @param msg String
+     * @param exact boolean */
+    Find(String msg, boolean exact) {
         Gitlet.checkgit();
         _msg = msg;
+        _exact = exact;
     }
 
     /** performs the Find command action. */
     void doFind() {
-        File commits = new File(Init.COMMIT_DIR);
-        File[] commitobjects = commits.listFiles();
-        ArrayList<String> cIDs = new ArrayList<>();
-        for (File f : commitobjects) {
-            CommitObject cO = Utils.readObject(f, CommitObject.class);
-            if (cO != null) {
-                if (cO.getMsg().equals(_msg)) {
-                    cIDs.add(cO.getName());
-                    System.out.println(cO.getName());
-                }
-            }
+        List<CommitObject> found = CommitLog.open().find(_msg, _exact);
+        for (CommitObject cO : found) {
+            System.out.println(cO.getName());
         }
-        if (cIDs.isEmpty()) {
+        if (found.isEmpty()) {
             System.out.println("Found no commit with that message.");
         }
     }
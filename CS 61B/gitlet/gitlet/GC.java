@@ -0,0 +1,35 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/** The class for my gc command, which folds all loose blobs, trees, and
+ * commits and all existing packs into a single packfile, and brings the
+ * commit-graph up to date with every commit.
+ * @author Alice Wang
+ */
+public class GC implements Serializable {
+
+    /** The constructor for my gc command. */
+    GC() {
+        Gitlet.checkgit();
+    }
+
+    /** carries out the gc command, reporting the number of objects
+     * packed. */
+    void doGC() {
+        try {
+            ObjectStore objects = ObjectStore.repo();
+            int packed = objects.gc();
+            CommitGraph graph = CommitGraph.load();
+            for (String id : objects.commitIds()) {
+                graph.position(id);
+            }
+            graph.save();
+            System.out.println("Packed " + packed + " objects.");
+        } catch (IOException e) {
+            System.out.println("Could not write pack: " + e.getMessage());
+            System.exit(0);
+        }
+    }
+}
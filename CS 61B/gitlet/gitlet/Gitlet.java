@@ -1,28 +1,64 @@
 package gitlet;
 
 import java.io.File;
-import java.io.Serializable;
+import java.util.List;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
-/** Object that stores the head commits and branch names. This
- * information is then serialized into a file called .gitlet/metadata.
+/** Object that stores the head commits and branch names. Each branch
+ * is a tiny ref file in .gitlet/refs/heads holding the sha1 of its head
+ * commit, and .gitlet/HEAD holds the name of the current branch, so
+ * loading me reads one small file per branch however long the history
+ * is. Head commits are read from the ObjectStore only when asked for.
  * @author Alice Wang
  */
-public class Gitlet implements Serializable {
+public class Gitlet {
 
-    /** serializable UID so that I stop getting errors.*/
-    private static final long serialVersionUID = 28L;
-
-    /** mapping of my branch names to the commitobject heads.*/
-    private TreeMap<String, CommitObject> _branchHeadMap;
+    /** mapping of my branch names to the sha1s of their heads.*/
+    private TreeMap<String, String> _branchHeadMap;
 
     /** the name of my current branch.*/
     private String _curBranch;
 
+    /** names of the branches changed since I was loaded.*/
+    private TreeSet<String> _changed;
+
     /** Constructor constructing a new "null" treemap.*/
     Gitlet() {
         _branchHeadMap = new TreeMap<>();
         _curBranch = "master";
+        _changed = new TreeSet<>();
+    }
+
+    /** returns the refs of the repository in my working directory. */
+    static Gitlet load() {
+        Gitlet result = new Gitlet();
+        result._curBranch =
+            Utils.readContentsAsString(new File(Init.HEAD_FILE)).trim();
+        List<String> branches = Utils.plainFilenamesIn(Init.REFS_DIR);
+        if (branches != null) {
+            for (String b : branches) {
+                File ref = new File(Init.REFS_DIR, b);
+                result._branchHeadMap.put(b,
+                        Utils.readContentsAsString(ref).trim());
+            }
+        }
+        return result;
+    }
+
+    /** writes out HEAD and the ref files of my changed branches. */
+    void save() {
+        new File(Init.REFS_DIR).mkdirs();
+        for (String b : _changed) {
+            File ref = new File(Init.REFS_DIR, b);
+            if (_branchHeadMap.containsKey(b)) {
+                Utils.writeContents(ref, _branchHeadMap.get(b) + "\n");
+            } else {
+                ref.delete();
+            }
+        }
+        _changed.clear();
+        Utils.writeContents(new File(Init.HEAD_FILE), _curBranch + "\n");
     }
 
     /**Sets my current branch to the branchName.
@@ -40,14 +76,16 @@ public class Gitlet implements Serializable {
         return _curBranch;
     }
 
-    /** returns mapping of my branchHeads. */
-    TreeMap getbranchHeadMap() {
+    /** returns mapping of my branch names to the sha1s of their heads. */
+    TreeMap<String, String> getbranchHeadMap() {
         return _branchHeadMap;
     }
 
     /** set the head of the given STRING BNAME and COMMIT OBEJCT CHEAD.*/
     void setBranchHead(String bName, CommitObject chead) {
-        _branchHeadMap.replace(bName, chead);
+        if (_branchHeadMap.replace(bName, chead.getName()) != null) {
+            _changed.add(bName);
+        }
     }
 
     /** returns the head of my branch name.
@@ -56,7 +94,8 @@ public class Gitlet implements Serializable {
      * @return Commit Object
      */
     CommitObject getHead(String branchName) {
-        return _branchHeadMap.get(branchName);
+        String id = _branchHeadMap.get(branchName);
+        return id == null ? null : ObjectStore.repo().getCommit(id);
     }
 
     /** Add a new branch head to my map.
@@ -65,11 +104,8 @@ public class Gitlet implements Serializable {
      * @param branchName String
      */
     void addHead(CommitObject commit, String branchName) {
-        if (_branchHeadMap.containsKey(branchName)) {
-            _branchHeadMap.replace(branchName, commit);
-        } else {
-            _branchHeadMap.put(branchName, commit);
-        }
+        _branchHeadMap.put(branchName, commit.getName());
+        _changed.add(branchName);
     }
 
     /** Removes a branch pointer in my map.
@@ -77,6 +113,25 @@ public class Gitlet implements Serializable {
      */
     void removeBranch(String branchName) {
         _branchHeadMap.remove(branchName);
+        _changed.add(branchName);
+    }
+
+    /** returns the sha1 of the one commit whose sha1 starts with ID,
+     * which may be abbreviated, printing an error and exiting if there
+     * is no such commit or more than one.
+     * @param id String
+     * @return String */
+    static String resolveCommit(String id) {
+        List<String> matches =
+            ObjectStore.repo().commitIds(id.toLowerCase(), 2);
+        if (matches.isEmpty()) {
+            System.out.println("No commit with that id exists.");
+            System.exit(0);
+        } else if (matches.size() > 1) {
+            System.out.println("Commit id " + id + " is ambiguous.");
+            System.exit(0);
+        }
+        return matches.get(0);
     }
 
     /** Check if .gitlet exists in my working directory!*/
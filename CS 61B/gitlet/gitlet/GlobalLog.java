@@ -1,7 +1,6 @@
 package gitlet;
 
 
-import java.io.File;
 import java.io.Serializable;
 
 /** The Official class for the Global Log command.
@@ -14,21 +13,18 @@ public class GlobalLog implements Serializable {
         Gitlet.checkgit();
     }
 
-    /** Do the action of the global log by going through the commits
-     * in my commit file and returning their log.
+    /** Do the action of the global log by going through the commit
+     * log a page at a time and printing each page's logs together,
+     * so that only one page is ever held.
      */
     void doGlobalLog() {
-        File commits = new File(Init.COMMIT_DIR);
-        File[] allcommits = commits.listFiles();
-
-        for (File f : allcommits) {
-            if (f.isFile()) {
-                File commit = new File(".gitlet/.commit/" + f.getName());
-                CommitObject cO = Utils.readObject(commit, CommitObject.class);
-                if (cO != null) {
-                    System.out.println(cO.getLog());
-                }
+        CommitLog log = CommitLog.open();
+        for (int k = 0; k < log.size(); k += CommitLog.PAGE) {
+            StringBuilder page = new StringBuilder();
+            for (CommitObject cO : log.page(k, CommitLog.PAGE)) {
+                page.append(cO.getLog()).append("\n");
             }
+            System.out.print(page);
         }
     }
 }
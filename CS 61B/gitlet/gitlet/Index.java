@@ -0,0 +1,317 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/** The stat cache of my working files, saved in .gitlet/index.  For
+ *  each file whose sha1 I have computed or written, I record its size,
+ *  modification time, and inode along with the sha1, so that a file
+ *  whose stat has not changed since is not hashed again.  As in git, an
+ *  entry whose modification time is not older than the modification
+ *  time of the index file is "racily clean": the file may have changed
+ *  within the file system's timestamp granularity after it was hashed,
+ *  so it is hashed again.  Files that must be hashed are hashed in
+ *  parallel, and files being restored from blobs are written by a
+ *  bounded pool of threads.
+ *  @author Alice Wang
+ */
+public class Index {
+
+    /** The stat and sha1 of one file. */
+    static class Entry {
+
+        /** The entry of a file of SIZE bytes last modified at MTIME
+         *  nanoseconds, with inode INODE and contents named SHA1. */
+        Entry(long size, long mtime, long inode, String sha1) {
+            _size = size;
+            _mtime = mtime;
+            _inode = inode;
+            _sha1 = sha1;
+        }
+
+        /** Return the size of the file. */
+        long size() {
+            return _size;
+        }
+
+        /** Return the modification time of the file, in nanoseconds. */
+        long mtime() {
+            return _mtime;
+        }
+
+        /** Return the inode of the file, or 0 if unknown. */
+        long inode() {
+            return _inode;
+        }
+
+        /** Return the sha1 of the file's contents. */
+        String sha1() {
+            return _sha1;
+        }
+
+        /** Return true iff STAT, an entry without a sha1, describes the
+         *  same file as I do. */
+        boolean sameStat(Entry stat) {
+            return _size == stat._size && _mtime == stat._mtime
+                && _inode == stat._inode;
+        }
+
+        /** The size of the file. */
+        private final long _size;
+
+        /** The modification time of the file. */
+        private final long _mtime;
+
+        /** The inode of the file. */
+        private final long _inode;
+
+        /** The sha1 of the file's contents. */
+        private final String _sha1;
+    }
+
+    /** Constructor for an empty index, saved in .gitlet/index. */
+    Index() {
+        _entries = new TreeMap<>();
+        _file = new File(Init.INDEX_FILE);
+    }
+
+    /** returns the index saved in .gitlet/index, or an empty one if
+     * there is none. */
+    static Index load() {
+        return load(new File(Init.INDEX_FILE));
+    }
+
+    /** returns the index saved in FILE, or an empty one if there is
+     * none.
+     * @param file File */
+    static Index load(File file) {
+        if (!file.isFile()) {
+            Index result = new Index();
+            result._file = file;
+            return result;
+        }
+        Index result = Codec.decodeIndex(Utils.readContents(file));
+        result._file = file;
+        try {
+            result._savedAt = nanos(Files.getLastModifiedTime(file.toPath()));
+        } catch (IOException excp) {
+            result._savedAt = 0;
+        }
+        return result;
+    }
+
+    /** saves me to my index file, if I have changed, forgetting files
+     * that no longer exist. */
+    void save() {
+        if (!_changed) {
+            return;
+        }
+        _entries.keySet().removeIf(path -> !new File(path).isFile());
+        Utils.writeContents(_file, Codec.encode(this));
+        _changed = false;
+    }
+
+    /** returns the sha1 of the file PATH, or null if it is not a
+     * file, hashing it only if it has changed since it was last hashed.
+     * @param path String */
+    String hash(String path) {
+        return hashAll(Collections.singletonList(path)).get(path);
+    }
+
+    /** returns the sha1s of the files among PATHS, hashing in parallel
+     * those that have changed since they were last hashed.
+     * @param paths Collection */
+    Map<String, String> hashAll(Collection<String> paths) {
+        TreeMap<String, String> result = new TreeMap<>();
+        TreeMap<String, Entry> dirty = new TreeMap<>();
+        for (String path : paths) {
+            Entry stat = stat(path);
+            if (stat == null) {
+                continue;
+            }
+            Entry cached = _entries.get(path);
+            if (cached != null && cached.sameStat(stat)
+                && cached.mtime() < _savedAt) {
+                result.put(path, cached.sha1());
+            } else {
+                dirty.put(path, stat);
+            }
+        }
+        Map<String, String> hashed = dirty.keySet().parallelStream()
+            .collect(Collectors.toMap(path -> path,
+                                      path -> Blob.hash(new File(path))));
+        for (Map.Entry<String, String> e : hashed.entrySet()) {
+            Entry stat = dirty.get(e.getKey());
+            record(e.getKey(), stat, e.getValue());
+            result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /** records that the file PATH, just written or hashed, holds the
+     * contents of the blob named SHA1.
+     * @param path String
+     * @param sha1 String */
+    void update(String path, String sha1) {
+        Entry stat = stat(path);
+        if (stat != null) {
+            record(path, stat, sha1);
+        }
+    }
+
+    /** writes each file named in FILES with the contents of the blob
+     * it maps to, skipping those the index shows already hold them.
+     * @param files Map */
+    void restoreAll(Map<String, String> files) {
+        restoreAll(files, files);
+    }
+
+    /** writes each file named in FILES with the contents of the blob
+     * it maps to, where TRACKED holds the files of the commit being
+     * replaced.  A file that TRACKED maps to a different blob is written
+     * without being hashed; one it maps to the same blob is written only
+     * if the index shows it no longer holds that blob.  Files are written
+     * by up to WRITERS threads at once.
+     * @param files Map
+     * @param tracked Map */
+    void restoreAll(Map<String, String> files, Map<String, String> tracked) {
+        List<String> unchanged = new ArrayList<>();
+        TreeMap<String, String> toWrite = new TreeMap<>();
+        for (Map.Entry<String, String> e : files.entrySet()) {
+            if (e.getValue().equals(tracked.get(e.getKey()))) {
+                unchanged.add(e.getKey());
+            } else {
+                toWrite.put(e.getKey(), e.getValue());
+            }
+        }
+        Map<String, String> current = hashAll(unchanged);
+        for (String path : unchanged) {
+            if (!files.get(path).equals(current.get(path))) {
+                toWrite.put(path, files.get(path));
+            }
+        }
+        write(toWrite);
+    }
+
+    /** returns my entries, by path. */
+    TreeMap<String, Entry> entries() {
+        return _entries;
+    }
+
+    /** writes each file named in FILES with the contents of the blob
+     * it maps to, on up to WRITERS threads, and records them. */
+    private void write(Map<String, String> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        ObjectStore store = ObjectStore.repo();
+        ExecutorService pool =
+            Executors.newFixedThreadPool(Math.min(WRITERS, files.size()));
+        try {
+            TreeMap<String, Future<Entry>> written = new TreeMap<>();
+            for (Map.Entry<String, String> e : files.entrySet()) {
+                String path = e.getKey();
+                String sha1 = e.getValue();
+                written.put(path, pool.submit(() -> {
+                    store.copyBlob(sha1, new File(path));
+                    return stat(path);
+                }));
+            }
+            for (Map.Entry<String, Future<Entry>> e : written.entrySet()) {
+                Entry stat = e.getValue().get();
+                if (stat != null) {
+                    record(e.getKey(), stat, files.get(e.getKey()));
+                }
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (InterruptedException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** records STAT with SHA1 as the entry of PATH. */
+    private void record(String path, Entry stat, String sha1) {
+        _entries.put(path, new Entry(stat.size(), stat.mtime(),
+                                     stat.inode(), sha1));
+        _changed = true;
+    }
+
+    /** returns the stat of the file PATH, without a sha1, or null if it
+     * is not a regular file. */
+    private static Entry stat(String path) {
+        Path p = new File(path).toPath();
+        try {
+            BasicFileAttributes attrs =
+                Files.readAttributes(p, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return null;
+            }
+            return new Entry(attrs.size(), nanos(attrs.lastModifiedTime()),
+                             inode(p), null);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** returns the inode of the file P, or 0 where inodes are not
+     * available. */
+    private static long inode(Path p) {
+        if (!_unix) {
+            return 0;
+        }
+        try {
+            return ((Number) Files.getAttribute(p, "unix:ino")).longValue();
+        } catch (UnsupportedOperationException | IllegalArgumentException
+                 | IOException excp) {
+            _unix = false;
+            return 0;
+        }
+    }
+
+    /** returns TIME in nanoseconds. */
+    private static long nanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+
+    /** Most threads writing files at once. */
+    static final int WRITERS =
+        Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** False once inodes are found to be unavailable. */
+    private static boolean _unix = true;
+
+    /** The file in which I am saved. */
+    private File _file;
+
+    /** My entries, by path. */
+    private TreeMap<String, Entry> _entries;
+
+    /** Modification time of the index file when I was loaded, in
+     * nanoseconds, or 0 if there was none. */
+    private long _savedAt;
+
+    /** True iff I have changed since I was loaded or saved. */
+    private boolean _changed;
+}
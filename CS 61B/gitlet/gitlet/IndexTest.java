@@ -0,0 +1,55 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+/** Tests of the Index class.
+ *  @author Alice Wang
+ */
+public class IndexTest {
+
+    @Test
+    public void cachesUnchangedFiles() throws IOException {
+        File dir = Files.createTempDirectory("gitlet-index").toFile();
+        File indexFile = new File(dir, "index");
+        File f = new File(dir, "f.txt");
+        File g = new File(dir, "g.txt");
+        Utils.writeContents(f, "version 1\n");
+        Utils.writeContents(g, "other\n");
+        long past = System.currentTimeMillis() - 60000;
+        f.setLastModified(past);
+        g.setLastModified(past);
+
+        Index index = Index.load(indexFile);
+        Map<String, String> hashes =
+            index.hashAll(Arrays.asList(f.getPath(), g.getPath(),
+                                        new File(dir, "none").getPath()));
+        assertEquals(2, hashes.size());
+        assertEquals(Blob.hash(f), hashes.get(f.getPath()));
+        assertEquals(Blob.hash(g), hashes.get(g.getPath()));
+        index.save();
+
+        index = Index.load(indexFile);
+        assertEquals(2, index.entries().size());
+        String v1 = Blob.hash(f);
+        Utils.writeContents(f, "version 2\n");
+        f.setLastModified(past);
+        assertEquals("unchanged stat is not rehashed",
+                     v1, index.hash(f.getPath()));
+
+        f.setLastModified(indexFile.lastModified());
+        assertEquals("racily clean file is rehashed",
+                     Blob.hash(f), index.hash(f.getPath()));
+
+        g.delete();
+        index.save();
+        assertEquals(1, Index.load(indexFile).entries().size());
+    }
+
+}
@@ -7,7 +7,7 @@ import java.util.TreeMap;
 import static gitlet.Utils.*;
 
 /** class for the Init method. Will initialize all necessary files and
- * directories, create a new gitlet object and stage object and serialize
+ * directories, create a new gitlet object and stage object and save
  * these objects to files in hte .gitlet directory. Will also add the initial
  * commit to the gitlet object as well.
  * @author Alice Wang
@@ -25,8 +25,26 @@ public class Init {
     /** Path for my Blob directory. */
     static final String BLOB_DIR = ".gitlet/.blob";
 
-    /**Path for my gitlet metadata file.*/
-    static final String GITLET_METADATA_NAME = ".gitlet/metadata";
+    /** Path for my tree directory. */
+    static final String TREE_DIR = ".gitlet/.tree";
+
+    /** Path for my pack directory. */
+    static final String PACK_DIR = ".gitlet/.pack";
+
+    /** Path for my file naming the current branch. */
+    static final String HEAD_FILE = ".gitlet/HEAD";
+
+    /** Path for my stat cache of working files. */
+    static final String INDEX_FILE = ".gitlet/index";
+
+    /** Path for my commit-graph. */
+    static final String GRAPH_FILE = ".gitlet/commit-graph";
+
+    /** Path for my directory holding the log of all commits. */
+    static final String LOG_DIR = ".gitlet/logs";
+
+    /** Path for my directory of branch ref files. */
+    static final String REFS_DIR = ".gitlet/refs/heads";
 
     /** Path for my commit directory. */
     static final String COMMIT_DIR = ".gitlet/.commit";
@@ -51,11 +69,12 @@ public class Init {
         new File(GITLET_DIR).mkdir();
         new File(STAGE_DIR).mkdir();
         new File(BLOB_DIR).mkdir();
+        new File(TREE_DIR).mkdir();
         new File(COMMIT_DIR).mkdir();
+        new File(PACK_DIR).mkdir();
+        new File(REFS_DIR).mkdirs();
         File stageobject = new File(STAGE_OBJ_DIR);
-        File metadata = new File(GITLET_METADATA_NAME);
         try {
-            metadata.createNewFile();
             stageobject.createNewFile();
         } catch (IOException e) {
             e.printStackTrace();
@@ -68,14 +87,14 @@ public class Init {
         CommitObject initialCommit = new CommitObject("initial commit",
                 epoch, initMap, initP);
 
+        CommitLog log = CommitLog.open();
+        ObjectStore.repo().putCommit(initialCommit);
+        log.append(initialCommit);
         _gitlet.addHead(initialCommit, "master");
-        writeObject(metadata, _gitlet);
+        _gitlet.save();
 
         _stage = new Stage();
-        writeObject(stageobject, _stage);
-
-        writeObject(new File(COMMIT_DIR + "/"
-                + initialCommit.getName()), initialCommit);
+        _stage.save();
     }
 }
 
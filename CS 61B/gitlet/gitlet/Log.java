@@ -1,9 +1,5 @@
 package gitlet;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
-import java.io.IOException;
 import java.io.Serializable;
 
 /** Log command class that is able to access my commit objects
@@ -20,16 +16,7 @@ public class Log implements Serializable {
      */
     Log() {
         Gitlet.checkgit();
-        File gitlet = new File(".gitlet/metadata");
-        try {
-            ObjectInputStream in =
-                    new ObjectInputStream(new FileInputStream(gitlet));
-            _gitlet = (Gitlet) in.readObject();
-            in.close();
-        } catch (IOException | ClassCastException
-                | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+        _gitlet = Gitlet.load();
     }
 
     /** prints out the logs of all of my commit Objects. */
@@ -45,6 +45,9 @@ public class Main {
                 parseReset(args);
             } else if (args[0].equals("merge")) {
                 parseMerge(args);
+            } else if (args[0].equals("gc")
+                    || args[0].equals("repack")) {
+                parseGC(args);
             } else {
                 System.out.println("No command with that name exists.");
                 System.exit(0);
@@ -149,10 +152,15 @@ public class Main {
             System.exit(0);
         }
     }
-    /** Parses through the find command with ARGS as STRING[].*/
+    /** Parses through the find command with ARGS as STRING[]: either
+     * find MESSAGE, or find --contains TEXT to find the commits whose
+     * messages contain TEXT.*/
     static void parseFind(String[] args) {
         if (args.length == 2) {
-            Find find = new Find(args[1]);
+            Find find = new Find(args[1], true);
+            find.doFind();
+        } else if (args.length == 3 && args[1].equals("--contains")) {
+            Find find = new Find(args[2], false);
             find.doFind();
         } else {
             System.out.println("Incorrect Operands.");
@@ -199,4 +207,15 @@ public class Main {
             System.exit(0);
         }
     }
+    /** Parses through the gc (or repack) command with ARGS as
+     * STRING[].*/
+    static void parseGC(String[] args) {
+        if (args.length == 1) {
+            GC gc = new GC();
+            gc.doGC();
+        } else {
+            System.out.println("Incorrect Operands.");
+            System.exit(0);
+        }
+    }
 }
@@ -1,23 +1,23 @@
 package gitlet;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Set;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.List;
-import java.util.Queue;
-import java.util.Stack;
-import java.util.LinkedList;
 import java.util.Date;
 import java.util.Arrays;
-
-
-import static gitlet.Init.BLOB_DIR;
-import static gitlet.Utils.writeObject;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /** the class for my merge command.
  * @author Alice Wang
@@ -46,25 +46,23 @@ public class Merge implements Serializable {
     /** My current branch name.*/
     private String _curBN;
 
-    /** A string of sha1 commits of the ancestors of my given branch.*/
-    private ArrayList<String> _givenBranchAncestors;
+    /** the files changed in both branches whose contents are merged line
+     * by line, mapped to their blobs at the split point and in the
+     * current and given branches. */
+    private TreeMap<String, String[]> _contentMerges = new TreeMap<>();
 
     /** the merge constructor for the merge command.
      *
      * @param givenBranch String
      */
     Merge(String givenBranch) {
-        File gitlet = new File(Init.GITLET_METADATA_NAME);
-        File stage = new File(Init.STAGE_OBJ_DIR);
-        _gitlet = Utils.readObject(gitlet, Gitlet.class);
-        _stage = Utils.readObject(stage, Stage.class);
+        _gitlet = Gitlet.load();
+        _stage = Stage.load();
         _givenBN = givenBranch;
         _curBN = _gitlet.getcurBranch();
         checkFailures();
         _curB = _gitlet.getHead(_curBN);
         _givenB = _gitlet.getHead(_givenBN);
-        _givenBranchAncestors = new ArrayList<>();
-
     }
 
     /** check for prelimiary failure cases that dont require
@@ -84,17 +82,15 @@ public class Merge implements Serializable {
             System.exit(0);
         }
         CommitObject currentBranch = _gitlet.getHead(_gitlet.getcurBranch());
-        Set<String> trackedFiles = currentBranch.getFiles().keySet();
-
         CommitObject mergeBranch = _gitlet.getHead(_givenBN);
-        Set<String> mergeFiles = mergeBranch.getFiles().keySet();
 
         File workDir = new File(System.getProperty("user.dir"));
         File[] workingfiles = workDir.listFiles();
 
         for (File f : workingfiles) {
             String file = f.getName();
-            if (!trackedFiles.contains(file) && mergeFiles.contains(file)) {
+            if (currentBranch.getFile(file) == null
+                    && mergeBranch.getFile(file) != null) {
                 System.out.println("There is an untracked file in the way; "
                         + "delete it or add it first.");
                 System.exit(0);
@@ -102,77 +98,157 @@ public class Merge implements Serializable {
         }
     }
 
-    /** does the fat merge command idk how y'all fit 70 lines.*/
+    /** does the fat merge command idk how y'all fit 70 lines. Only the
+     * files that changed between the split point and either branch are
+     * visited, found by comparing their trees, which skips every subtree
+     * neither branch touched.*/
     void doMerge() throws IOException {
-        anotherCheckAncestors();
-        anothersetSplit();
+        setSplit();
         if (_split != null) {
             checkSplitFailures();
-            Set<String> givenBF = _givenB.getFiles().keySet();
-            Set<String> curBF = _curB.getFiles().keySet();
-            Set<String> splitFiles = _split.getFiles().keySet();
-            TreeMap<String, String> gBmap = _givenB.getFiles();
-            TreeMap<String, String> cBmap = _curB.getFiles();
-            TreeMap<String, String> smap = _split.getFiles();
-            for (String file : splitFiles) {
-                if (givenBF.contains(file) && curBF.contains(file)) {
-                    if (!gBmap.get(file).equals(smap.get(file))
-                            && cBmap.get(file).equals(smap.get(file))) {
-                        doCase1(file, gBmap);
-                    } else if (gBmap.get(file).equals(smap.get(file))
-                            && !cBmap.get(file).equals(smap.get(file))) {
-                        continue;
-                    } else if (!gBmap.get(file).equals(smap.get(file))
-                            && !cBmap.get(file).equals(smap.get(file))) {
-                        if  (gBmap.get(file).equals(cBmap.get(file))) {
-                            continue;
-                        } else if (!gBmap.get(file).equals(cBmap.get(file))) {
-                            Blob current = Utils.readObject(new File(BLOB_DIR
-                                    + "/" + cBmap.get(file)), Blob.class);
-                            Blob given = Utils.readObject(new File(Init.BLOB_DIR
-                                    + "/" + gBmap.get(file)), Blob.class);
-                            resolveConflict(current.getContents(),
-                                     given.getContents(), file);
-                        }
-                    }
-                } else if (!givenBF.contains(file) && curBF.contains(file)) {
-                    if (cBmap.get(file).equals(smap.get(file))) {
-                        doCase2(file);
-                    } else {
-                        Blob current = Utils.readObject(new File(Init.BLOB_DIR
-                                + "/" + cBmap.get(file)), Blob.class);
-                        byte[] deleted = "".getBytes();
-                        resolveConflict(current.getContents(), deleted, file);
-                    }
-                } else if (givenBF.contains(file) && !curBF.contains(file)) {
-                    if (gBmap.get(file).equals(smap.get(file))) {
-                        continue;
-                    } else {
-                        Blob given = Utils.readObject(new File(Init.BLOB_DIR
-                              +  "/" + gBmap.get(file)), Blob.class);
-                        byte[] delete = "".getBytes();
-                        resolveConflict(delete, given.getContents(), file);
-                    }
-                } else {
-                    continue;
-                }
+            ObjectStore store = ObjectStore.repo();
+            Tree split = _split.getTree();
+            TreeMap<String, String[]> curChanges =
+                    Tree.diff(split, _curB.getTree(), store);
+            TreeMap<String, String[]> givenChanges =
+                    Tree.diff(split, _givenB.getTree(), store);
+            TreeSet<String> changed = new TreeSet<>(curChanges.keySet());
+            changed.addAll(givenChanges.keySet());
+            for (String file : changed) {
+                String[] cur = curChanges.get(file);
+                String[] given = givenChanges.get(file);
+                String splitBlob = cur != null ? cur[0] : given[0];
+                mergeFile(file, splitBlob,
+                          cur != null ? cur[1] : splitBlob,
+                          given != null ? given[1] : splitBlob);
             }
-            iterateThroughCurandGiven();
+            mergeContents();
             commitMerge();
         }
     }
 
+    /** merges FILE, whose blobs are named SPLIT at the split point, CUR
+     * in the current branch, and GIVEN in the given branch, each null
+     * where the file is absent. A file changed differently in both
+     * branches is left for mergeContents, unless one of them removed it.
+     * @param file String
+     * @param split String
+     * @param cur String
+     * @param given String
+     * @throws IOException
+     */
+    void mergeFile(String file, String split, String cur, String given)
+            throws IOException {
+        if (split == null) {
+            if (cur != null && given != null) {
+                if (!cur.equals(given)) {
+                    _contentMerges.put(file, new String[] {null, cur, given});
+                }
+            } else if (given != null) {
+                checkoutNew(file, given);
+            }
+        } else if (cur != null && given != null) {
+            if (!given.equals(split) && cur.equals(split)) {
+                doCase1(file, given);
+            } else if (!given.equals(split) && !cur.equals(split)
+                    && !given.equals(cur)) {
+                _contentMerges.put(file, new String[] {split, cur, given});
+            }
+        } else if (cur != null) {
+            if (cur.equals(split)) {
+                doCase2(file);
+            } else {
+                resolveConflict(cur, null, file);
+            }
+        } else if (given != null && !given.equals(split)) {
+            resolveConflict(null, given, file);
+        }
+    }
+
+    /** merges the files in _contentMerges line by line against their
+     * contents at the split point, on up to Index.WRITERS threads, each
+     * writing its result to the working file, and then stages them,
+     * reporting a merge conflict for each whose changes overlapped.
+     * @throws IOException
+     */
+    void mergeContents() throws IOException {
+        if (_contentMerges.isEmpty()) {
+            return;
+        }
+        ObjectStore store = ObjectStore.repo();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(Index.WRITERS, _contentMerges.size()));
+        try {
+            TreeMap<String, Future<Boolean>> merged = new TreeMap<>();
+            for (Map.Entry<String, String[]> e : _contentMerges.entrySet()) {
+                String file = e.getKey();
+                String[] blobs = e.getValue();
+                merged.put(file, pool.submit(() ->
+                        mergeLines(store, file, blobs)));
+            }
+            for (Map.Entry<String, Future<Boolean>> e : merged.entrySet()) {
+                boolean conflict = e.getValue().get();
+                stageMerged(e.getKey());
+                if (conflict) {
+                    System.out.println("Encountered a merge conflict.");
+                }
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (InterruptedException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** returns true iff merging FILE line by line, from its BLOBS at the
+     * split point (null if absent there), in the current branch and in
+     * the given branch, read from STORE, had a conflict. Unlike the rest
+     * of merge, this reads all three versions whole into memory, since
+     * Diff3 compares them line by line; only the merge is written to
+     * FILE as it is made.
+     * @param store ObjectStore
+     * @param file String
+     * @param blobs String[]
+     * @return boolean
+     * @throws IOException
+     */
+    private static boolean mergeLines(ObjectStore store, String file,
+                                      String[] blobs) throws IOException {
+        byte[] base = blobs[0] == null ? new byte[0]
+                : store.getBlob(blobs[0]).getContents();
+        byte[] cur = store.getBlob(blobs[1]).getContents();
+        byte[] given = store.getBlob(blobs[2]).getContents();
+        try (OutputStream out =
+                     new BufferedOutputStream(new FileOutputStream(file))) {
+            return Diff3.merge(base, cur, given, out);
+        }
+    }
+
+    /** stages FILE, as merged in the working directory.
+     * @param file String
+     * @throws IOException
+     */
+    void stageMerged(String file) throws IOException {
+        _stage.addName(file, "modified");
+        File stage = new File(Init.STAGE_DIR + "/" + file);
+        stage.delete();
+        Files.copy(new File(file).toPath(), stage.toPath());
+    }
+
     /** Case 1: when it exists in both cur and given branch and
      * it is unmodified in the cur branch but modified in the given branch.
      * copy over the files and also stage it.
      * @param file String
-     * @param gBmap TreeMap
+     * @param given String, the name of the given branch's blob
      * @throws IOException
      */
-    void doCase1(String file, TreeMap gBmap) throws IOException {
-        File bf = new File(Init.BLOB_DIR + "/" + gBmap.get(file));
-        Blob fileblob = Utils.readObject(bf, Blob.class);
-        Utils.writeContents(new File(file), fileblob.getContents());
+    void doCase1(String file, String given) throws IOException {
+        ObjectStore.repo().copyBlob(given, new File(file));
         _stage.addName(file, "modified");
         File stage = new File(Init.STAGE_DIR + "/" + file);
         stage.delete();
@@ -203,19 +279,15 @@ public class Merge implements Serializable {
             String[] workdir = new File(System.getProperty("user.dir")).list();
             _gitlet.setBranchHead(_curBN, _givenB);
             List wkDirFiles = Arrays.asList(workdir);
-            Set<String> givendir = _givenB.getFiles().keySet();
             for (String f : workdir) {
-                if (!givendir.contains(f)) {
-                    File file = new File(f);
+                String blob = _givenB.getFile(f);
+                File file = new File(f);
+                if (blob == null) {
                     if (!file.isDirectory()) {
                         file.delete();
                     }
                 } else {
-                    File file = new File(f);
-                    Blob b = Utils.readObject
-                            (new File(BLOB_DIR + "/"
-                                    + _givenB.getFiles().get(f)), Blob.class);
-                    Utils.writeContents(file, b.getContents());
+                    ObjectStore.repo().copyBlob(blob, file);
                 }
             }
             System.out.println(" Current branch fast-forwarded.");
@@ -223,86 +295,45 @@ public class Merge implements Serializable {
         }
     }
 
-    /** set my split by doing BFS with queue in cur branch. */
-    void anothersetSplit() {
-        Queue<CommitObject> queue = new LinkedList<>();
-        queue.add(_curB);
-        while (!queue.isEmpty()) {
-            CommitObject top = queue.poll();
-            if (_givenBranchAncestors.contains(top.getName())) {
-                _split = top;
-                break;
-            } else {
-                if (top.merged()) {
-                    queue.add(top.getParents()[0]);
-                    queue.add(top.getParents()[1]);
-                } else {
-                    queue.add(top.getParent());
-                }
-            }
-        }
-    }
-
-    /** check my given branch ancestors using stack. */
-    void anotherCheckAncestors() {
-        Stack<CommitObject> stack = new Stack<>();
-        stack.push(_givenB);
-        while (!stack.isEmpty()) {
-            CommitObject firstOut = stack.pop();
-            if (!_givenBranchAncestors.contains(firstOut.getName())) {
-                _givenBranchAncestors.add(firstOut.getName());
-            }
-            if (firstOut.merged()) {
-                if (firstOut.getParents()[0] != null) {
-                    stack.push(firstOut.getParents()[0]);
-                }
-                if (firstOut.getParents()[1] != null) {
-                    stack.push(firstOut.getParents()[1]);
-                }
-            } else {
-                if (firstOut.getParent() != null) {
-                    stack.push(firstOut.getParent());
-                }
-            }
+    /** sets my split to the latest common ancestor of my current and
+     * given commits, using the commit-graph: if either is an ancestor
+     * of the other it is the split, and otherwise the split is their
+     * merge base. */
+    void setSplit() {
+        CommitGraph graph = CommitGraph.load();
+        int cur = graph.position(_curB.getName());
+        int given = graph.position(_givenB.getName());
+        if (graph.isAncestor(given, cur)) {
+            _split = _givenB;
+        } else if (graph.isAncestor(cur, given)) {
+            _split = _curB;
+        } else {
+            _split = CommitObject.load(graph.id(graph.mergeBase(cur, given)));
         }
+        graph.save();
     }
 
-    /** contcatonates the BYTE[] of my different files. used an idea from
-     * https://www.codespeedy.com/concatenate-multiple-byte-array-in-java/
-     * to complete.
-     * @param cCont Byte[]
-     * @param gCont Byte[]
-     * @param filename Byte[]
+    /** writes to FILENAME the whole-file conflict between the blobs CUR
+     * of the current branch and GIVEN of the given branch (null where
+     * the file was removed), streaming each from the store between the
+     * conflict markers, and stages it.
+     * @param cur String
+     * @param given String
+     * @param filename String
      * @throws IOException
      */
-    void resolveConflict(byte[] cCont, byte[] gCont, String filename)
+    void resolveConflict(String cur, String given, String filename)
                                             throws IOException {
-        String head = "<<<<<<< HEAD\n";
-        String equalsigns = "=======\n";
-        String end = ">>>>>>>\n";
-
-        byte[] headbytes = head.getBytes();
-        byte[] equalsignbytes = equalsigns.getBytes();
-        byte[] endbytes = end.getBytes();
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try {
-            outputStream.write(headbytes);
-            outputStream.write(cCont);
-            outputStream.write(equalsignbytes);
-            outputStream.write(gCont);
-            outputStream.write(endbytes);
-        } catch (IOException e) {
-            e.printStackTrace();
+        ObjectStore store = ObjectStore.repo();
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(filename))) {
+            out.write(Diff3.HEAD);
+            copyBlob(store, cur, out);
+            out.write(Diff3.SEPARATOR);
+            copyBlob(store, given, out);
+            out.write(Diff3.END);
         }
-        byte[] finalcontents = outputStream.toByteArray();
-
-        File mergedFile = new File(filename);
-        Utils.writeContents(mergedFile, finalcontents);
-        _stage.addName(filename, "modified");
-        File stage = new File(Init.STAGE_DIR + "/" + filename);
-        stage.delete();
-        Files.copy(new File(filename).toPath(), stage.toPath());
+        stageMerged(filename);
         System.out.println("Encountered a merge conflict.");
     }
 
@@ -311,73 +342,48 @@ public class Merge implements Serializable {
         String msg =  "Merged " + _givenBN + " into " + _curBN + ".";
         CommitObject[] parents = new CommitObject[]{_curB, _givenB};
         Date timestamp =  new Date();
-        TreeMap<String, String> parentFiles = _curB.getFiles();
-        TreeMap<String, String> fileMap = new TreeMap<>();
-        fileMap.putAll(parentFiles);
-        for (String file : _stage.newFiles()) {
-            Blob b = CommitCommand.makeBlob(file);
-            fileMap.put(file, b.getName());
-            File bFile = new File(".gitlet/.staging/" + file);
-            CommitCommand.stagedDelete(bFile);
-        }
-
-        for (String f : _stage.modifiedFiles()) {
-            Blob b = CommitCommand.makeBlob(f);
-            fileMap.put(f, b.getName());
-            File bFile = new File(".gitlet/.staging/" + f);
-            CommitCommand.stagedDelete(bFile);
-        }
-        for (String f : _stage.removedFiles()) {
-            fileMap.remove(f);
-        }
-        CommitObject toCommit =
-                new MergeCommit(msg, timestamp, fileMap, parents);
+        CommitObject toCommit = new MergeCommit(msg, timestamp,
+                CommitCommand.stagedTree(_stage, _curB), parents);
 
         _stage.clear();
         _stage.clearStageDir();
-        writeObject(new File(Init.STAGE_OBJ_DIR), _stage);
+        _stage.save();
 
+        CommitLog log = CommitLog.open();
+        ObjectStore.repo().putCommit(toCommit);
+        log.append(toCommit);
         _gitlet.addHead(toCommit, _gitlet.getcurBranch());
-        writeObject(new File(Init.GITLET_METADATA_NAME), _gitlet);
-
-        File commitFile = new File(".gitlet/.commit/" + toCommit.getName());
-        writeObject(commitFile, toCommit);
+        _gitlet.save();
     }
 
-    /** iterate through the current and given files finding newly
-     * created ones.*/
-    void iterateThroughCurandGiven() throws IOException {
-        Set<String> givenBranchFiles = _givenB.getFiles().keySet();
-        Set<String> curBranchFiles = _curB.getFiles().keySet();
-        Set<String> splitFiles = _split.getFiles().keySet();
-
-        TreeMap<String, String> gBmap = _givenB.getFiles();
-        TreeMap<String, String> cBmap = _curB.getFiles();
-        TreeMap<String, String> smap = _split.getFiles();
-
-        for (String f : curBranchFiles) {
-            if (!splitFiles.contains(f) && !givenBranchFiles.contains(f)) {
-                continue;
-            } else if (givenBranchFiles.contains(f)
-                    && !splitFiles.contains(f)) {
-                Blob current = Utils.readObject(new File(Init.BLOB_DIR
-                        + "/" + cBmap.get(f)), Blob.class);
-                Blob given = Utils.readObject(new File(Init.BLOB_DIR
-                        + "/" + gBmap.get(f)), Blob.class);
-                resolveConflict(current.getContents(), given.getContents(), f);
-            }
-        }
-        for (String gf : givenBranchFiles) {
-            if (!splitFiles.contains(gf) && !curBranchFiles.contains(gf)) {
-                File checkout = new File(gf);
-                File ckbf = new File(Init.BLOB_DIR + "/" + gBmap.get(gf));
-                Blob checkoutBlob = Utils.readObject(ckbf, Blob.class);
-                Utils.writeContents(checkout, checkoutBlob.getContents());
-                _stage.addName(gf, "modified");
-                _stage.removedFiles().remove(gf);
-                File stageadd = new File(Init.STAGE_DIR + "/" + gf);
-                Utils.writeContents(stageadd, checkoutBlob.getContents());
+    /** writes the contents of the blob ID, if it is not null, from
+     * STORE to OUT.
+     * @param store ObjectStore
+     * @param id String
+     * @param out OutputStream
+     * @throws IOException
+     */
+    private static void copyBlob(ObjectStore store, String id,
+                                 OutputStream out) throws IOException {
+        if (id != null) {
+            try (InputStream in = store.openBlob(id)) {
+                in.transferTo(out);
             }
         }
     }
+
+    /** checks out FILE, new in the given branch, from its blob GIVEN and
+     * stages it.
+     * @param file String
+     * @param given String
+     * @throws IOException
+     */
+    void checkoutNew(String file, String given) throws IOException {
+        ObjectStore.repo().copyBlob(given, new File(file));
+        _stage.addName(file, "modified");
+        _stage.removedFiles().remove(file);
+        File stageadd = new File(Init.STAGE_DIR + "/" + file);
+        stageadd.delete();
+        Files.copy(new File(file).toPath(), stageadd.toPath());
+    }
 }
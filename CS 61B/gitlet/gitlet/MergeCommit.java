@@ -1,6 +1,5 @@
 package gitlet;
 
-import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TreeMap;
@@ -8,16 +7,13 @@ import java.util.TreeMap;
 import static gitlet.Utils.sha1;
 
 /** The class for my Merge Commit which extends the original CommitObject
- * and implements the Serializable IO.
+ * with a second parent.
  * @author Alice Wang
  */
-public class MergeCommit extends CommitObject implements Serializable {
+public class MergeCommit extends CommitObject {
 
-    /** My parents. */
-    private CommitObject[] _parents;
-
-    /** My mapping of file name to blob sha1's. */
-    private TreeMap<String, String> _blobfiles;
+    /** The sha1s of my parents. */
+    private String[] _parentIds;
 
     /** My sha1. */
     private String _sha1;
@@ -37,27 +33,68 @@ public class MergeCommit extends CommitObject implements Serializable {
      */
     MergeCommit(String msg, Date timestamp, TreeMap<String,
             String> blobfiles, CommitObject[] parents) {
-        super(msg, timestamp, blobfiles, parents[0]);
-        this._parents = parents;
+        this(msg, timestamp, Tree.of(blobfiles), parents);
+    }
+
+    /** Merge Commit constructor for the files in TREE.
+     *
+     * @param msg String
+     * @param timestamp Date
+     * @param tree Tree
+     * @param parents CommitObject[]
+     */
+    MergeCommit(String msg, Date timestamp, Tree tree,
+                CommitObject[] parents) {
+        super(msg, timestamp, tree, parents[0]);
+        this._parentIds = new String[] {
+            parents[0].getName(), parents[1].getName()
+        };
         this._date = timestamp;
-        this._blobfiles = blobfiles;
         this._msg = msg;
-        String myFileNames = "";
-        if (_blobfiles != null) {
-            for (String s : _blobfiles.values()) {
-                myFileNames += s + " ";
-            }
-        }
         _sha1 = sha1(_msg,
                 _date.toString(),
-                myFileNames,
-                _parents[0].getName(),
-                _parents[1].getName());
+                tree.id(),
+                _parentIds[0],
+                _parentIds[1]);
+    }
+
+    /** Merge Commit constructor for a merge commit read back from the
+     * object store.
+     *
+     * @param sha1 String
+     * @param logName String, the sha1 shown in my log
+     * @param msg String
+     * @param timestamp Date
+     * @param parentIds String[]
+     * @param treeId String, or null if I have no tree
+     * @param blobfiles TreeMap, or null if not read yet
+     */
+    MergeCommit(String sha1, String logName, String msg, Date timestamp,
+                String[] parentIds, String treeId,
+                TreeMap<String, String> blobfiles) {
+        super(sha1, msg, timestamp, parentIds[0], treeId, blobfiles);
+        this._parentIds = parentIds;
+        this._date = timestamp;
+        this._msg = msg;
+        this._sha1 = logName;
+    }
+
+    /** returns the sha1 shown in my log.
+     * @return String */
+    String getLogName() {
+        return _sha1;
+    }
+
+    @Override
+    String[] getParentIds() {
+        return _parentIds;
     }
 
     @Override
     CommitObject[] getParents() {
-        return _parents;
+        return new CommitObject[] {
+            load(_parentIds[0]), load(_parentIds[1])
+        };
     }
 
     @Override
@@ -67,8 +104,8 @@ public class MergeCommit extends CommitObject implements Serializable {
 
     @Override
     String getLog() {
-        String parent1 = _parents[0].getName().substring(0, 7);
-        String parent2 = _parents[1].getName().substring(0, 7);
+        String parent1 = _parentIds[0].substring(0, 7);
+        String parent2 = _parentIds[1].substring(0, 7);
         SimpleDateFormat dateformat =
                 new SimpleDateFormat("E MMM d HH:mm:ss y Z");
         String d = dateformat.format(_date);
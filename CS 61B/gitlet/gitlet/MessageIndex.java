@@ -0,0 +1,370 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The message index of a CommitLog: an inverted index from each
+ *  substring of CommitLog.GRAM characters of a commit message, packed
+ *  into a key, to the numbers of the log records whose messages contain
+ *  it.
+ *
+ *  The index is kept in two files.  The main file holds the magic
+ *  number MAGIC, a version, and the number of records it covers,
+ *  followed by a fan-out table of 256 counts (entry B is the number of
+ *  keys whose bucket is at most B, a key's bucket being the low byte of
+ *  its first character), the keys, sorted by bucket and then by value,
+ *  each with the position and length of its list, and then the lists of
+ *  record numbers, one after another.  The main file is memory-mapped,
+ *  so looking up a key takes one binary search within the range of its
+ *  bucket and reads only that key's list.  Records logged since the
+ *  main file was written are appended to the tail file, each as its
+ *  number, its number of distinct keys, and the keys.  When the tail
+ *  holds more than TAIL_RECORDS records, it is merged with the main file
+ *  into a new main file, which is written beside it and moved into
+ *  place, and the tail is removed.
+ *  @author Alice Wang
+ */
+final class MessageIndex {
+
+    /** First four bytes of a main file. */
+    static final int MAGIC = 0x474d4958;
+
+    /** Version of the main file format. */
+    static final int VERSION = 1;
+
+    /** Most records kept in the tail before it is merged into the main
+     *  file. */
+    static final int TAIL_RECORDS = 1024;
+
+    /** Offset of the fan-out table in a main file. */
+    private static final int FANOUT = 12;
+
+    /** Offset of the sorted keys in a main file. */
+    private static final int KEYS = FANOUT + 256 * 4;
+
+    /** Length of a key with the position and length of its list. */
+    private static final int ENTRY = 8 + 4 + 4;
+
+    /** Order of the keys in a main file. */
+    private static final Comparator<Long> ORDER =
+        Comparator.<Long>comparingInt(MessageIndex::bucket)
+        .thenComparing(Comparator.naturalOrder());
+
+    /** The index kept in the files MAIN and TAIL. */
+    MessageIndex(File main, File tail) {
+        _main = main;
+        _tail = tail;
+    }
+
+    /** Return the key of the CommitLog.GRAM characters of S starting at
+     *  I. */
+    static long key(String s, int i) {
+        long result = 0;
+        for (int j = i; j < i + CommitLog.GRAM; j += 1) {
+            result = result << 16 | s.charAt(j);
+        }
+        return result;
+    }
+
+    /** Return the distinct keys of the substrings of MSG, in order. */
+    static long[] keys(String msg) {
+        long[] all = new long[Math.max(0, msg.length() - CommitLog.GRAM + 1)];
+        for (int i = 0; i < all.length; i += 1) {
+            all[i] = key(msg, i);
+        }
+        Arrays.sort(all);
+        int n = 0;
+        for (long key : all) {
+            if (n == 0 || all[n - 1] != key) {
+                all[n] = key;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(all, n);
+    }
+
+    /** Bring me up to date with the records of LOG: append those I do
+     *  not cover to my tail, and merge my tail into my main file if it
+     *  then holds more than TAIL_RECORDS records.  A main file that is
+     *  not a valid index, or covers more records than LOG has, is
+     *  removed with the tail, and the index rebuilt. */
+    void update(CommitLog log) {
+        int size = log.size();
+        try {
+            if (!map() || _indexed > size) {
+                _main.delete();
+                _tail.delete();
+                _buf = null;
+                _indexed = 0;
+                _count = 0;
+            }
+            readTail();
+            if (_covered < size) {
+                appendTail(log, size);
+            }
+            if (_covered - _indexed > TAIL_RECORDS) {
+                merge();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the numbers, in order, of the records whose messages
+     *  contain the substring with key KEY, preceded by how many there
+     *  are. */
+    int[] postings(long key) {
+        int k = find(key);
+        int[] main = k < 0 ? new int[1] : mainList(k);
+        int[] tail = _tailPostings.get(key);
+        return tail == null ? main : concat(main, tail);
+    }
+
+    /** Map my main file, if there is one, and return false iff it is
+     *  not a valid index. */
+    private boolean map() throws IOException {
+        _buf = null;
+        _indexed = 0;
+        _count = 0;
+        if (!_main.isFile()) {
+            return true;
+        }
+        try (FileChannel main = FileChannel.open(_main.toPath())) {
+            _buf = main.map(FileChannel.MapMode.READ_ONLY, 0, main.size());
+        }
+        if (_buf.capacity() < KEYS || _buf.getInt(0) != MAGIC
+            || _buf.getInt(4) != VERSION) {
+            return false;
+        }
+        _indexed = _buf.getInt(8);
+        _count = _buf.getInt(FANOUT + 255 * 4);
+        long lists = KEYS + (long) _count * ENTRY;
+        if (_indexed < 0 || _count < 0 || lists > _buf.capacity()
+            || (_buf.capacity() - lists) % 4 != 0) {
+            return false;
+        }
+        _lists = (int) lists;
+        int total = (_buf.capacity() - _lists) / 4;
+        return _count == 0 ? total == 0
+            : entryInt(_count - 1, 8) + entryInt(_count - 1, 12) == total;
+    }
+
+    /** Read my tail, keeping the lists of record numbers of its keys in
+     *  _tailPostings and setting _covered to the number of records I
+     *  cover.  Records my main file already covers are skipped, and the
+     *  tail is cut before a partly written record or one out of order. */
+    private void readTail() throws IOException {
+        _tailPostings = new HashMap<>();
+        _covered = _indexed;
+        if (!_tail.isFile()) {
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Utils.readContents(_tail));
+        int end = 0;
+        while (in.remaining() >= 8) {
+            int k = in.getInt();
+            int n = in.getInt();
+            if (k > _covered || n < 0 || in.remaining() < 8L * n) {
+                break;
+            }
+            for (int i = 0; i < n; i += 1) {
+                long key = in.getLong();
+                if (k == _covered) {
+                    post(_tailPostings, key, k);
+                }
+            }
+            if (k == _covered) {
+                _covered += 1;
+            }
+            end = in.position();
+        }
+        if (end < in.capacity()) {
+            try (RandomAccessFile tail = new RandomAccessFile(_tail, "rw")) {
+                tail.setLength(end);
+            }
+        }
+    }
+
+    /** Append to my tail the records of LOG numbered from _covered to
+     *  SIZE-1, each with the distinct keys of its message. */
+    private void appendTail(CommitLog log, int size) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(_tail, true)))) {
+            for (int k = _covered; k < size; k += CommitLog.PAGE) {
+                int n = k;
+                for (CommitObject commit : log.page(k, CommitLog.PAGE)) {
+                    long[] keys = keys(commit.getMsg());
+                    out.writeInt(n);
+                    out.writeInt(keys.length);
+                    for (long key : keys) {
+                        out.writeLong(key);
+                        post(_tailPostings, key, n);
+                    }
+                    n += 1;
+                }
+            }
+        }
+        _covered = size;
+    }
+
+    /** Write a new main file covering all my records, holding the lists
+     *  of my main file followed by those of my tail, and remove my
+     *  tail. */
+    private void merge() throws IOException {
+        TreeMap<Long, int[]> lists = new TreeMap<>(ORDER);
+        for (int k = 0; k < _count; k += 1) {
+            lists.put(_buf.getLong(KEYS + k * ENTRY), mainList(k));
+        }
+        for (Map.Entry<Long, int[]> e : _tailPostings.entrySet()) {
+            lists.merge(e.getKey(), e.getValue(), MessageIndex::concat);
+        }
+        int[] fanout = new int[256];
+        for (long key : lists.keySet()) {
+            fanout[bucket(key)] += 1;
+        }
+        File tmp = new File(_main.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(_covered);
+            int total = 0;
+            for (int b = 0; b < 256; b += 1) {
+                total += fanout[b];
+                out.writeInt(total);
+            }
+            int start = 0;
+            for (Map.Entry<Long, int[]> e : lists.entrySet()) {
+                int length = e.getValue()[0];
+                out.writeLong(e.getKey());
+                out.writeInt(start);
+                out.writeInt(length);
+                start += length;
+            }
+            for (int[] list : lists.values()) {
+                for (int i = 1; i <= list[0]; i += 1) {
+                    out.writeInt(list[i]);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), _main.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        _tail.delete();
+        if (!map()) {
+            throw new IOException("bad message index " + _main);
+        }
+        _tailPostings = new HashMap<>();
+    }
+
+    /** Return the position in my main file of KEY, or -1 if it is not
+     *  there. */
+    private int find(long key) {
+        if (_buf == null) {
+            return -1;
+        }
+        int b = bucket(key);
+        int lo = b == 0 ? 0 : _buf.getInt(FANOUT + (b - 1) * 4);
+        int hi = _buf.getInt(FANOUT + b * 4) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long c = _buf.getLong(KEYS + mid * ENTRY);
+            if (c < key) {
+                lo = mid + 1;
+            } else if (c > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the list of the key at position K of my main file,
+     *  preceded by its length. */
+    private int[] mainList(int k) {
+        int start = entryInt(k, 8);
+        int[] result = new int[entryInt(k, 12) + 1];
+        result[0] = result.length - 1;
+        for (int i = 1; i < result.length; i += 1) {
+            result[i] = _buf.getInt(_lists + (start + i - 1) * 4);
+        }
+        return result;
+    }
+
+    /** Return the int at OFFSET in the entry at position K of my main
+     *  file. */
+    private int entryInt(int k, int offset) {
+        return _buf.getInt(KEYS + k * ENTRY + offset);
+    }
+
+    /** Return the bucket of KEY in the fan-out table. */
+    private static int bucket(long key) {
+        return (int) (key >>> 16 * (CommitLog.GRAM - 1)) & 0xff;
+    }
+
+    /** Return list A followed by list B, each preceded by its length. */
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a[0] + b[0] + 1);
+        System.arraycopy(b, 1, result, a[0] + 1, b[0]);
+        result[0] = a[0] + b[0];
+        return result;
+    }
+
+    /** Add record K to the list of KEY in POSTINGS, unless it is already
+     *  the last record there.  Each list holds its length in its first
+     *  element. */
+    private static void post(Map<Long, int[]> postings, long key, int k) {
+        int[] list = postings.get(key);
+        if (list == null) {
+            list = new int[4];
+            postings.put(key, list);
+        } else if (list[list[0]] == k) {
+            return;
+        } else if (list[0] + 1 == list.length) {
+            list = Arrays.copyOf(list, 2 * list.length);
+            postings.put(key, list);
+        }
+        list[0] += 1;
+        list[list[0]] = k;
+    }
+
+    /** My main file. */
+    private final File _main;
+
+    /** My tail file. */
+    private final File _tail;
+
+    /** My main file, mapped, or null if there is none. */
+    private MappedByteBuffer _buf;
+
+    /** Number of records my main file covers. */
+    private int _indexed;
+
+    /** Number of keys in my main file. */
+    private int _count;
+
+    /** Offset of the lists of record numbers in my main file. */
+    private int _lists;
+
+    /** Number of records I cover, in my main file and tail. */
+    private int _covered;
+
+    /** The lists of the keys in my tail, each holding its length in its
+     *  first element. */
+    private Map<Long, int[]> _tailPostings = new HashMap<>();
+}
@@ -0,0 +1,89 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.TreeMap;
+
+/** Tests of the MessageIndex class.
+ *  @author Alice Wang
+ */
+public class MessageIndexTest {
+
+    /** Return the records, without their count, in LIST. */
+    private static int[] records(int[] list) {
+        int[] result = new int[list[0]];
+        System.arraycopy(list, 1, result, 0, list[0]);
+        return result;
+    }
+
+    @Test
+    public void keys() {
+        assertEquals(0, MessageIndex.keys("ab").length);
+        long[] keys = MessageIndex.keys("aaaaa");
+        assertEquals(1, keys.length);
+        assertEquals(MessageIndex.key("aaa", 0), keys[0]);
+        assertEquals(3, MessageIndex.keys("abcab").length);
+    }
+
+    @Test
+    public void tailAndMerge() throws IOException {
+        File dir = TestUtils.tempDir("gitlet-grams");
+        ObjectStore store = TestUtils.newStore(dir);
+        CommitObject commit = new CommitObject("initial commit", new Date(0),
+                                               new TreeMap<>(), null);
+        store.putCommit(commit);
+        File logDir = new File(dir, "logs");
+        CommitLog log = CommitLog.open(logDir, store);
+        for (int i = 1; i < 100; i += 1) {
+            commit = new CommitObject(i % 10 == 0 ? "Release" : "Fix",
+                                      new Date(i * 1000L),
+                                      new TreeMap<>(), commit);
+            log.append(commit);
+        }
+        File main = new File(logDir, "grams");
+        File tail = new File(logDir, "grams.tail");
+        long rel = MessageIndex.key("Release", 0);
+
+        MessageIndex index = new MessageIndex(main, tail);
+        index.update(log);
+        assertFalse(main.exists());
+        assertArrayEquals(new int[] { 10, 20, 30, 40, 50, 60, 70, 80, 90 },
+                          records(index.postings(rel)));
+        assertEquals(0, index.postings(MessageIndex.key("zzz", 0))[0]);
+
+        try (FileOutputStream out = new FileOutputStream(tail, true)) {
+            out.write(new byte[] { 0, 0, 0, 100, 0, 0 });
+        }
+        long length = tail.length();
+        for (int i = 100; i <= MessageIndex.TAIL_RECORDS + 10; i += 1) {
+            commit = new CommitObject(i % 10 == 0 ? "Release" : "Fix",
+                                      new Date(i * 1000L),
+                                      new TreeMap<>(), commit);
+            log.append(commit);
+        }
+        index = new MessageIndex(main, tail);
+        index.update(log);
+        assertTrue(main.isFile());
+        assertFalse(tail.exists());
+        assertEquals(MessageIndex.TAIL_RECORDS / 10 + 1,
+                     index.postings(rel)[0]);
+
+        commit = new CommitObject("Release", new Date(0),
+                                  new TreeMap<>(), commit);
+        log.append(commit);
+        index = new MessageIndex(main, tail);
+        index.update(log);
+        assertTrue(tail.length() < length);
+        int[] list = records(index.postings(rel));
+        assertEquals(MessageIndex.TAIL_RECORDS / 10 + 2, list.length);
+        assertEquals(log.size() - 1, list[list.length - 1]);
+        assertEquals((MessageIndex.TAIL_RECORDS + 10) / 10 * 10,
+                     list[list.length - 2]);
+    }
+
+}
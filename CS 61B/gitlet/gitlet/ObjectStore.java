@@ -0,0 +1,652 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/** The store of all my blobs, trees, and commits, keyed by their sha1
+ *  names.  New objects are written loose, one file each, in the blob,
+ *  tree, and commit directories; gc folds all loose objects and existing
+ *  packs into a single pack (see Pack), so that a repository with many
+ *  objects does not need a file per object.  Loose commits are kept in
+ *  subdirectories named by the first SHARD digits of their names, so
+ *  that resolving an abbreviated commit name lists one of them rather
+ *  than every loose commit.  Lookups try the loose directories first
+ *  and then each pack's index.  Objects are stored in the encodings of
+ *  Codec, and commits are read as a stream, so that a caller needing
+ *  only a commit's header reads no further.  Blobs are deflated, and a
+ *  new version of a file may be stored as a delta from its previous
+ *  version when that is smaller, in chains of at most MAX_DELTA_DEPTH
+ *  deltas so that reading any blob applies a bounded number of them.
+ *  Files larger than STREAM_THRESHOLD are hashed and deflated into the
+ *  store in one pass through a fixed buffer, never whole in memory, and
+ *  are not stored as deltas.  gc streams objects into the pack, leaving
+ *  loose any blob whose stored size is over MAX_PACKED_SIZE.
+ *  @author Alice Wang
+ */
+class ObjectStore {
+
+    /** Longest chain of deltas from a blob to a full blob. */
+    static final int MAX_DELTA_DEPTH = 10;
+
+    /** Size in bytes of the largest file read whole into memory to be
+     *  stored, and of the largest blob used as or stored as a delta. */
+    static final long STREAM_THRESHOLD = 1 << 20;
+
+    /** Size in bytes of the largest stored object that gc packs, which
+     *  is limited by the pack format. */
+    static final long MAX_PACKED_SIZE = Integer.MAX_VALUE;
+
+    /** Size of the buffer through which large files are stored. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of leading hex digits of a loose commit's name that name
+     *  its subdirectory. */
+    static final int SHARD = 2;
+
+    /** Matches a prefix of a commit name. */
+    private static final Pattern HEX_PREFIX = Pattern.compile("[0-9a-f]{0,40}");
+
+    /** The store of the repository in the current directory. */
+    static synchronized ObjectStore repo() {
+        if (_repo == null) {
+            _repo = new ObjectStore(new File(Init.BLOB_DIR),
+                                    new File(Init.TREE_DIR),
+                                    new File(Init.COMMIT_DIR),
+                                    new File(Init.PACK_DIR));
+        }
+        return _repo;
+    }
+
+    /** A store with loose blobs in BLOBDIR, loose trees in TREEDIR,
+     *  loose commits in COMMITDIR, and packs in PACKDIR. */
+    ObjectStore(File blobDir, File treeDir, File commitDir, File packDir) {
+        _blobDir = blobDir;
+        _treeDir = treeDir;
+        _commitDir = commitDir;
+        _packDir = packDir;
+        _packs = new ArrayList<>();
+        File[] indices = packDir.listFiles((d, name) ->
+                                           name.endsWith(Pack.IDX_SUFFIX));
+        if (indices != null) {
+            for (File index : indices) {
+                try {
+                    _packs.add(new Pack(index));
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Return the blob named ID, or null if there is none. */
+    Blob getBlob(String id) {
+        byte[] contents = blobContents(id);
+        return contents == null ? null : new Blob(id, contents);
+    }
+
+    /** Return a stream of the contents of the blob named ID, inflated
+     *  as it is read, or null if there is none. */
+    InputStream openBlob(String id) {
+        try {
+            InputStream in = open(id, Pack.BLOB);
+            if (in == null) {
+                return null;
+            }
+            Codec.BlobHeader header = Codec.readBlobHeader(in);
+            switch (header.method()) {
+            case Codec.RAW:
+                return in;
+            case Codec.DEFLATED:
+                return new InflaterInputStream(in);
+            default:
+                byte[] delta;
+                try (InputStream deltaIn = new InflaterInputStream(in)) {
+                    delta = deltaIn.readAllBytes();
+                }
+                byte[] base = blobContents(header.base());
+                if (base == null) {
+                    throw new IOException("missing delta base "
+                                          + header.base());
+                }
+                return new ByteArrayInputStream(
+                    Delta.apply(base, delta, (int) header.length()));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write the contents of the blob named ID to the file DEST and
+     *  return true, or return false if there is no such blob.  A blob
+     *  stored RAW is transferred straight from its loose file or pack
+     *  with FileChannel.transferTo; others are inflated as they are
+     *  streamed.  Threads may copy blobs at the same time. */
+    boolean copyBlob(String id, File dest) {
+        try {
+            Codec.BlobHeader header = blobHeader(id);
+            if (header == null) {
+                return false;
+            }
+            if (header.method() != Codec.RAW) {
+                try (InputStream in = openBlob(id)) {
+                    Files.copy(in, dest.toPath(),
+                               StandardCopyOption.REPLACE_EXISTING);
+                }
+                return true;
+            }
+            long skip = storedLength(id, Pack.BLOB) - header.length();
+            try (FileChannel out =
+                 FileChannel.open(dest.toPath(), StandardOpenOption.CREATE,
+                                  StandardOpenOption.WRITE,
+                                  StandardOpenOption.TRUNCATE_EXISTING)) {
+                File loose = looseFile(id, Pack.BLOB);
+                if (loose.isFile()) {
+                    try (FileChannel in = FileChannel.open(loose.toPath())) {
+                        Pack.transfer(in, skip, header.length(), out);
+                    }
+                } else {
+                    Location found = findPacked(id, Pack.BLOB);
+                    found.pack().transferTo(found.index(), skip,
+                                            header.length(), out);
+                }
+            }
+            return true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the commit named ID, or null if there is none. */
+    CommitObject getCommit(String id) {
+        return readCommit(id, true);
+    }
+
+    /** Return the commit named ID without reading its files, which it
+     *  reads from me when first asked for, or null if there is none. */
+    CommitObject getCommitHeader(String id) {
+        return readCommit(id, false);
+    }
+
+    /** Return true iff there is a commit named ID. */
+    boolean hasCommit(String id) {
+        return has(id, Pack.COMMIT);
+    }
+
+    /** Save BLOB, unless I already have it. */
+    void putBlob(Blob blob) {
+        putBlob(blob, null);
+    }
+
+    /** Save BLOB, unless I already have it, as a delta from the blob
+     *  named BASE if BASE is not null, that is smaller than storing it
+     *  whole, and the delta chain would be no longer than
+     *  MAX_DELTA_DEPTH. */
+    void putBlob(Blob blob, String base) {
+        if (has(blob.getName(), Pack.BLOB)) {
+            return;
+        }
+        byte[] encoded = Codec.encode(blob);
+        Codec.BlobHeader baseHeader =
+            base == null || base.equals(blob.getName()) ? null
+            : blobHeader(base);
+        if (baseHeader != null && baseHeader.depth() < MAX_DELTA_DEPTH
+            && baseHeader.length() <= STREAM_THRESHOLD) {
+            byte[] contents = blob.getContents();
+            byte[] delta = Delta.compute(blobContents(base), contents);
+            byte[] deltaEncoded =
+                Codec.encodeDelta(contents.length, base,
+                                  baseHeader.depth() + 1, delta);
+            if (deltaEncoded.length < encoded.length) {
+                encoded = deltaEncoded;
+            }
+        }
+        Utils.writeContents(new File(_blobDir, blob.getName()), encoded);
+    }
+
+    /** Save the contents of FILE as a blob, unless I already have it,
+     *  as putBlob would with BASE, and return the blob's name.  A file
+     *  larger than STREAM_THRESHOLD is hashed and deflated in a single
+     *  pass through a fixed buffer, and is never stored as a delta. */
+    String putFile(File file, String base) {
+        if (file.length() <= STREAM_THRESHOLD) {
+            Blob blob = new Blob(file.getPath());
+            putBlob(blob, base);
+            return blob.getName();
+        }
+        MessageDigest md = Blob.newDigest();
+        File tmp = null;
+        try {
+            tmp = File.createTempFile("blob", ".tmp", _blobDir);
+            long length = file.length();
+            long copied;
+            Deflater deflater = new Deflater();
+            try (InputStream in = new DigestInputStream(
+                     new FileInputStream(file), md);
+                 DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(tmp),
+                                              BUFFER_SIZE))) {
+                Codec.writeBlobHeader(out, Codec.DEFLATED, length);
+                DeflaterOutputStream deflated =
+                    new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+                copied = in.transferTo(deflated);
+                deflated.finish();
+            } finally {
+                deflater.end();
+            }
+            if (copied != length) {
+                throw new IOException(file + " changed while being stored");
+            }
+            String id = Blob.hex(md);
+            if (has(id, Pack.BLOB)) {
+                Files.delete(tmp.toPath());
+            } else {
+                Files.move(tmp.toPath(), new File(_blobDir, id).toPath(),
+                           StandardCopyOption.ATOMIC_MOVE);
+            }
+            return id;
+        } catch (IOException excp) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the number of deltas between the blob named ID and a full
+     *  blob, or -1 if there is no such blob. */
+    int blobDepth(String id) {
+        Codec.BlobHeader header = blobHeader(id);
+        return header == null ? -1 : header.depth();
+    }
+
+    /** Return the header of the blob named ID, or null if there is
+     *  none. */
+    private Codec.BlobHeader blobHeader(String id) {
+        try (InputStream in = open(id, Pack.BLOB)) {
+            return in == null ? null : Codec.readBlobHeader(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Save COMMIT and the nodes of its tree, unless I already have
+     *  them. */
+    void putCommit(CommitObject commit) {
+        if (!has(commit.getName(), Pack.COMMIT)) {
+            putTree(commit.getTree());
+            File file = shardedCommit(commit.getName());
+            file.getParentFile().mkdirs();
+            Utils.writeContents(file, Codec.encode(commit));
+        }
+    }
+
+    /** Return the tree named ID, or null if there is none. */
+    Tree getTree(String id) {
+        try (InputStream in = open(id, Pack.TREE)) {
+            return in == null ? null : Codec.decodeTree(in.readAllBytes());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Save TREE and those of its subtrees not yet stored, unless I
+     *  already have it.  Subtrees are saved first, so that every tree I
+     *  have has all of its subtrees. */
+    void putTree(Tree tree) {
+        if (has(tree.id(), Pack.TREE)) {
+            return;
+        }
+        for (Tree child : tree.unsaved()) {
+            putTree(child);
+        }
+        _treeDir.mkdirs();
+        Utils.writeContents(new File(_treeDir, tree.id()),
+                            Codec.encode(tree));
+    }
+
+    /** Return the names of all my commits, in order. */
+    List<String> commitIds() {
+        TreeSet<String> result = new TreeSet<>();
+        result.addAll(looseCommits());
+        for (Pack pack : _packs) {
+            result.addAll(pack.ids(Pack.COMMIT));
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Return the names, in order, of up to LIMIT of my commits whose
+     *  names start with PREFIX.  Packed commits are found by binary
+     *  search of each pack's index.  Loose commits are found by listing
+     *  the one subdirectory named by PREFIX or, for a prefix shorter
+     *  than SHARD, the subdirectories it matches, in order, until LIMIT
+     *  names are found; the commit directory itself holds only those
+     *  subdirectories and any commits written loose before they were
+     *  used. */
+    List<String> commitIds(String prefix, int limit) {
+        TreeSet<String> result = new TreeSet<>();
+        if (!HEX_PREFIX.matcher(prefix).matches()) {
+            return new ArrayList<>();
+        }
+        if (prefix.length() >= SHARD) {
+            result.addAll(looseCommits(prefix.substring(0, SHARD),
+                                       prefix.substring(SHARD)));
+        } else {
+            int found = 0;
+            for (String shard : shards()) {
+                if (found >= limit) {
+                    break;
+                }
+                if (shard.startsWith(prefix)) {
+                    List<String> ids = looseCommits(shard, "");
+                    result.addAll(ids);
+                    found += ids.size();
+                }
+            }
+        }
+        String[] flat = _commitDir.list((d, name) ->
+                                        name.length() == Utils.UID_LENGTH
+                                        && name.startsWith(prefix));
+        if (flat != null) {
+            result.addAll(Arrays.asList(flat));
+        }
+        for (Pack pack : _packs) {
+            result.addAll(pack.ids(prefix, Pack.COMMIT, limit));
+        }
+        List<String> ids = new ArrayList<>(result);
+        return ids.subList(0, Math.min(limit, ids.size()));
+    }
+
+    /** Return the number of my loose objects. */
+    int looseCount() {
+        return loose(_blobDir).size() + loose(_treeDir).size()
+            + looseCommits().size();
+    }
+
+    /** Return the number of my packs. */
+    int packCount() {
+        return _packs.size();
+    }
+
+    /** Fold all my loose objects and packs into one new pack, remove
+     *  them, and return the number of objects packed. */
+    int gc() throws IOException {
+        SortedMap<String, Byte> objects = new TreeMap<>();
+        for (Pack pack : _packs) {
+            for (int k = 0; k < pack.size(); k += 1) {
+                objects.put(pack.id(k), pack.type(k));
+            }
+        }
+        List<String> blobs = loose(_blobDir);
+        blobs.removeIf(id -> new File(_blobDir, id).length()
+                       > MAX_PACKED_SIZE);
+        List<String> trees = loose(_treeDir);
+        List<String> commits = looseCommits();
+        for (String id : blobs) {
+            objects.put(id, Pack.BLOB);
+        }
+        for (String id : trees) {
+            objects.put(id, Pack.TREE);
+        }
+        for (String id : commits) {
+            objects.put(id, Pack.COMMIT);
+        }
+        if (objects.isEmpty() || blobs.isEmpty() && trees.isEmpty()
+            && commits.isEmpty() && _packs.size() == 1) {
+            return 0;
+        }
+        _packDir.mkdirs();
+        Pack packed = Pack.write(_packDir, objects, new Pack.Source() {
+            @Override
+            public long length(String id, byte type) throws IOException {
+                return storedLength(id, type);
+            }
+
+            @Override
+            public InputStream open(String id, byte type) throws IOException {
+                return ObjectStore.this.open(id, type);
+            }
+        });
+        for (Pack pack : _packs) {
+            pack.close();
+            if (!pack.indexFile().equals(packed.indexFile())) {
+                Files.deleteIfExists(pack.indexFile().toPath());
+                Files.deleteIfExists(pack.packFile().toPath());
+            }
+        }
+        _packs.clear();
+        _packs.add(packed);
+        for (String id : blobs) {
+            Files.deleteIfExists(new File(_blobDir, id).toPath());
+        }
+        for (String id : trees) {
+            Files.deleteIfExists(new File(_treeDir, id).toPath());
+        }
+        for (String id : commits) {
+            Files.deleteIfExists(looseFile(id, Pack.COMMIT).toPath());
+        }
+        return objects.size();
+    }
+
+    /** Return the names of the object files in DIR. */
+    private static List<String> loose(File dir) {
+        List<String> result = new ArrayList<>();
+        List<String> files = Utils.plainFilenamesIn(dir);
+        if (files != null) {
+            for (String name : files) {
+                if (name.length() == Utils.UID_LENGTH) {
+                    result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the names of my loose commits. */
+    private List<String> looseCommits() {
+        List<String> result = loose(_commitDir);
+        for (String shard : shards()) {
+            result.addAll(looseCommits(shard, ""));
+        }
+        return result;
+    }
+
+    /** Return the names of my loose commits in the subdirectory SHARD
+     *  whose names continue with REST. */
+    private List<String> looseCommits(String shard, String rest) {
+        List<String> result = new ArrayList<>();
+        String[] names = new File(_commitDir, shard).list((d, name) ->
+            name.length() == Utils.UID_LENGTH - SHARD
+            && name.startsWith(rest));
+        if (names != null) {
+            for (String name : names) {
+                result.add(shard + name);
+            }
+        }
+        return result;
+    }
+
+    /** Return the names of the subdirectories of my loose commits, in
+     *  order. */
+    private List<String> shards() {
+        String[] names = _commitDir.list((d, name) ->
+                                         name.length() == SHARD
+                                         && new File(d, name).isDirectory());
+        List<String> result = new ArrayList<>();
+        if (names != null) {
+            result.addAll(Arrays.asList(names));
+            result.sort(null);
+        }
+        return result;
+    }
+
+    /** Return the file holding the loose commit named ID, in the
+     *  subdirectory named by its first SHARD digits. */
+    private File shardedCommit(String id) {
+        return new File(new File(_commitDir, id.substring(0, SHARD)),
+                        id.substring(SHARD));
+    }
+
+    /** Return the loose file that would hold the object of type TYPE
+     *  named ID.  A commit is looked for in the commit directory itself,
+     *  where it was kept before subdirectories were used, and otherwise
+     *  in its subdirectory. */
+    private File looseFile(String id, byte type) {
+        switch (type) {
+        case Pack.BLOB:
+            return new File(_blobDir, id);
+        case Pack.TREE:
+            return new File(_treeDir, id);
+        default:
+            File flat = new File(_commitDir, id);
+            return flat.isFile() ? flat : shardedCommit(id);
+        }
+    }
+
+    /** Return true iff I have an object of type TYPE named ID. */
+    private boolean has(String id, byte type) {
+        if (looseFile(id, type).isFile()) {
+            return true;
+        }
+        return findPacked(id, type) != null;
+    }
+
+    /** Return the contents of the blob named ID, or null if there is
+     *  none. */
+    private byte[] blobContents(String id) {
+        try (InputStream in = openBlob(id)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the commit named ID, with its files iff WITHFILES, or null
+     *  if there is none. */
+    private CommitObject readCommit(String id, boolean withFiles) {
+        try (InputStream in = open(id, Pack.COMMIT)) {
+            if (in == null) {
+                return null;
+            }
+            CommitObject result = Codec.readCommit(in, withFiles);
+            result.setStore(this);
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return a stream of the contents of the object of type TYPE named
+     *  ID, or null if there is none. */
+    private InputStream open(String id, byte type) throws IOException {
+        File loose = looseFile(id, type);
+        if (loose.isFile()) {
+            return new BufferedInputStream(new FileInputStream(loose));
+        }
+        Location found = findPacked(id, type);
+        if (found == null) {
+            return null;
+        }
+        return found.pack().open(found.index());
+    }
+
+    /** Return the length of the stored contents of the object of type
+     *  TYPE named ID, which must exist. */
+    private long storedLength(String id, byte type) throws IOException {
+        File loose = looseFile(id, type);
+        if (loose.isFile()) {
+            return loose.length();
+        }
+        Location found = findPacked(id, type);
+        return found.pack().length(found.index());
+    }
+
+    /** Return the pack holding the object of type TYPE named ID and its
+     *  position in the pack, or null if no pack holds it. */
+    private Location findPacked(String id, byte type) {
+        if (_packs.isEmpty() || id.length() != Utils.UID_LENGTH) {
+            return null;
+        }
+        byte[] key;
+        try {
+            key = Pack.toBytes(id);
+        } catch (IllegalArgumentException excp) {
+            return null;
+        }
+        for (Pack pack : _packs) {
+            int k = pack.find(key);
+            if (k >= 0 && pack.type(k) == type) {
+                return new Location(pack, k);
+            }
+        }
+        return null;
+    }
+
+    /** The position of an object in a pack. */
+    private static class Location {
+
+        /** The object at index K of PACK. */
+        Location(Pack pack, int k) {
+            _pack = pack;
+            _index = k;
+        }
+
+        /** Return the pack holding the object. */
+        Pack pack() {
+            return _pack;
+        }
+
+        /** Return the object's position in pack(). */
+        int index() {
+            return _index;
+        }
+
+        /** The pack holding the object. */
+        private final Pack _pack;
+
+        /** The object's position in _pack. */
+        private final int _index;
+    }
+
+    /** The store of the repository in the current directory, once
+     *  opened. */
+    private static ObjectStore _repo;
+
+    /** Directory of loose blobs. */
+    private final File _blobDir;
+
+    /** Directory of loose trees. */
+    private final File _treeDir;
+
+    /** Directory of loose commits. */
+    private final File _commitDir;
+
+    /** Directory of packs. */
+    private final File _packDir;
+
+    /** My packs. */
+    private final List<Pack> _packs;
+
+}
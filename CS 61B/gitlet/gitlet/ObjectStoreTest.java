@@ -0,0 +1,246 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/** Tests of the ObjectStore, Pack, Codec, and Delta classes.
+ *  @author Alice Wang
+ */
+public class ObjectStoreTest {
+
+    /** Return a blob of a file holding CONTENTS. */
+    private static Blob blob(String contents) throws IOException {
+        File file = File.createTempFile("gitlet-blob", ".txt");
+        Utils.writeContents(file, contents);
+        Blob result = new Blob(file.getPath());
+        file.delete();
+        return result;
+    }
+
+    @Test
+    public void packAndLookUp() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        List<Blob> blobs = new ArrayList<>();
+        CommitObject parent = new CommitObject("initial commit", new Date(0),
+                                               new TreeMap<>(), null);
+        store.putCommit(parent);
+        List<String> commits = new ArrayList<>();
+        commits.add(parent.getName());
+        for (int i = 0; i < 50; i += 1) {
+            Blob b = blob("contents " + i);
+            blobs.add(b);
+            store.putBlob(b);
+            TreeMap<String, String> files = new TreeMap<>();
+            files.put("f.txt", b.getName());
+            parent = new CommitObject("commit " + i, new Date(i * 1000L),
+                                      files, parent);
+            store.putCommit(parent);
+            commits.add(parent.getName());
+            if (i == 20) {
+                assertEquals(65, store.gc());
+                assertEquals(0, store.looseCount());
+            }
+        }
+        assertEquals(152, store.gc());
+        assertEquals(0, store.looseCount());
+        assertEquals(1, store.packCount());
+        assertEquals(0, store.gc());
+
+        for (Blob b : blobs) {
+            assertArrayEquals(b.getContents(),
+                              store.getBlob(b.getName()).getContents());
+        }
+        commits.sort(null);
+        assertEquals(commits, store.commitIds());
+        for (String id : commits) {
+            assertEquals(id, store.getCommit(id).getName());
+            assertTrue(store.hasCommit(id));
+            assertNull(store.getBlob(id));
+        }
+        assertNull(store.getCommit(blobs.get(0).getName()));
+        assertNull(store.getCommit("0123456789012345678901234567890123456789"));
+        assertNull(store.getCommit("abc"));
+    }
+
+    @Test
+    public void encodeAndDecode() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        Blob b = blob("contents");
+
+        CommitObject init = new CommitObject("initial commit", new Date(0),
+                                             new TreeMap<>(), null);
+        TreeMap<String, String> files = new TreeMap<>();
+        files.put("f.txt", b.getName());
+        files.put("\u00e9t\u00e9.txt", b.getName());
+        CommitObject child = new CommitObject("child", new Date(1000L),
+                                              files, init);
+        CommitObject merge = new MergeCommit("merge", new Date(2000L),
+                                             files,
+                                             new CommitObject[] {child, init});
+        for (CommitObject c : new CommitObject[] {init, child, merge}) {
+            store.putCommit(c);
+            CommitObject d = store.getCommit(c.getName());
+            assertEquals(c.getName(), d.getName());
+            assertEquals(c.getTreeId(), d.getTreeId());
+            assertEquals(c.getMsg(), d.getMsg());
+            assertEquals(c.getDate(), d.getDate());
+            assertArrayEquals(c.getParentIds(), d.getParentIds());
+            assertEquals(c.getFiles(), d.getFiles());
+            assertEquals(c.getLog(), d.getLog());
+        }
+        assertEquals(0, init.getParentIds().length);
+        assertEquals(2, merge.getParentIds().length);
+
+        Stage stage = new Stage();
+        stage.addName("a.txt", "new");
+        stage.addName("b.txt", "modified");
+        stage.addName("c.txt", "remove");
+        Stage stage2 = Codec.decodeStage(Codec.encode(stage));
+        assertEquals(stage.newFiles(), stage2.newFiles());
+        assertEquals(stage.modifiedFiles(), stage2.modifiedFiles());
+        assertEquals(stage.removedFiles(), stage2.removedFiles());
+    }
+
+    @Test
+    public void deltaChains() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i += 1) {
+            text.append("line ").append(i * 7919 % 10007).append('\n');
+        }
+        List<Blob> versions = new ArrayList<>();
+        String base = null;
+        int depth = 0;
+        for (int v = 0; v < 3 * ObjectStore.MAX_DELTA_DEPTH; v += 1) {
+            text.insert(text.length() * v / 31, "edit " + v + "\n");
+            Blob b = blob(text.toString());
+            store.putBlob(b, base);
+            versions.add(b);
+            base = b.getName();
+            int expected = v == 0 || depth == ObjectStore.MAX_DELTA_DEPTH
+                ? 0 : depth + 1;
+            depth = store.blobDepth(base);
+            assertEquals(expected, depth);
+        }
+        assertEquals(0, store.blobDepth(versions.get(0).getName()));
+        assertEquals(-1, store.blobDepth(
+            "0123456789012345678901234567890123456789"));
+        store.gc();
+        for (Blob b : versions) {
+            assertArrayEquals(b.getContents(),
+                              store.getBlob(b.getName()).getContents());
+        }
+
+        byte[] target = "abcdefghijklmnopqrstuvwxyz0123456789 tail".getBytes();
+        byte[] from = "xx abcdefghijklmnopqrstuvwxyz0123456789".getBytes();
+        byte[] delta = Delta.compute(from, target);
+        assertTrue(delta.length < target.length);
+        assertArrayEquals(target, Delta.apply(from, delta, target.length));
+        assertArrayEquals(target,
+                          Delta.apply(new byte[0],
+                                      Delta.compute(new byte[0], target),
+                                      target.length));
+    }
+
+    @Test
+    public void streamLargeFiles() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        byte[] contents = new byte[(int) ObjectStore.STREAM_THRESHOLD + 4321];
+        new Random(61).nextBytes(contents);
+        File file = File.createTempFile("gitlet-large", ".bin");
+        Utils.writeContents(file, contents);
+        String id = store.putFile(file, null);
+        assertEquals(Utils.sha1(contents), id);
+        assertEquals(id, Blob.hash(file));
+        assertEquals(id, store.putFile(file, null));
+        assertEquals(1, store.looseCount());
+        assertEquals(0, store.blobDepth(id));
+        File copy = File.createTempFile("gitlet-copy", ".bin");
+        Utils.writeContents(copy, "longer than nothing");
+        assertTrue(store.copyBlob(id, copy));
+        assertArrayEquals(contents, Utils.readContents(copy));
+        store.gc();
+        Utils.writeContents(copy, new byte[contents.length + 100]);
+        assertTrue(store.copyBlob(id, copy));
+        assertArrayEquals(contents, Utils.readContents(copy));
+        assertFalse(store.copyBlob(Utils.sha1("none"), copy));
+        file.delete();
+        copy.delete();
+    }
+
+    @Test
+    public void commitPrefixes() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        List<String> ids = new ArrayList<>();
+        CommitObject commit = new CommitObject("initial commit", new Date(0),
+                                               new TreeMap<>(), null);
+        for (int i = 0; i < 300; i += 1) {
+            store.putCommit(commit);
+            store.putBlob(blob("contents " + i));
+            ids.add(commit.getName());
+            if (i == 150) {
+                store.gc();
+            }
+            commit = new CommitObject("commit " + i, new Date(i * 1000L),
+                                      new TreeMap<>(), commit);
+        }
+        for (String id : ids) {
+            assertEquals(List.of(id), store.commitIds(id, 2));
+            assertEquals(List.of(id), store.commitIds(id.substring(0, 10), 2));
+        }
+        for (String p : new String[] {"0", "a", "f"}) {
+            List<String> expected = new ArrayList<>();
+            for (String id : store.commitIds()) {
+                if (id.startsWith(p)) {
+                    expected.add(id);
+                }
+            }
+            assertEquals(expected, store.commitIds(p, ids.size()));
+        }
+        assertEquals(2, store.commitIds("", 2).size());
+        assertEquals(2, store.commitIds(ids.get(0).substring(0, 1), 2)
+                     .size());
+        assertTrue(store.commitIds("xyz", 2).isEmpty());
+        assertTrue(store.commitIds(ids.get(0) + "0", 2).isEmpty());
+    }
+
+    @Test
+    public void flatLooseCommits() throws IOException {
+        File dir = TestUtils.tempDir("gitlet-objects");
+        ObjectStore store = TestUtils.newStore(dir);
+        File commits = new File(dir, "commit");
+        CommitObject first = new CommitObject("initial commit", new Date(0),
+                                              new TreeMap<>(), null);
+        CommitObject second = new CommitObject("second", new Date(1000),
+                                               new TreeMap<>(), first);
+        store.putCommit(first);
+        store.putCommit(second);
+        String id = first.getName();
+        File sharded = new File(new File(commits, id.substring(0, 2)),
+                                id.substring(2));
+        assertTrue(sharded.isFile());
+        File flat = new File(commits, id);
+        assertTrue(sharded.renameTo(flat));
+
+        assertEquals(List.of(id), store.commitIds(id.substring(0, 6), 2));
+        assertEquals(List.of(id), store.commitIds(id.substring(0, 1), 1));
+        assertEquals(id, store.getCommit(id).getName());
+        List<String> both = new ArrayList<>(List.of(id, second.getName()));
+        both.sort(null);
+        assertEquals(both, store.commitIds());
+        assertEquals(both, store.commitIds("", 2));
+        store.gc();
+        assertFalse(flat.exists());
+        assertEquals(0, store.looseCount());
+        assertEquals(both, store.commitIds());
+    }
+
+}
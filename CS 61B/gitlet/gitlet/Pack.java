@@ -0,0 +1,433 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/** A packfile: many objects appended to one file, with a separate index
+ *  sorted by object id.
+ *
+ *  A pack file holds the magic number PACK_MAGIC, a version, and the
+ *  number of objects, followed by the objects, each as a type byte, its
+ *  20-byte id, its length, and its contents.  Its index file holds the
+ *  magic number IDX_MAGIC and a version, followed by a fan-out table of
+ *  256 counts (entry B is the number of ids whose first byte is at most
+ *  B), the sorted ids, the offsets of their objects in the pack, and
+ *  their types.  The index is memory-mapped, so finding an object takes
+ *  one binary search within the range of its first byte.
+ *  @author Alice Wang
+ */
+class Pack {
+
+    /** Type of a blob. */
+    static final byte BLOB = 1;
+
+    /** Type of a commit. */
+    static final byte COMMIT = 2;
+
+    /** Type of a tree. */
+    static final byte TREE = 3;
+
+    /** First four bytes of a pack file. */
+    static final int PACK_MAGIC = 0x4750414b;
+
+    /** First four bytes of an index file. */
+    static final int IDX_MAGIC = 0x47494458;
+
+    /** Version of the pack and index formats. */
+    static final int VERSION = 1;
+
+    /** Length in bytes of an object id. */
+    static final int ID_LENGTH = 20;
+
+    /** Extension of pack files. */
+    static final String PACK_SUFFIX = ".pack";
+
+    /** Extension of index files. */
+    static final String IDX_SUFFIX = ".idx";
+
+    /** Length of the pack header. */
+    private static final int PACK_HEADER = 12;
+
+    /** Offset of the fan-out table in an index. */
+    private static final int FANOUT = 8;
+
+    /** Offset of the sorted ids in an index. */
+    private static final int IDS = FANOUT + 256 * 4;
+
+    /** Length of the type, id, and length preceding each object. */
+    private static final int OBJECT_HEADER = 1 + ID_LENGTH + 4;
+
+    /** Most bytes of a pack read at once by a stream of one object. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The pack whose index is the file INDEX, with its objects in the
+     *  file of the same name ending in PACK_SUFFIX. */
+    Pack(File index) throws IOException {
+        String name = index.getPath();
+        _index = index;
+        _pack = new File(name.substring(0, name.length()
+                                        - IDX_SUFFIX.length()) + PACK_SUFFIX);
+        try (FileChannel idx = FileChannel.open(index.toPath())) {
+            _idx = idx.map(FileChannel.MapMode.READ_ONLY, 0, idx.size());
+        }
+        if (_idx.capacity() < IDS || _idx.getInt(0) != IDX_MAGIC
+            || _idx.getInt(4) != VERSION) {
+            throw new IOException("bad pack index " + index);
+        }
+        _count = _idx.getInt(FANOUT + 255 * 4);
+        if (_idx.capacity() != IDS + (long) _count * (ID_LENGTH + 9)) {
+            throw new IOException("bad pack index " + index);
+        }
+    }
+
+    /** Return my pack file. */
+    File packFile() {
+        return _pack;
+    }
+
+    /** Return my index file. */
+    File indexFile() {
+        return _index;
+    }
+
+    /** Return the number of objects in me. */
+    int size() {
+        return _count;
+    }
+
+    /** Return the position in my index of the object whose id is ID (as
+     *  20 bytes), or -1 if I do not contain it. */
+    int find(byte[] id) {
+        int first = id[0] & 0xff;
+        int lo = first == 0 ? 0 : _idx.getInt(FANOUT + (first - 1) * 4);
+        int hi = _idx.getInt(FANOUT + first * 4) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareId(mid, id);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the id of my Kth object, in hexadecimal. */
+    String id(int k) {
+        StringBuilder result = new StringBuilder(2 * ID_LENGTH);
+        for (int i = 0; i < ID_LENGTH; i += 1) {
+            int b = _idx.get(IDS + k * ID_LENGTH + i) & 0xff;
+            result.append(Character.forDigit(b >> 4, 16))
+                .append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /** Return the type of my Kth object. */
+    byte type(int k) {
+        return _idx.get(IDS + _count * (ID_LENGTH + 8) + k);
+    }
+
+    /** Return the length of the contents of my Kth object. */
+    int length(int k) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(OBJECT_HEADER);
+        readFully(channel(), header, offset(k));
+        return header.getInt(1 + ID_LENGTH);
+    }
+
+    /** Return a stream of the contents of my Kth object, which reads
+     *  from my pack file only as far as it is read. */
+    InputStream open(int k) throws IOException {
+        int length = length(k);
+        return new BufferedInputStream(
+            new Contents(channel(), offset(k) + OBJECT_HEADER, length),
+            Math.max(1, Math.min(length, BUFFER_SIZE)));
+    }
+
+    /** Transfer COUNT bytes of the contents of my Kth object, starting
+     *  SKIP bytes in, to TARGET, without copying them through the Java
+     *  heap where the platform allows. */
+    void transferTo(int k, long skip, long count, WritableByteChannel target)
+        throws IOException {
+        transfer(channel(), offset(k) + OBJECT_HEADER + skip, count, target);
+    }
+
+    /** Transfer the COUNT bytes of SOURCE starting at POSITION to
+     *  TARGET, without copying them through the Java heap where the
+     *  platform allows. */
+    static void transfer(FileChannel source, long position, long count,
+                         WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long n = source.transferTo(position, count, target);
+            if (n <= 0) {
+                throw new IOException("truncated object");
+            }
+            position += n;
+            count -= n;
+        }
+    }
+
+    /** Return the offset in my pack file of my Kth object. */
+    private long offset(int k) {
+        return _idx.getLong(IDS + _count * ID_LENGTH + k * 8);
+    }
+
+    /** Return the channel reading my pack file, opening it if need be.
+     *  The channel is only read at given positions, so threads may share
+     *  it. */
+    private synchronized FileChannel channel() throws IOException {
+        if (_channel == null) {
+            _channel = FileChannel.open(_pack.toPath());
+        }
+        return _channel;
+    }
+
+    /** Release the pack file, if I have opened it. */
+    synchronized void close() throws IOException {
+        if (_channel != null) {
+            _channel.close();
+            _channel = null;
+        }
+    }
+
+    /** Return the ids of my objects of type TYPE, in order. */
+    List<String> ids(byte type) {
+        List<String> result = new ArrayList<>();
+        for (int k = 0; k < _count; k += 1) {
+            if (type(k) == type) {
+                result.add(id(k));
+            }
+        }
+        return result;
+    }
+
+    /** Return the ids, in order, of up to LIMIT of my objects of type
+     *  TYPE whose hexadecimal ids start with PREFIX, a string of at most
+     *  40 lower-case hexadecimal digits.  The first candidate is found
+     *  by binary search, within the range of the fan-out table for its
+     *  first byte, for the first id not less than PREFIX padded with
+     *  zeros. */
+    List<String> ids(String prefix, byte type, int limit) {
+        byte[] key = toBytes(prefix
+                             + "0".repeat(2 * ID_LENGTH - prefix.length()));
+        int first = key[0] & 0xff;
+        int lo = first == 0 ? 0 : _idx.getInt(FANOUT + (first - 1) * 4);
+        int hi = _idx.getInt(FANOUT + first * 4);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareId(mid, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (int k = lo; k < _count && result.size() < limit; k += 1) {
+            String id = id(k);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            if (type(k) == type) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /** Write a pack and its index in directory DIR holding the objects
+     *  in OBJECTS, a map from their hexadecimal ids, in order, to their
+     *  types, streaming their contents from SOURCE, and return it.  The
+     *  pack is named after the hash of its ids, and its index is
+     *  written last, so that a partly written pack is never used. */
+    static Pack write(File dir, SortedMap<String, Byte> objects,
+                      Source source) throws IOException {
+        String name = "pack-" + Utils.sha1(String.join("", objects.keySet()));
+        File pack = new File(dir, name + PACK_SUFFIX);
+        File index = new File(dir, name + IDX_SUFFIX);
+        File tmpPack = new File(dir, name + PACK_SUFFIX + ".tmp");
+        File tmpIndex = new File(dir, name + IDX_SUFFIX + ".tmp");
+        int count = objects.size();
+        byte[] ids = new byte[count * ID_LENGTH];
+        long[] offsets = new long[count];
+        byte[] types = new byte[count];
+        int[] fanout = new int[256];
+
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmpPack)))) {
+            out.writeInt(PACK_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            long offset = PACK_HEADER;
+            int k = 0;
+            for (Map.Entry<String, Byte> e : objects.entrySet()) {
+                byte[] id = toBytes(e.getKey());
+                long length = source.length(e.getKey(), e.getValue());
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("object too large to pack");
+                }
+                System.arraycopy(id, 0, ids, k * ID_LENGTH, ID_LENGTH);
+                offsets[k] = offset;
+                types[k] = e.getValue();
+                fanout[id[0] & 0xff] += 1;
+                out.writeByte(types[k]);
+                out.write(id);
+                out.writeInt((int) length);
+                try (InputStream in = source.open(e.getKey(), e.getValue())) {
+                    if (in.transferTo(out) != length) {
+                        throw new IOException("object " + e.getKey()
+                                              + " changed while packing");
+                    }
+                }
+                offset += OBJECT_HEADER + length;
+                k += 1;
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmpIndex)))) {
+            out.writeInt(IDX_MAGIC);
+            out.writeInt(VERSION);
+            int total = 0;
+            for (int b = 0; b < 256; b += 1) {
+                total += fanout[b];
+                out.writeInt(total);
+            }
+            out.write(ids);
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.write(types);
+        }
+        Files.move(tmpPack.toPath(), pack.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        Files.move(tmpIndex.toPath(), index.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        return new Pack(index);
+    }
+
+    /** Supplies the contents of objects being packed. */
+    interface Source {
+        /** Return the length of the contents of the object with
+         *  hexadecimal id ID and type TYPE. */
+        long length(String id, byte type) throws IOException;
+
+        /** Return a stream of the contents of the object with
+         *  hexadecimal id ID and type TYPE. */
+        InputStream open(String id, byte type) throws IOException;
+    }
+
+    /** Return the 20 bytes of the hexadecimal id ID. */
+    static byte[] toBytes(String id) {
+        if (id.length() != 2 * ID_LENGTH) {
+            throw new IllegalArgumentException("bad object id " + id);
+        }
+        byte[] result = new byte[ID_LENGTH];
+        for (int i = 0; i < ID_LENGTH; i += 1) {
+            int hi = Character.digit(id.charAt(2 * i), 16);
+            int lo = Character.digit(id.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("bad object id " + id);
+            }
+            result[i] = (byte) (hi << 4 | lo);
+        }
+        return result;
+    }
+
+    /** The contents of one object in a pack, read from its channel. */
+    private static class Contents extends InputStream {
+
+        /** The LENGTH bytes of CHANNEL starting at POSITION. */
+        Contents(FileChannel channel, long position, int length) {
+            _channel = channel;
+            _position = position;
+            _remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (_remaining == 0) {
+                return -1;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(b, off, Math.min(len, _remaining));
+            readFully(_channel, buf, _position);
+            int n = buf.position() - off;
+            _position += n;
+            _remaining -= n;
+            return n;
+        }
+
+        /** Channel of the pack file. */
+        private final FileChannel _channel;
+
+        /** Position in _channel of the next byte. */
+        private long _position;
+
+        /** Number of bytes not yet read. */
+        private int _remaining;
+    }
+
+    /** Return the comparison of the id of my Kth object with ID. */
+    private int compareId(int k, byte[] id) {
+        int base = IDS + k * ID_LENGTH;
+        for (int i = 0; i < ID_LENGTH; i += 1) {
+            int c = (_idx.get(base + i) & 0xff) - (id[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** Fill BUF from CHANNEL starting at POSITION. */
+    private static void readFully(FileChannel channel, ByteBuffer buf,
+                                  long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("truncated pack");
+            }
+            position += n;
+        }
+    }
+
+    /** My index file. */
+    private final File _index;
+
+    /** My pack file. */
+    private final File _pack;
+
+    /** My memory-mapped index. */
+    private final MappedByteBuffer _idx;
+
+    /** Number of objects in me. */
+    private final int _count;
+
+    /** Channel reading my pack file, once opened. */
+    private FileChannel _channel;
+
+}
@@ -3,7 +3,6 @@ package gitlet;
 
 import java.io.File;
 import java.io.Serializable;
-import java.util.TreeMap;
 
 /** The class for my remove command.
  * @author Alice Wang
@@ -19,6 +18,9 @@ public class RM implements Serializable {
     /** the filename that I am removing. */
     private String _filename;
 
+    /** the stat cache of my working files. */
+    private Index _index;
+
     /** COnstructor for my remove command.
      *
      * @param filename String
@@ -26,18 +28,17 @@ public class RM implements Serializable {
     RM(String filename) {
         Gitlet.checkgit();
         _filename = filename;
-        File gitlet = new File(".gitlet/metadata");
-        _gitlet = Utils.readObject(gitlet, Gitlet.class);
+        _gitlet = Gitlet.load();
 
-        File stage = new File(".gitlet/.staging/stageobject");
-        _stage = Utils.readObject(stage, Stage.class);
+        _stage = Stage.load();
+        _index = Index.load();
     }
 
     /** carries out the actions for my remove class.*/
     void doRM() {
         File toremove = new File(_filename);
         CommitObject cO = _gitlet.getHead(_gitlet.getcurBranch());
-        TreeMap<String, String> bfiles = cO.getFiles();
+        String tracked = cO.getFile(_filename);
 
         int check = 0;
         if (_stage.modifiedFiles().contains(_filename)) {
@@ -45,10 +46,10 @@ public class RM implements Serializable {
             CommitCommand.stagedDelete(new File(Init.STAGE_DIR + "/"
                     + _filename));
             check++;
-            if (bfiles.containsKey(_filename)) {
+            if (tracked != null) {
                 if (new File(_filename).exists()) {
-                    Blob tempblob = new Blob(_filename);
-                    if (tempblob.getName().equals(bfiles.get(_filename))) {
+                    String tempsha1 = _index.hash(_filename);
+                    if (tracked.equals(tempsha1)) {
                         toremove.delete();
                     }
                 }
@@ -60,19 +61,19 @@ public class RM implements Serializable {
             CommitCommand.stagedDelete(new File(Init.STAGE_DIR + "/"
                     + _filename));
             check++;
-            if (bfiles.containsKey(_filename)) {
+            if (tracked != null) {
                 if (new File(_filename).exists()) {
-                    Blob tempblob = new Blob(_filename);
-                    if (tempblob.getName().equals(bfiles.get(_filename))) {
+                    String tempsha1 = _index.hash(_filename);
+                    if (tracked.equals(tempsha1)) {
                         toremove.delete();
                     }
                 }
                 _stage.addName(_filename, "remove");
             }
-        } else if (bfiles.containsKey(_filename)) {
+        } else if (tracked != null) {
             if (new File(_filename).exists()) {
-                Blob tempblob = new Blob(_filename);
-                if (tempblob.getName().equals(bfiles.get(_filename))) {
+                String tempsha1 = _index.hash(_filename);
+                if (tracked.equals(tempsha1)) {
                     toremove.delete();
                 }
             }
@@ -83,6 +84,7 @@ public class RM implements Serializable {
             System.out.println("No reason to remove the file.");
             System.exit(0);
         }
-        Utils.writeObject(new File(Init.STAGE_OBJ_DIR), _stage);
+        _stage.save();
+        _index.save();
     }
 }
@@ -3,9 +3,9 @@ package gitlet;
 
 import java.io.File;
 import java.io.Serializable;
-import java.util.Set;
+import java.util.Map;
+import java.util.TreeMap;
 
-import static gitlet.Utils.writeObject;
 
 /** The Reset class.
  * @author Alice Wang
@@ -24,6 +24,9 @@ public class Reset implements Serializable {
     /** my current stage. */
     private Stage _stage;
 
+    /** the stat cache of my working files. */
+    private Index _index;
+
     /** The constructor for the Reset command. Deserializes
      * gitlet and my stage.
      *
@@ -32,65 +35,54 @@ public class Reset implements Serializable {
     Reset(String commitID) {
         Gitlet.checkgit();
         _commitID = commitID;
-        File gitlet = new File(".gitlet/metadata");
-        _gitlet = Utils.readObject(gitlet, Gitlet.class);
+        _gitlet = Gitlet.load();
 
-        File stage = new File(".gitlet/.staging/stageobject");
-        _stage = Utils.readObject(stage, Stage.class);
+        _stage = Stage.load();
+        _index = Index.load();
     }
 
     /** does the reset action of the reset command.*/
     void doReset() {
-        File[] commits = new File(Init.COMMIT_DIR).listFiles();
-        if (_commitID.length() < Utils.UID_LENGTH) {
-            for (File f : commits) {
-                if (f.getName().regionMatches(0,
-                        _commitID, 0, _commitID.length())) {
-                    _commitID = f.getName();
-                }
-            }
-        }
-        File resetCommit = new File(Init.COMMIT_DIR + "/" + _commitID);
-        if (!resetCommit.exists()) {
+        _commitID = Gitlet.resolveCommit(_commitID);
+        _resetC = ObjectStore.repo().getCommit(_commitID);
+        if (_resetC == null) {
             System.out.println("No commit with that id exists");
             System.exit(0);
         }
-        _resetC = Utils.readObject(resetCommit, CommitObject.class);
         if (_resetC != null) {
             CommitObject curCom = _gitlet.getHead(_gitlet.getcurBranch());
-            Set resetFiles = _resetC.getFiles().keySet();
-            Set trackedFiles = curCom.getFiles().keySet();
-            String[] wkDirf = new File(System.getProperty("user.dir")).list();
-            for (String wk : wkDirf) {
-                if (!trackedFiles.contains(wk) && resetFiles.contains(wk)) {
+            TreeMap<String, String[]> changes = Tree.diff(curCom.getTree(),
+                    _resetC.getTree(), ObjectStore.repo());
+            for (Map.Entry<String, String[]> e : changes.entrySet()) {
+                if (e.getValue()[0] == null && new File(e.getKey()).exists()) {
                     System.out.println("There is an untracked file in the way; "
                           +  "delete it or add it first.");
                     System.exit(0);
                 }
             }
-            for (Object tracked : trackedFiles) {
-                if (!resetFiles.contains(tracked)) {
-                    String tk = (String) tracked;
-                    Utils.restrictedDelete(tk);
-                }
-            }
-            for (Object resetfile : resetFiles) {
-                String rsf = (String) resetfile;
-                String resetSha1 = _resetC.getFiles().get(resetfile);
-                File resF = new File(rsf);
-                Blob resetBlob = Checkout.getBlobContents(resetSha1);
-                if (resetBlob != null && resF.exists()) {
-                    Utils.writeContents(resF, resetBlob.getContents());
+            TreeMap<String, String> resetFiles = new TreeMap<>();
+            TreeMap<String, String> trackedFiles = new TreeMap<>();
+            for (Map.Entry<String, String[]> e : changes.entrySet()) {
+                String[] blobs = e.getValue();
+                if (blobs[1] == null) {
+                    Utils.restrictedDelete(e.getKey());
+                } else {
+                    resetFiles.put(e.getKey(), blobs[1]);
+                    if (blobs[0] != null) {
+                        trackedFiles.put(e.getKey(), blobs[0]);
+                    }
                 }
             }
+            _index.restoreAll(resetFiles, trackedFiles);
+            _index.save();
         } else {
             System.out.println("No commit with that id exists");
             System.exit(0);
         }
         _stage.clear();
         _stage.clearStageDir();
-        writeObject(new File(Init.STAGE_OBJ_DIR), _stage);
+        _stage.save();
         _gitlet.addHead(_resetC, _gitlet.getcurBranch());
-        writeObject(new File(Init.GITLET_METADATA_NAME), _gitlet);
+        _gitlet.save();
     }
 }
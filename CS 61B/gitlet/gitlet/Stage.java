@@ -2,7 +2,6 @@ package gitlet;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Serializable;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,9 +12,7 @@ import java.util.List;
  * these items.
  * @author Alice Wang
  */
-public class Stage implements Serializable {
-
-    private static final long serialVersionUID = 88L;
+public class Stage {
 
     /** List of my new Files. */
     private List<String> _newFiles;
@@ -35,6 +32,17 @@ public class Stage implements Serializable {
         _rmFiles = new ArrayList<>();
     }
 
+    /** returns the stage saved in .gitlet/.staging/stageobject. */
+    static Stage load() {
+        return Codec.decodeStage(
+            Utils.readContents(new File(Init.STAGE_OBJ_DIR)));
+    }
+
+    /** saves me to .gitlet/.staging/stageobject. */
+    void save() {
+        Utils.writeContents(new File(Init.STAGE_OBJ_DIR), Codec.encode(this));
+    }
+
     /** returns the list of my new files.
      * @return List */
     List<String> newFiles() {
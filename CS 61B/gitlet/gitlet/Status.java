@@ -1,11 +1,14 @@
 package gitlet;
 
 
-import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /** The constructor class for my Status command.
  * @author Alice Wang
@@ -22,11 +25,9 @@ public class Status implements Serializable {
      */
     Status() {
         Gitlet.checkgit();
-        File gitlet = new File(".gitlet/metadata");
-        _gitlet = Utils.readObject(gitlet, Gitlet.class);
+        _gitlet = Gitlet.load();
 
-        File stage = new File(".gitlet/.staging/stageobject");
-        _stage = Utils.readObject(stage, Stage.class);
+        _stage = Stage.load();
     }
 
     /** Does the status action. */
@@ -58,9 +59,69 @@ public class Status implements Serializable {
             status += s + "\n";
         }
 
+        Index index = Index.load();
+        TreeSet<String> modified = new TreeSet<>();
+        TreeSet<String> untracked = new TreeSet<>();
+        workingChanges(index, modified, untracked);
+        index.save();
+
         status += "\n" + "=== Modifications Not Staged For Commit ==="
-                + "\n" + "\n" + "=== Untracked Files ===" + "\n";
+                + "\n";
+        for (String s : modified) {
+            status += s + "\n";
+        }
+        status += "\n" + "=== Untracked Files ===" + "\n";
+        for (String s : untracked) {
+            status += s + "\n";
+        }
         System.out.println(status);
 
     }
+
+    /** Compares my working directory with my head commit and stage,
+     * using INDEX to hash only the files that changed, and adds each
+     * modified or deleted file to MODIFIED and each untracked file to
+     * UNTRACKED.
+     * @param index Index
+     * @param modified TreeSet
+     * @param untracked TreeSet */
+    private void workingChanges(Index index, TreeSet<String> modified,
+                                TreeSet<String> untracked) {
+        TreeMap<String, String> tracked =
+            _gitlet.getHead(_gitlet.getcurBranch()).getFiles();
+        List<String> working = Utils.plainFilenamesIn(".");
+        List<String> staged = new ArrayList<>(_stage.newFiles());
+        staged.addAll(_stage.modifiedFiles());
+        List<String> paths = new ArrayList<>(working);
+        for (String f : staged) {
+            paths.add(Init.STAGE_DIR + "/" + f);
+        }
+        Map<String, String> hashes = index.hashAll(paths);
+
+        for (String f : staged) {
+            String sha1 = hashes.get(f);
+            if (sha1 == null) {
+                modified.add(f + " (deleted)");
+            } else if (!sha1.equals(hashes.get(Init.STAGE_DIR + "/" + f))) {
+                modified.add(f + " (modified)");
+            }
+        }
+        for (String f : tracked.keySet()) {
+            if (staged.contains(f) || _stage.removedFiles().contains(f)) {
+                continue;
+            }
+            String sha1 = hashes.get(f);
+            if (sha1 == null) {
+                modified.add(f + " (deleted)");
+            } else if (!sha1.equals(tracked.get(f))) {
+                modified.add(f + " (modified)");
+            }
+        }
+        for (String f : working) {
+            if (!staged.contains(f) && (!tracked.containsKey(f)
+                    || _stage.removedFiles().contains(f))) {
+                untracked.add(f);
+            }
+        }
+    }
 }
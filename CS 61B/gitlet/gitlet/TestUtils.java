@@ -0,0 +1,37 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/** Utility definitions for use in unit tests.
+ *  @author Alice Wang
+ */
+final class TestUtils {
+
+    /** Not instantiable. */
+    private TestUtils() {
+    }
+
+    /** Return a new, empty temporary directory whose name starts with
+     *  PREFIX. */
+    static File tempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    /** Return a new store keeping its blobs, trees, commits, and packs in
+     *  the blob, tree, commit, and pack subdirectories of DIR. */
+    static ObjectStore newStore(File dir) {
+        File blobs = new File(dir, "blob");
+        File commits = new File(dir, "commit");
+        blobs.mkdir();
+        commits.mkdir();
+        return new ObjectStore(blobs, new File(dir, "tree"), commits,
+                               new File(dir, "pack"));
+    }
+
+    /** Return a new store in a fresh temporary directory. */
+    static ObjectStore newStore() throws IOException {
+        return newStore(tempDir("gitlet-objects"));
+    }
+}
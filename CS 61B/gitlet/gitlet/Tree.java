@@ -0,0 +1,319 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/** A node of the tree of files of a commit, stored in the ObjectStore
+ *  under the sha1 of its encoding, so that commits with the same files
+ *  share the same tree and two trees with the same id hold the same
+ *  files.  My working directory is flat, so rather than by directory,
+ *  files are grouped by the hexadecimal digits of the sha1 of their
+ *  names: a node at depth D holding at most LEAF_MAX files is a leaf
+ *  listing each file's name and blob, and a larger node has up to
+ *  FANOUT children, the Ith holding the files whose name hashes have I
+ *  as digit D.  The shape of a tree thus depends only on its files.
+ *  Changing a file makes new nodes only along the path to it, sharing
+ *  every other subtree with the tree changed, and comparing two trees
+ *  skips each pair of subtrees with the same id.  Nodes made by of and
+ *  edit are not stored until the ObjectStore puts them.
+ *  @author Alice Wang
+ */
+final class Tree {
+
+    /** Largest number of files held by a leaf. */
+    static final int LEAF_MAX = 128;
+
+    /** Number of children of a node that is not a leaf. */
+    static final int FANOUT = 16;
+
+    /** Depth of a node below which files are no longer divided. */
+    private static final int MAX_DEPTH = Utils.UID_LENGTH;
+
+    /** The tree holding no files. */
+    static final Tree EMPTY = new Tree(new TreeMap<>());
+
+    /** A leaf holding FILES, a map from file name to blob sha1. */
+    Tree(TreeMap<String, String> files) {
+        _files = files;
+        _children = null;
+        _sizes = null;
+        _unsaved = null;
+        _size = files.size();
+        _id = Utils.sha1(Codec.encode(this));
+    }
+
+    /** A node whose Ith child is named IDS[I] and holds SIZES[I] files,
+     *  or is empty if IDS[I] is null.  UNSAVED[I], if not null, is the
+     *  Ith child, not yet stored. */
+    Tree(String[] ids, int[] sizes, Tree[] unsaved) {
+        _files = null;
+        _children = ids;
+        _sizes = sizes;
+        _unsaved = unsaved;
+        int size = 0;
+        for (int n : sizes) {
+            size += n;
+        }
+        _size = size;
+        _id = Utils.sha1(Codec.encode(this));
+    }
+
+    /** Return the tree holding FILES, a map from file name to blob
+     *  sha1, none of whose nodes are stored. */
+    static Tree of(Map<String, String> files) {
+        return build(new TreeMap<>(files), 0);
+    }
+
+    /** Return my sha1. */
+    String id() {
+        return _id;
+    }
+
+    /** Return the number of files I hold. */
+    int size() {
+        return _size;
+    }
+
+    /** Return true iff I am a leaf. */
+    boolean isLeaf() {
+        return _files != null;
+    }
+
+    /** Return my files, if I am a leaf. */
+    SortedMap<String, String> entries() {
+        return _files;
+    }
+
+    /** Return the sha1 of my Ith child, or null if it is empty. */
+    String child(int i) {
+        return _children[i];
+    }
+
+    /** Return the number of files held by my Ith child. */
+    int childSize(int i) {
+        return _sizes[i];
+    }
+
+    /** Return my children that are not yet stored. */
+    List<Tree> unsaved() {
+        List<Tree> result = new ArrayList<>();
+        if (_unsaved != null) {
+            for (Tree child : _unsaved) {
+                if (child != null) {
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the sha1 of the blob of the file NAME, or null if I do not
+     *  hold it, reading the nodes on the path to it from STORE. */
+    String get(String name, ObjectStore store) {
+        Tree node = this;
+        for (int depth = 0; !node.isLeaf(); depth += 1) {
+            node = node.load(digit(name, depth), store);
+        }
+        return node._files.get(name);
+    }
+
+    /** Return all my files, as a map from file name to blob sha1,
+     *  reading my subtrees from STORE. */
+    TreeMap<String, String> flatten(ObjectStore store) {
+        TreeMap<String, String> result = new TreeMap<>();
+        flatten(store, result);
+        return result;
+    }
+
+    /** Add all my files to RESULT, reading my subtrees from STORE. */
+    private void flatten(ObjectStore store, Map<String, String> result) {
+        if (isLeaf()) {
+            result.putAll(_files);
+            return;
+        }
+        for (int i = 0; i < FANOUT; i += 1) {
+            if (_children[i] != null) {
+                load(i, store).flatten(store, result);
+            }
+        }
+    }
+
+    /** Return the tree holding my files with CHANGES made: each file
+     *  named in CHANGES is given the blob named there, or removed if
+     *  that is null.  Only the nodes on the paths to the changed files
+     *  are read from STORE, and only those are made anew. */
+    Tree edit(Map<String, String> changes, ObjectStore store) {
+        return edit(new TreeMap<>(changes), 0, store);
+    }
+
+    /** Return the result of edit(CHANGES, STORE) for me at depth
+     *  DEPTH. */
+    private Tree edit(SortedMap<String, String> changes, int depth,
+                      ObjectStore store) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        if (isLeaf()) {
+            TreeMap<String, String> files = new TreeMap<>(_files);
+            for (Map.Entry<String, String> e : changes.entrySet()) {
+                if (e.getValue() == null) {
+                    files.remove(e.getKey());
+                } else {
+                    files.put(e.getKey(), e.getValue());
+                }
+            }
+            return build(files, depth);
+        }
+        List<TreeMap<String, String>> groups = divide(changes, depth);
+        String[] ids = _children.clone();
+        int[] sizes = _sizes.clone();
+        Tree[] unsaved = new Tree[FANOUT];
+        int size = 0;
+        for (int i = 0; i < FANOUT; i += 1) {
+            if (!groups.get(i).isEmpty()) {
+                Tree child = load(i, store).edit(groups.get(i), depth + 1,
+                                                 store);
+                ids[i] = child.size() == 0 ? null : child.id();
+                sizes[i] = child.size();
+                unsaved[i] = child.size() == 0 ? null : child;
+            } else if (_unsaved != null) {
+                unsaved[i] = _unsaved[i];
+            }
+            size += sizes[i];
+        }
+        if (size <= LEAF_MAX) {
+            TreeMap<String, String> files = new TreeMap<>();
+            for (int i = 0; i < FANOUT; i += 1) {
+                if (ids[i] != null) {
+                    (unsaved[i] != null ? unsaved[i] : load(i, store))
+                        .flatten(store, files);
+                }
+            }
+            return new Tree(files);
+        }
+        return new Tree(ids, sizes, unsaved);
+    }
+
+    /** Return the files that differ between the trees A and B, as a map
+     *  from file name to the sha1s of its blobs in A and in B (null where
+     *  a tree does not hold it).  Subtrees with the same id in A and B
+     *  are skipped without being read from STORE. */
+    static TreeMap<String, String[]> diff(Tree a, Tree b,
+                                          ObjectStore store) {
+        TreeMap<String, String[]> result = new TreeMap<>();
+        diff(a, b, store, result);
+        return result;
+    }
+
+    /** Add to RESULT the files that differ between A and B, which are at
+     *  the same depth, reading their subtrees from STORE. */
+    private static void diff(Tree a, Tree b, ObjectStore store,
+                             Map<String, String[]> result) {
+        if (a._id.equals(b._id)) {
+            return;
+        }
+        if (a.isLeaf() || b.isLeaf()) {
+            TreeMap<String, String> aFiles = a.flatten(store);
+            TreeMap<String, String> bFiles = b.flatten(store);
+            for (Map.Entry<String, String> e : aFiles.entrySet()) {
+                String other = bFiles.get(e.getKey());
+                if (!e.getValue().equals(other)) {
+                    result.put(e.getKey(),
+                               new String[] { e.getValue(), other });
+                }
+            }
+            for (Map.Entry<String, String> e : bFiles.entrySet()) {
+                if (!aFiles.containsKey(e.getKey())) {
+                    result.put(e.getKey(),
+                               new String[] { null, e.getValue() });
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < FANOUT; i += 1) {
+            String aChild = a._children[i];
+            String bChild = b._children[i];
+            if (aChild == null ? bChild != null : !aChild.equals(bChild)) {
+                diff(a.load(i, store), b.load(i, store), store, result);
+            }
+        }
+    }
+
+    /** Return the tree at depth DEPTH holding FILES. */
+    private static Tree build(TreeMap<String, String> files, int depth) {
+        if (files.size() <= LEAF_MAX || depth == MAX_DEPTH) {
+            return new Tree(files);
+        }
+        List<TreeMap<String, String>> groups = divide(files, depth);
+        String[] ids = new String[FANOUT];
+        int[] sizes = new int[FANOUT];
+        Tree[] unsaved = new Tree[FANOUT];
+        for (int i = 0; i < FANOUT; i += 1) {
+            if (!groups.get(i).isEmpty()) {
+                unsaved[i] = build(groups.get(i), depth + 1);
+                ids[i] = unsaved[i].id();
+                sizes[i] = unsaved[i].size();
+            }
+        }
+        return new Tree(ids, sizes, unsaved);
+    }
+
+    /** Return the entries of FILES divided among the FANOUT children of
+     *  a node at depth DEPTH. */
+    private static List<TreeMap<String, String>> divide(
+        SortedMap<String, String> files, int depth) {
+        List<TreeMap<String, String>> result = new ArrayList<>();
+        for (int i = 0; i < FANOUT; i += 1) {
+            result.add(new TreeMap<>());
+        }
+        for (Map.Entry<String, String> e : files.entrySet()) {
+            result.get(digit(e.getKey(), depth))
+                .put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /** Return the digit at depth DEPTH of the sha1 of the file name
+     *  NAME, which picks the child of a node at that depth holding
+     *  it. */
+    private static int digit(String name, int depth) {
+        return Character.digit(Utils.sha1(name).charAt(depth), FANOUT);
+    }
+
+    /** Return my Ith child, which is EMPTY if I have none, reading it
+     *  from STORE if it is stored. */
+    private Tree load(int i, ObjectStore store) {
+        if (_unsaved != null && _unsaved[i] != null) {
+            return _unsaved[i];
+        }
+        if (_children[i] == null) {
+            return EMPTY;
+        }
+        Tree result = store.getTree(_children[i]);
+        if (result == null) {
+            throw new IllegalArgumentException("no tree " + _children[i]);
+        }
+        return result;
+    }
+
+    /** My files, if I am a leaf, or else null. */
+    private final TreeMap<String, String> _files;
+
+    /** The sha1s of my children, by digit, if I am not a leaf. */
+    private final String[] _children;
+
+    /** The number of files held by each of my children. */
+    private final int[] _sizes;
+
+    /** My children that are not yet stored, by digit, or null. */
+    private final Tree[] _unsaved;
+
+    /** The number of files I hold. */
+    private final int _size;
+
+    /** My sha1. */
+    private final String _id;
+}
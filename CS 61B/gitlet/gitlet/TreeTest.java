@@ -0,0 +1,101 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Tests of the Tree class.
+ *  @author Alice Wang
+ */
+public class TreeTest {
+
+    /** Return a map of N files, f0.txt to f{N-1}.txt, whose blobs are
+     *  named by the sha1s of their names. */
+    private static TreeMap<String, String> files(int n) {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (int i = 0; i < n; i += 1) {
+            result.put("f" + i + ".txt", Utils.sha1("f" + i));
+        }
+        return result;
+    }
+
+    @Test
+    public void editsMatchBuilds() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        TreeMap<String, String> files = files(3000);
+        Tree tree = Tree.of(files);
+        assertFalse(tree.isLeaf());
+        assertEquals(3000, tree.size());
+        store.putTree(tree);
+        tree = store.getTree(tree.id());
+        assertEquals(files, tree.flatten(store));
+        assertEquals(files.get("f1234.txt"), tree.get("f1234.txt", store));
+        assertNull(tree.get("f3000.txt", store));
+
+        TreeMap<String, String> changes = new TreeMap<>();
+        changes.put("f7.txt", Utils.sha1("changed"));
+        changes.put("f8.txt", null);
+        changes.put("new.txt", Utils.sha1("new"));
+        int before = store.looseCount();
+        Tree edited = tree.edit(changes, store);
+        store.putTree(edited);
+        assertTrue(store.looseCount() - before <= 3 * 4);
+        for (Map.Entry<String, String> e : changes.entrySet()) {
+            if (e.getValue() == null) {
+                files.remove(e.getKey());
+            } else {
+                files.put(e.getKey(), e.getValue());
+            }
+        }
+        assertEquals(Tree.of(files).id(), edited.id());
+        assertEquals(files, edited.flatten(store));
+
+        TreeMap<String, String> removals = new TreeMap<>();
+        for (String name : files.keySet()) {
+            if (removals.size() < files.size() - Tree.LEAF_MAX) {
+                removals.put(name, null);
+            }
+        }
+        Tree small = edited.edit(removals, store);
+        assertTrue(small.isLeaf());
+        assertEquals(Tree.LEAF_MAX, small.size());
+        files.keySet().removeAll(removals.keySet());
+        assertEquals(Tree.of(files).id(), small.id());
+        TreeMap<String, String> rest = new TreeMap<>();
+        for (String name : files.keySet()) {
+            rest.put(name, null);
+        }
+        assertEquals(Tree.EMPTY.id(), small.edit(rest, store).id());
+    }
+
+    @Test
+    public void diffSkipsSharedSubtrees() throws IOException {
+        ObjectStore store = TestUtils.newStore();
+        TreeMap<String, String> files = files(5000);
+        Tree base = Tree.of(files);
+        store.putTree(base);
+        base = store.getTree(base.id());
+        TreeMap<String, String> changes = new TreeMap<>();
+        changes.put("f10.txt", Utils.sha1("changed"));
+        changes.put("f20.txt", null);
+        changes.put("added.txt", Utils.sha1("added"));
+        Tree changed = base.edit(changes, store);
+        store.putTree(changed);
+
+        TreeMap<String, String[]> diff = Tree.diff(base, changed, store);
+        assertEquals(changes.keySet(), diff.keySet());
+        assertArrayEquals(new String[] {files.get("f10.txt"),
+                                        Utils.sha1("changed")},
+                          diff.get("f10.txt"));
+        assertArrayEquals(new String[] {files.get("f20.txt"), null},
+                          diff.get("f20.txt"));
+        assertArrayEquals(new String[] {null, Utils.sha1("added")},
+                          diff.get("added.txt"));
+        assertTrue(Tree.diff(changed, changed, store).isEmpty());
+        assertEquals(5000, Tree.diff(Tree.EMPTY, base, store).size());
+    }
+
+}